@@ -0,0 +1,89 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A write operation on a single node of a backing store, to be applied in a batch with
+ * {@link org.apache.helix.manager.zk.ZKHelixDataAccessor#multi(java.util.List)}.
+ * @param <T> The type of record to use
+ */
+public class DataWriteOp<T> {
+  public enum Type {
+    /**
+     * Create the node, fails if it exists
+     */
+    CREATE,
+    /**
+     * Set the data of the node, fails if it does not exist
+     */
+    SET,
+    /**
+     * Remove the node, fails if it does not exist or has children
+     */
+    REMOVE
+  }
+
+  private final Type _type;
+  private final String _path;
+  private final T _record;
+
+  private DataWriteOp(Type type, String path, T record) {
+    _type = type;
+    _path = path;
+    _record = record;
+  }
+
+  public static <T> DataWriteOp<T> create(String path, T record) {
+    return new DataWriteOp<>(Type.CREATE, path, record);
+  }
+
+  public static <T> DataWriteOp<T> set(String path, T record) {
+    return new DataWriteOp<>(Type.SET, path, record);
+  }
+
+  public static <T> DataWriteOp<T> remove(String path) {
+    return new DataWriteOp<>(Type.REMOVE, path, null);
+  }
+
+  public static DataWriteOp<ZNRecord> create(PropertyKey key, HelixProperty value) {
+    return create(key.getPath(), value.getRecord());
+  }
+
+  public static DataWriteOp<ZNRecord> set(PropertyKey key, HelixProperty value) {
+    return set(key.getPath(), value.getRecord());
+  }
+
+  public Type getType() {
+    return _type;
+  }
+
+  public String getPath() {
+    return _path;
+  }
+
+  public T getRecord() {
+    return _record;
+  }
+
+  @Override
+  public String toString() {
+    return _type + " " + _path;
+  }
+}
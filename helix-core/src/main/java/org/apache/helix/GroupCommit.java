@@ -23,6 +23,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.I0Itec.zkclient.exception.ZkNoNodeException;
@@ -31,7 +33,9 @@ import org.slf4j.LoggerFactory;
 
 // TODO: move to mananger.zk
 /**
- * Support committing updates to data such that they are ordered for each key
+ * Support committing updates to data such that they are ordered for each key. Concurrent updates
+ * to the same key are merged into one write, optionally waiting for a commit window so that more
+ * updates can be merged. Each update is acknowledged only after the merged write is done.
  */
 public class GroupCommit {
   private static Logger LOG = LoggerFactory.getLogger(GroupCommit.class);
@@ -46,6 +50,7 @@ public class GroupCommit {
     final String _key;
     final ZNRecord _record;
     AtomicBoolean _sent = new AtomicBoolean(false);
+    boolean _isSuccess = true;
 
     Entry(String key, ZNRecord record) {
       _key = key;
@@ -54,11 +59,28 @@ public class GroupCommit {
   }
 
   private final Queue[] _queues = new Queue[100];
+  private final long _commitWindow;
+
+  // updates that are queued but not written yet
+  private final AtomicInteger _pendingUpdateCount = new AtomicInteger(0);
+  // updates that are written, and the number of writes they are merged into
+  private final AtomicLong _committedUpdateCount = new AtomicLong(0);
+  private final AtomicLong _commitCount = new AtomicLong(0);
 
   /**
    * Set up a group committer and its associated queues
    */
   public GroupCommit() {
+    this(0);
+  }
+
+  /**
+   * Set up a group committer and its associated queues
+   * @param commitWindow time in ms to wait for more updates to the same key before writing, 0 to
+   *          write immediately
+   */
+  public GroupCommit(long commitWindow) {
+    _commitWindow = commitWindow;
     // Don't use Arrays.fill();
     for (int i = 0; i < _queues.length; ++i) {
       _queues[i] = new Queue();
@@ -87,15 +109,23 @@ public class GroupCommit {
     Queue queue = getQueue(key);
     Entry entry = new Entry(key, record);
 
-    boolean success = true;
     queue._pending.add(entry);
+    _pendingUpdateCount.incrementAndGet();
 
     while (!entry._sent.get()) {
       if (queue._running.compareAndSet(null, Thread.currentThread())) {
         ArrayList<Entry> processed = new ArrayList<>();
+        boolean success = false;
         try {
-          if (queue._pending.peek() == null)
-            return true;
+          if (queue._pending.peek() == null) {
+            // The entry has been committed by another thread, which publishes its result before
+            // releasing the queue. Go back to the check of _sent to return that result.
+            continue;
+          }
+
+          if (_commitWindow > 0) {
+            waitForCommitWindow();
+          }
 
           // remove from queue
           Entry first = queue._pending.poll();
@@ -132,7 +162,6 @@ public class GroupCommit {
           }
 
           int retry = 0;
-          success = false;
           while (++retry <= MAX_RETRY && !success) {
             if (removeIfEmpty && merged.getMapFields().isEmpty()) {
               success = accessor.remove(mergedKey, options);
@@ -149,13 +178,21 @@ public class GroupCommit {
             }
           }
         } finally {
-          queue._running.set(null);
+          if (!processed.isEmpty()) {
+            _pendingUpdateCount.addAndGet(-processed.size());
+            _committedUpdateCount.addAndGet(processed.size());
+            _commitCount.incrementAndGet();
+          }
           for (Entry e : processed) {
             synchronized (e) {
+              e._isSuccess = success;
               e._sent.set(true);
               e.notify();
             }
           }
+          // Release the queue only after the results are published, so that a waiter taking over
+          // the queue never misses the result of its entry
+          queue._running.set(null);
         }
       } else {
         synchronized (entry) {
@@ -170,7 +207,36 @@ public class GroupCommit {
         }
       }
     }
-    return success;
+    return entry._isSuccess;
+  }
+
+  private void waitForCommitWindow() {
+    try {
+      Thread.sleep(_commitWindow);
+    } catch (InterruptedException e) {
+      // Still commit the queued updates, their committers are waiting for them
+      Thread.currentThread().interrupt();
+    }
   }
 
+  /**
+   * @return the number of updates that are queued but not written yet
+   */
+  public int getPendingUpdateCount() {
+    return _pendingUpdateCount.get();
+  }
+
+  /**
+   * @return the number of updates that are written
+   */
+  public long getCommittedUpdateCount() {
+    return _committedUpdateCount.get();
+  }
+
+  /**
+   * @return the number of writes the committed updates are merged into
+   */
+  public long getCommitCount() {
+    return _commitCount.get();
+  }
 }
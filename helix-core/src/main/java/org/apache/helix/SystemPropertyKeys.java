@@ -25,11 +25,19 @@ public class SystemPropertyKeys {
   public static final String PARTICIPANT_HEALTH_REPORT_LATENCY =
       "helixmanager.participantHealthReport.reportLatency";
 
+  // time in ms to wait for more current state updates to be merged into one write
+  public static final String CURRENT_STATE_UPDATE_COMMIT_WINDOW =
+      "helixmanager.currentStateUpdate.commitWindow";
+
   // CallbackHandler
   public static final String ASYNC_BATCH_MODE_ENABLED = "helix.callbackhandler.isAsyncBatchModeEnabled";
 
   public static final String LEGACY_ASYNC_BATCH_MODE_ENABLED = "isAsyncBatchModeEnabled";
 
+  // number of threads shared by all batch-mode CallbackHandlers to dispatch callbacks
+  public static final String CALLBACK_DISPATCH_POOL_SIZE =
+      "helix.callbackhandler.dispatchPoolSize";
+
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 }
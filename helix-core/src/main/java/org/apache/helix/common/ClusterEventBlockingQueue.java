@@ -80,6 +80,19 @@ public class ClusterEventBlockingQueue {
     return event;
   }
 
+  /**
+   * Remove an element from the front of the queue without blocking.
+   * @return ClusterEvent at the front of the queue, or null if none available
+   */
+  public ClusterEvent poll() {
+    ClusterEvent event = _eventQueue.poll();
+    if (event != null) {
+      LOG.debug("Polling event " + event.getEventType());
+      LOG.debug("Event queue size: " + _eventQueue.size());
+    }
+    return event;
+  }
+
   /**
    * Get at the head of the queue without removing it
    * @return ClusterEvent at the front of the queue, or null if none available
@@ -108,6 +108,20 @@ public class DedupEventBlockingQueue<T, E> {
     return null;
   }
 
+  /**
+   * Remove an element from the front of the queue without blocking. This method will return the
+   * most recent event seen with the oldest enqueued event name.
+   * @return ClusterEvent at the front of the queue, or null if none available
+   */
+  public synchronized E poll() {
+    Entry entry = _eventQueue.poll();
+    if (entry != null) {
+      entry = _eventMap.remove(entry.getType());
+      return (E) entry.getEvent();
+    }
+    return null;
+  }
+
   /**
    * Get at the head of the queue without removing it
    * @return ClusterEvent at the front of the queue, or null if none available
@@ -64,6 +64,13 @@ public abstract class DedupEventProcessor<T, E> extends Thread {
     _eventQueue.put(eventType, event);
   }
 
+  /**
+   * @return the number of events waiting to be handled
+   */
+  public int getQueueSize() {
+    return _eventQueue.size();
+  }
+
   public void shutdown() {
     this.interrupt();
     _eventQueue.clear();
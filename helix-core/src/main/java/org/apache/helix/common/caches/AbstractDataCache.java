@@ -33,6 +33,8 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractDataCache {
   private static Logger LOG = LoggerFactory.getLogger(AbstractDataCache.class.getName());
   private String _eventId = "NO_ID";
+  private int _lastFetchedCount = 0;
+  private int _lastSkippedCount = 0;
 
   public String getEventId() {
     return _eventId;
@@ -42,6 +44,25 @@ public abstract class AbstractDataCache {
     _eventId = eventId;
   }
 
+  /**
+   * @return the number of properties read from ZK in the last refresh
+   */
+  public int getLastFetchedCount() {
+    return _lastFetchedCount;
+  }
+
+  /**
+   * @return the number of properties served from the local cache in the last refresh
+   */
+  public int getLastSkippedCount() {
+    return _lastSkippedCount;
+  }
+
+  protected void setLastRefreshCounts(int fetchedCount, int skippedCount) {
+    _lastFetchedCount = fetchedCount;
+    _lastSkippedCount = skippedCount;
+  }
+
   /**
    * Selectively fetch Helix Properties from ZK by comparing the version of local cached one with the one on ZK.
    * If version on ZK is newer, fetch it from zk and update local cache.
@@ -76,6 +97,8 @@ public abstract class AbstractDataCache {
       }
     }
 
+    setLastRefreshCounts(reloadKeys.size(), refreshedPropertyMap.size());
+
     List<T> reloadedProperty = accessor.getProperty(reloadKeys, true);
     Iterator<PropertyKey> csKeyIter = reloadKeys.iterator();
     for (T property : reloadedProperty) {
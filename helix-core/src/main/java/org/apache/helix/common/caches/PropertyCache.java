@@ -0,0 +1,170 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.controller.LogUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache to hold all children of a ZNode, i.e. LiveInstances or InstanceConfigs of a cluster.
+ * On refresh, only the children that are new, reported as changed, or whose version on ZK does
+ * not match the cached one are read from ZK.
+ * @param <T> the type of the cached property
+ */
+public class PropertyCache<T extends HelixProperty> extends AbstractDataCache {
+  private static final Logger LOG = LoggerFactory.getLogger(PropertyCache.class.getName());
+
+  /**
+   * Provides the property keys of the cached children.
+   * @param <O> the type of the cached property
+   */
+  public interface PropertyCacheKeyFuncs<O> {
+    /**
+     * @return the parent key of all the cached properties
+     */
+    PropertyKey getRootKey(HelixDataAccessor accessor);
+
+    /**
+     * @return the key of the property with the given name
+     */
+    PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName);
+
+    /**
+     * @return the name of the property, which is the name of its ZNode
+     */
+    String getObjName(O obj);
+  }
+
+  private final String _propertyDescription;
+  private final PropertyCacheKeyFuncs<T> _keyFuncs;
+  // Paths reported by change notifications since the last refresh.
+  private final Set<String> _changedPaths =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private Map<String, T> _objMap;
+
+  public PropertyCache(String propertyDescription, PropertyCacheKeyFuncs<T> keyFuncs) {
+    _propertyDescription = propertyDescription;
+    _keyFuncs = keyFuncs;
+    _objMap = Collections.emptyMap();
+  }
+
+  /**
+   * Record the path reported by a change notification. The child it points to will be read from
+   * ZK on the next refresh without comparing its version.
+   * @param pathChanged
+   */
+  public void notifyDataChange(String pathChanged) {
+    if (pathChanged != null) {
+      _changedPaths.add(pathChanged);
+    }
+  }
+
+  /**
+   * Refresh the cached properties. Children are listed from ZK, new or reported children are
+   * fetched, and the versions of the remaining cached children are compared with the ones on ZK.
+   * @param accessor
+   */
+  public void refresh(HelixDataAccessor accessor) {
+    long startTime = System.currentTimeMillis();
+    String rootPath = _keyFuncs.getRootKey(accessor).getPath();
+    Set<String> changedNames = new HashSet<>();
+    for (String path : _changedPaths) {
+      _changedPaths.remove(path);
+      String name = getChildName(rootPath, path);
+      if (name != null) {
+        changedNames.add(name);
+      }
+    }
+
+    Map<PropertyKey, T> cachedPropertyMap = new HashMap<>();
+    List<PropertyKey> reloadKeys = new ArrayList<>();
+    List<PropertyKey> cachedKeys = new ArrayList<>();
+    for (String name : accessor.getChildNames(_keyFuncs.getRootKey(accessor))) {
+      PropertyKey key = _keyFuncs.getObjPropertyKey(accessor, name);
+      T cachedObj = _objMap.get(name);
+      if (cachedObj == null || changedNames.contains(name)) {
+        reloadKeys.add(key);
+      } else {
+        cachedKeys.add(key);
+        cachedPropertyMap.put(key, cachedObj);
+      }
+    }
+
+    Map<PropertyKey, T> refreshedPropertyMap =
+        refreshProperties(accessor, reloadKeys, cachedKeys, cachedPropertyMap);
+    // Nothing fetched and nothing removed means every cached object is still current, so the
+    // previous snapshot is kept and readers holding it see the same map instance.
+    if (getLastFetchedCount() > 0 || refreshedPropertyMap.size() != _objMap.size()) {
+      Map<String, T> objMap = new HashMap<>();
+      for (T obj : refreshedPropertyMap.values()) {
+        objMap.put(_keyFuncs.getObjName(obj), obj);
+      }
+      _objMap = Collections.unmodifiableMap(objMap);
+    }
+
+    LogUtil.logInfo(LOG, getEventId(),
+        "Refresh " + _objMap.size() + " " + _propertyDescription + ", fetched "
+            + getLastFetchedCount() + ", skipped " + getLastSkippedCount() + ", took "
+            + (System.currentTimeMillis() - startTime) + " ms");
+  }
+
+  /**
+   * Return the cached properties, keyed by the property name.
+   * The returned map is an immutable snapshot. It is replaced, not modified, when the cached
+   * properties change, so it is safe to be held and read by other threads.
+   * @return an unmodifiable map
+   */
+  public Map<String, T> getPropertyMap() {
+    return _objMap;
+  }
+
+  /**
+   * Set the cached properties.
+   * CAUTION: The properties will be version checked against ZK on the next refresh.
+   * @param objMap
+   */
+  public void setPropertyMap(Map<String, T> objMap) {
+    _objMap = Collections.unmodifiableMap(new HashMap<>(objMap));
+  }
+
+  private static String getChildName(String rootPath, String path) {
+    if (path.length() > rootPath.length() + 1 && path.startsWith(rootPath + "/")) {
+      String name = path.substring(rootPath.length() + 1);
+      if (!name.contains("/")) {
+        return name;
+      }
+    }
+    // A change on the root path means children are added or removed, which is covered by listing
+    // the children.
+    return null;
+  }
+}
@@ -22,10 +22,12 @@ package org.apache.helix.common.caches;
 import com.google.common.base.Joiner;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyType;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.ClusterConfig;
@@ -35,10 +37,12 @@ import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.JobContext;
+import org.apache.helix.task.ReadyJobIndex;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
 import org.apache.helix.controller.LogUtil;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +57,18 @@ public class TaskDataCache extends AbstractDataCache {
   private Map<String, JobConfig> _jobConfigMap = new HashMap<>();
   private Map<String, WorkflowConfig> _workflowConfigMap = new HashMap<>();
   private Map<String, ZNRecord> _contextMap = new HashMap<>();
+  // context znode name -> the context read from ZK, and the stat of the znode it was read with
+  private Map<String, ZNRecord> _contextRecordMap = new HashMap<>();
+  private Map<String, HelixProperty.Stat> _contextStatMap = new HashMap<>();
+  private long _lastFetchedBytes = 0;
+  // resource name -> the contexts updated by the rebalancers which are not persisted yet
+  private Map<String, ZNRecord> _contextsToUpdate = new HashMap<>();
+  // job name -> start time parsed from the cached job context
+  private Map<String, JobStartTime> _jobStartTimeMap = new HashMap<>();
+  // workflow name -> the cached ResourceConfig the WorkflowConfig is built from
+  private Map<String, ResourceConfig> _workflowConfigSourceMap = new HashMap<>();
+  // workflow name -> jobs ready to be scheduled
+  private Map<String, ReadyJobIndex> _readyJobIndexMap = new HashMap<>();
   // The following fields have been added for quota-based task scheduling
   private final AssignableInstanceManager _assignableInstanceManager = new AssignableInstanceManager();
 
@@ -73,57 +89,132 @@ public class TaskDataCache extends AbstractDataCache {
       Map<String, ResourceConfig> resourceConfigMap) {
     refreshJobContexts(accessor);
     // update workflow and job configs.
-    _workflowConfigMap.clear();
+    Map<String, WorkflowConfig> workflowConfigMap = new HashMap<>();
+    Map<String, ResourceConfig> workflowConfigSourceMap = new HashMap<>();
     _jobConfigMap.clear();
     for (Map.Entry<String, ResourceConfig> entry : resourceConfigMap.entrySet()) {
       if (entry.getValue().getRecord().getSimpleFields()
           .containsKey(WorkflowConfig.WorkflowConfigProperty.Dag.name())) {
-        _workflowConfigMap.put(entry.getKey(), new WorkflowConfig(entry.getValue()));
+        // Keep the config built from an unchanged ResourceConfig, so its JobDag is not parsed again
+        WorkflowConfig workflowConfig = _workflowConfigMap.get(entry.getKey());
+        if (workflowConfig == null
+            || _workflowConfigSourceMap.get(entry.getKey()) != entry.getValue()) {
+          workflowConfig = new WorkflowConfig(entry.getValue());
+        }
+        workflowConfigMap.put(entry.getKey(), workflowConfig);
+        workflowConfigSourceMap.put(entry.getKey(), entry.getValue());
       } else if (entry.getValue().getRecord().getSimpleFields()
           .containsKey(WorkflowConfig.WorkflowConfigProperty.WorkflowID.name())) {
         _jobConfigMap.put(entry.getKey(), new JobConfig(entry.getValue()));
       }
     }
+    _workflowConfigMap.clear();
+    _workflowConfigMap.putAll(workflowConfigMap);
+    _workflowConfigSourceMap = workflowConfigSourceMap;
+    _readyJobIndexMap.keySet().retainAll(_workflowConfigMap.keySet());
     return true;
   }
 
+  /**
+   * Refresh the workflow and job contexts. Only the contexts whose znodes have been created or
+   * modified since the last refresh are read from ZK, the others are served from the cache.
+   */
   private void refreshJobContexts(HelixDataAccessor accessor) {
-    // TODO: Need an optimize for reading context only if the refresh is needed.
     long start = System.currentTimeMillis();
-    _contextMap.clear();
+    _lastFetchedBytes = 0;
+    setLastRefreshCounts(0, 0);
     if (_clusterName == null) {
+      clearContexts();
       return;
     }
     String path = String.format("/%s/%s%s", _clusterName, PropertyType.PROPERTYSTORE.name(),
         TaskConstants.REBALANCER_CONTEXT_ROOT);
-    List<String> contextPaths = new ArrayList<>();
     List<String> childNames = accessor.getBaseDataAccessor().getChildNames(path, 0);
-    if (childNames == null) {
+    if (childNames == null || childNames.isEmpty()) {
+      clearContexts();
       return;
     }
+    List<String> contextPaths = new ArrayList<>();
     for (String context : childNames) {
       contextPaths.add(Joiner.on("/").join(path, context, TaskConstants.CONTEXT_NODE));
     }
 
-    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, null, 0);
-    for (int i = 0; i < contexts.size(); i++) {
-      ZNRecord context = contexts.get(i);
+    Stat[] stats = accessor.getBaseDataAccessor().getStats(contextPaths, 0);
+    Map<String, ZNRecord> contextRecordMap = new HashMap<>();
+    Map<String, HelixProperty.Stat> contextStatMap = new HashMap<>();
+    List<String> reloadNames = new ArrayList<>();
+    List<String> reloadPaths = new ArrayList<>();
+    for (int i = 0; i < childNames.size(); i++) {
+      String name = childNames.get(i);
+      HelixProperty.Stat stat = stats[i] == null ? null
+          : new HelixProperty.Stat(stats[i].getVersion(), stats[i].getCtime(),
+              stats[i].getMtime());
+      if (stat != null && stat.equals(_contextStatMap.get(name))) {
+        contextRecordMap.put(name, _contextRecordMap.get(name));
+        contextStatMap.put(name, stat);
+      } else {
+        reloadNames.add(name);
+        reloadPaths.add(contextPaths.get(i));
+        if (stat != null) {
+          // The stat is read before the data, so a context modified in between is read again by
+          // the next refresh.
+          contextStatMap.put(name, stat);
+          _lastFetchedBytes += stats[i].getDataLength();
+        }
+      }
+    }
+
+    if (!reloadPaths.isEmpty()) {
+      List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(reloadPaths, null, 0);
+      for (int i = 0; i < contexts.size(); i++) {
+        ZNRecord context = contexts.get(i);
+        contextRecordMap.put(reloadNames.get(i), context);
+        if (context == null) {
+          contextStatMap.remove(reloadNames.get(i));
+        }
+      }
+    }
+    _contextRecordMap = contextRecordMap;
+    _contextStatMap = contextStatMap;
+    setLastRefreshCounts(reloadPaths.size(), childNames.size() - reloadPaths.size());
+
+    _contextMap.clear();
+    for (String name : childNames) {
+      ZNRecord context = contextRecordMap.get(name);
       if (context != null && context.getSimpleField(NAME) != null) {
         _contextMap.put(context.getSimpleField(NAME), context);
       } else {
-        _contextMap.put(childNames.get(i), context);
+        _contextMap.put(name, context);
         LogUtil.logDebug(LOG, getEventId(),
-            String.format("Context for %s is null or miss the context NAME!", childNames.get((i))));
+            String.format("Context for %s is null or miss the context NAME!", name));
       }
     }
+    _contextMap.putAll(_contextsToUpdate);
+    _jobStartTimeMap.keySet().retainAll(_contextMap.keySet());
 
     if (LOG.isDebugEnabled()) {
       LogUtil.logDebug(LOG, getEventId(),
-          "# of workflow/job context read from zk: " + _contextMap.size() + ". Take " + (
+          "# of workflow/job context read from zk: " + getLastFetchedCount() + " ("
+              + _lastFetchedBytes + " bytes), skipped: " + getLastSkippedCount() + ". Take " + (
               System.currentTimeMillis() - start) + " ms");
     }
   }
 
+  private void clearContexts() {
+    _contextMap.clear();
+    _contextRecordMap.clear();
+    _contextStatMap.clear();
+    _contextMap.putAll(_contextsToUpdate);
+    _jobStartTimeMap.keySet().retainAll(_contextMap.keySet());
+  }
+
+  /**
+   * @return the number of bytes of the workflow and job contexts read from ZK in the last refresh
+   */
+  public long getLastFetchedBytes() {
+    return _lastFetchedBytes;
+  }
+
   /**
    * Returns job config map
    * @return
@@ -165,7 +256,7 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public JobContext getJobContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new JobContext(_contextMap.get(resourceName));
+      return new JobContext(copyContext(_contextMap.get(resourceName)));
     }
     return null;
   }
@@ -177,17 +268,86 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public WorkflowContext getWorkflowContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new WorkflowContext(_contextMap.get(resourceName));
+      return new WorkflowContext(copyContext(_contextMap.get(resourceName)));
     }
     return null;
   }
 
+  /**
+   * Return the start time of the job from the cached JobContext without copying the context. The
+   * start time is parsed again only if the context has been read from ZK or updated since the last
+   * call, so ordering the jobs of every pipeline run does not cost more than the changed contexts.
+   * @param jobName
+   * @return the start time of the job, or null if the job has no context
+   */
+  public synchronized Long getJobStartTime(String jobName) {
+    ZNRecord context = _contextMap.get(jobName);
+    if (context == null) {
+      _jobStartTimeMap.remove(jobName);
+      return null;
+    }
+    JobStartTime startTime = _jobStartTimeMap.get(jobName);
+    if (startTime == null || startTime._context != context) {
+      startTime = new JobStartTime(context, new JobContext(context).getStartTime());
+      _jobStartTimeMap.put(jobName, startTime);
+    }
+    return startTime._startTime;
+  }
+
+  private static class JobStartTime {
+    // The cached context the start time is parsed from, compared by identity
+    final ZNRecord _context;
+    final long _startTime;
+
+    JobStartTime(ZNRecord context, long startTime) {
+      _context = context;
+      _startTime = startTime;
+    }
+  }
+
+  /**
+   * Return the index of the jobs ready to be scheduled of the workflow
+   * @param workflow
+   * @return the index, or null if there is none
+   */
+  public ReadyJobIndex getReadyJobIndex(String workflow) {
+    return _readyJobIndexMap.get(workflow);
+  }
+
+  /**
+   * Keep the index of the jobs ready to be scheduled of the workflow across refreshes
+   * @param workflow
+   * @param readyJobIndex
+   */
+  public void setReadyJobIndex(String workflow, ReadyJobIndex readyJobIndex) {
+    _readyJobIndexMap.put(workflow, readyJobIndex);
+  }
+
+  /**
+   * The cached contexts are kept across refreshes, so the contexts handed out must not share the
+   * maps and lists of the cached ones which the callers update.
+   */
+  private static ZNRecord copyContext(ZNRecord context) {
+    ZNRecord copy = new ZNRecord(context);
+    for (Map.Entry<String, Map<String, String>> entry : context.getMapFields().entrySet()) {
+      if (entry.getValue() != null) {
+        copy.setMapField(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+      }
+    }
+    for (Map.Entry<String, List<String>> entry : context.getListFields().entrySet()) {
+      if (entry.getValue() != null) {
+        copy.setListField(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+    }
+    return copy;
+  }
+
   /**
    * Update context of the Job
    */
   public void updateJobContext(String resourceName, JobContext jobContext,
       HelixDataAccessor accessor) {
-    updateContext(resourceName, jobContext.getRecord(), accessor);
+    updateContext(resourceName, jobContext.getRecord());
   }
 
   /**
@@ -195,17 +355,75 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public void updateWorkflowContext(String resourceName, WorkflowContext workflowContext,
       HelixDataAccessor accessor) {
-    updateContext(resourceName, workflowContext.getRecord(), accessor);
+    updateContext(resourceName, workflowContext.getRecord());
   }
 
   /**
-   * Update context of the Workflow or Job
+   * Update context of the Workflow or Job. The context is persisted by the next
+   * persistDataChanges() call.
    */
-  private void updateContext(String resourceName, ZNRecord record, HelixDataAccessor accessor) {
-    String path = String.format("/%s/%s%s/%s/%s", _clusterName, PropertyType.PROPERTYSTORE.name(),
-        TaskConstants.REBALANCER_CONTEXT_ROOT, resourceName, TaskConstants.CONTEXT_NODE);
-    accessor.getBaseDataAccessor().set(path, record, AccessOption.PERSISTENT);
+  private void updateContext(String resourceName, ZNRecord record) {
     _contextMap.put(resourceName, record);
+    _contextsToUpdate.put(resourceName, record);
+  }
+
+  /**
+   * Persist the contexts updated since the last call in one batch. The contexts that are equal to
+   * the ones read from ZK are not written. Neither are the contexts removed from ZK since they
+   * were read, e.g. by the cleanup of an expired workflow, so that they are not recreated.
+   * @param accessor
+   * @return the number of contexts written to ZK
+   */
+  public synchronized int persistDataChanges(HelixDataAccessor accessor) {
+    if (_contextsToUpdate.isEmpty()) {
+      return 0;
+    }
+    List<String> names = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (Map.Entry<String, ZNRecord> entry : _contextsToUpdate.entrySet()) {
+      if (entry.getValue().equals(_contextRecordMap.get(entry.getKey()))) {
+        continue;
+      }
+      names.add(entry.getKey());
+      paths.add(getContextPath(entry.getKey()));
+      records.add(entry.getValue());
+    }
+    _contextsToUpdate.clear();
+    if (paths.isEmpty()) {
+      return 0;
+    }
+
+    Stat[] stats = accessor.getBaseDataAccessor().getStats(paths, AccessOption.PERSISTENT);
+    for (int i = paths.size() - 1; i >= 0; i--) {
+      if (stats[i] == null && _contextStatMap.containsKey(names.get(i))) {
+        LogUtil.logInfo(LOG, getEventId(),
+            "Skip persisting the context of " + names.get(i) + " which has been removed.");
+        _contextMap.remove(names.get(i));
+        names.remove(i);
+        paths.remove(i);
+        records.remove(i);
+      }
+    }
+
+    boolean[] results =
+        accessor.getBaseDataAccessor().setChildren(paths, records, AccessOption.PERSISTENT);
+    int persisted = 0;
+    for (int i = 0; i < results.length; i++) {
+      if (results[i]) {
+        persisted++;
+      } else {
+        // Retry with the next call, the context is served from the cache until then.
+        LogUtil.logWarn(LOG, getEventId(), "Failed to persist the context of " + names.get(i));
+        _contextsToUpdate.put(names.get(i), records.get(i));
+      }
+    }
+    return persisted;
+  }
+
+  private String getContextPath(String resourceName) {
+    return String.format("/%s/%s%s/%s/%s", _clusterName, PropertyType.PROPERTYSTORE.name(),
+        TaskConstants.REBALANCER_CONTEXT_ROOT, resourceName, TaskConstants.CONTEXT_NODE);
   }
 
   /**
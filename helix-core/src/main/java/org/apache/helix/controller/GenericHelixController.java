@@ -28,6 +28,8 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -135,6 +137,7 @@ public class GenericHelixController implements IdealStateChangeListener,
   private ClusterDataCache _cache;
   private ClusterDataCache _taskCache;
   private ScheduledExecutorService _asyncTasksThreadPool;
+  private ForkJoinPool _rebalanceThreadPool;
 
   private String _clusterName;
 
@@ -258,6 +261,7 @@ public class GenericHelixController implements IdealStateChangeListener,
       // rebalance pipeline
       Pipeline rebalancePipeline = new Pipeline(pipelineName);
       rebalancePipeline.addStage(new BestPossibleStateCalcStage());
+      rebalancePipeline.addStage(new PersistTaskContextStage());
       rebalancePipeline.addStage(new IntermediateStateCalcStage());
       rebalancePipeline.addStage(new MessageGenerationPhase());
       rebalancePipeline.addStage(new MessageSelectionStage());
@@ -307,6 +311,19 @@ public class GenericHelixController implements IdealStateChangeListener,
           }
         });
 
+    // Bounded by the number of cores, the per-cluster parallelism is further limited by the
+    // ClusterConfig, see BestPossibleStateCalcStage.
+    _rebalanceThreadPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+        new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+          @Override
+          public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread =
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("GenericHelixController-rebalance_thread-" + thread.getPoolIndex());
+            return thread;
+          }
+        }, null, false);
+
     _eventQueue = new ClusterEventBlockingQueue();
     _taskEventQueue = new ClusterEventBlockingQueue();
 
@@ -426,6 +443,7 @@ public class GenericHelixController implements IdealStateChangeListener,
         event.getEventId()));
     long startTime = System.currentTimeMillis();
     boolean rebalanceFail = false;
+    cache.markPipelineStarted();
     for (Pipeline pipeline : pipelines) {
       event.addAttribute(AttributeName.PipelineType.name(), pipeline.getPipelineType());
       try {
@@ -461,6 +479,7 @@ public class GenericHelixController implements IdealStateChangeListener,
         break;
       }
     }
+    cache.markPipelineFinished();
     if (!rebalanceFail) {
       _continousRebalanceFailureCount = 0;
     }
@@ -495,6 +514,9 @@ public class GenericHelixController implements IdealStateChangeListener,
         _clusterStatusMonitor
             .updateClusterEventDuration(ClusterEventMonitor.PhaseName.TotalProcessed.name(),
                 endTime - startTime);
+        _clusterStatusMonitor
+            .updateClusterEventQueueDepth(ClusterEventMonitor.PhaseName.InQueue.name(),
+                _eventQueue.size());
       }
       sb.append(String.format(
           "InQueue time for event: " + event.getEventType() + " took: " + (startTime - enqueueTime)
@@ -833,6 +855,13 @@ public class GenericHelixController implements IdealStateChangeListener,
       logger.warn("Timeout when terminating async tasks. Some async tasks are still executing.");
     }
 
+    _rebalanceThreadPool.shutdownNow();
+    try {
+      _rebalanceThreadPool.awaitTermination(EVENT_THREAD_JOIN_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      logger.warn("Timeout when terminating rebalance tasks.");
+    }
+
     // shutdown async workers
     shutdownAsyncFIFOWorkers();
 
@@ -912,6 +941,8 @@ public class GenericHelixController implements IdealStateChangeListener,
   private class ClusterEventProcessor extends Thread {
     private final ClusterDataCache _cache;
     private final ClusterEventBlockingQueue _eventBlockingQueue;
+    // moving average of the pipeline durations, which sizes the event coalescing window
+    private long _avgPipelineDuration = 0;
 
     public ClusterEventProcessor(ClusterDataCache cache,
         ClusterEventBlockingQueue eventBlockingQueue) {
@@ -925,7 +956,15 @@ public class GenericHelixController implements IdealStateChangeListener,
       logger.info("START ClusterEventProcessor thread  for cluster " + _clusterName);
       while (!isInterrupted()) {
         try {
-          handleEvent(_eventBlockingQueue.take(), _cache);
+          ClusterEvent event = _eventBlockingQueue.take();
+          long window = getCoalescingWindow();
+          if (window > 0) {
+            for (ClusterEvent coalescedEvent : coalesceEvents(event, window)) {
+              processEvent(coalescedEvent);
+            }
+          } else {
+            processEvent(event);
+          }
         } catch (InterruptedException e) {
           logger.warn("ClusterEventProcessor interrupted", e);
           interrupt();
@@ -940,11 +979,93 @@ public class GenericHelixController implements IdealStateChangeListener,
       }
       logger.info("END ClusterEventProcessor thread");
     }
+
+    private void processEvent(ClusterEvent event) {
+      long startTime = System.currentTimeMillis();
+      handleEvent(event, _cache);
+      _avgPipelineDuration =
+          (_avgPipelineDuration * 3 + System.currentTimeMillis() - startTime) / 4;
+    }
+
+    /**
+     * The window is half of the recent pipeline duration, within the bounds of the cluster config.
+     * A slow pipeline, which gains the most from fewer runs, gets a longer window, while the
+     * latency added to an event stays a fraction of the run that handles it.
+     * @return the window in ms, 0 if coalescing is disabled
+     */
+    private long getCoalescingWindow() {
+      ClusterConfig clusterConfig = _cache.getClusterConfig();
+      if (clusterConfig == null || clusterConfig.getEventCoalescingMaxDelay() <= 0) {
+        return 0;
+      }
+      return Math.min(clusterConfig.getEventCoalescingMaxDelay(),
+          Math.max(clusterConfig.getEventCoalescingMinDelay(), _avgPipelineDuration / 2));
+    }
+
+    /**
+     * Wait for the window, then take the events that arrived meanwhile. The callbacks have already
+     * notified the cache of the changes, so running the pipelines of one event refreshes the data
+     * of all of them. The events are merged into the latest event whose pipelines include the
+     * pipelines of all the events. If there is no such event, or an event finalizes the
+     * controller, the events are handled one by one.
+     * @return the events to handle
+     */
+    private List<ClusterEvent> coalesceEvents(ClusterEvent event, long window)
+        throws InterruptedException {
+      Thread.sleep(window);
+      List<ClusterEvent> events = new ArrayList<>();
+      events.add(event);
+      ClusterEvent nextEvent;
+      while ((nextEvent = _eventBlockingQueue.poll()) != null) {
+        events.add(nextEvent);
+      }
+
+      ClusterEvent mergedEvent = null;
+      PipelineRegistry registry = _cache.isTaskCache() ? _taskRegistry : _registry;
+      if (events.size() > 1 && !hasFinalizeEvent(events)) {
+        for (int i = events.size() - 1; i >= 0 && mergedEvent == null; i--) {
+          List<Pipeline> pipelines = registry.getPipelinesForEvent(events.get(i).getEventType());
+          boolean coversAll = true;
+          for (ClusterEvent otherEvent : events) {
+            if (!pipelines
+                .containsAll(registry.getPipelinesForEvent(otherEvent.getEventType()))) {
+              coversAll = false;
+              break;
+            }
+          }
+          if (coversAll) {
+            mergedEvent = events.get(i);
+          }
+        }
+      }
+
+      if (_isMonitoring && !_cache.isTaskCache()) {
+        _clusterStatusMonitor
+            .updateClusterEventCoalescing(window, mergedEvent == null ? 1 : events.size());
+      }
+      if (mergedEvent == null) {
+        return events;
+      }
+      logger.info(String.format("Coalesced %d events into event: %s %s in %d ms", events.size(),
+          mergedEvent.getEventType(), mergedEvent.getEventId(), window));
+      return Collections.singletonList(mergedEvent);
+    }
+
+    private boolean hasFinalizeEvent(List<ClusterEvent> events) {
+      for (ClusterEvent event : events) {
+        NotificationContext context = event.getAttribute(AttributeName.changeContext.name());
+        if (context != null && context.getType() == Type.FINALIZE) {
+          return true;
+        }
+      }
+      return false;
+    }
   }
 
   private void initPipelines(Thread eventThread, ClusterDataCache cache, boolean isTask) {
     cache.setTaskCache(isTask);
     cache.setAsyncTasksThreadPool(_asyncTasksThreadPool);
+    cache.setRebalanceThreadPool(_rebalanceThreadPool);
 
     eventThread.setDaemon(true);
     eventThread.start();
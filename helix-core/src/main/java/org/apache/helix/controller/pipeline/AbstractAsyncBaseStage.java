@@ -21,7 +21,10 @@ package org.apache.helix.controller.pipeline;
 
 import org.apache.helix.common.DedupEventProcessor;
 import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterDataCache;
 import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
+import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,10 +41,16 @@ public abstract class AbstractAsyncBaseStage extends AbstractBaseStage {
       throw new StageException("No async worker found for " + taskType);
     }
 
+    // The pipeline goes on with the next events while the task waits and runs, so the task
+    // remembers the snapshot of the cache it was submitted for.
+    final ClusterDataCache cache = event.getAttribute(AttributeName.ClusterDataCache.name());
+    final long snapshotVersion = cache == null ? 0 : cache.getSnapshotVersion();
+    final long submitTimestamp = System.currentTimeMillis();
     worker.queueEvent(taskType, new Runnable() {
       @Override
       public void run() {
         long startTimestamp = System.currentTimeMillis();
+        long pipelineBusyTime = cache == null ? 0 : cache.getPipelineBusyTime();
         logger.info("START AsyncProcess: {}", taskType);
         try {
           execute(event);
@@ -49,10 +58,35 @@ public abstract class AbstractAsyncBaseStage extends AbstractBaseStage {
           logger.error("Failed to process {} asynchronously", taskType, e);
         }
         long endTimestamp = System.currentTimeMillis();
-        logger.info("END AsyncProcess: {}, took {} ms", taskType, endTimestamp - startTimestamp);
+        long overlapTime = 0;
+        long newerSnapshots = 0;
+        if (cache != null) {
+          overlapTime = cache.getPipelineBusyTime() - pipelineBusyTime;
+          newerSnapshots = cache.getSnapshotVersion() - snapshotVersion;
+        }
+        logger.info(
+            "END AsyncProcess: {}, took {} ms, waited {} ms, overlapped the pipeline for {} ms, "
+                + "{} newer snapshots", taskType, endTimestamp - startTimestamp,
+            startTimestamp - submitTimestamp, overlapTime, newerSnapshots);
+
+        ClusterStatusMonitor clusterStatusMonitor =
+            event.getAttribute(AttributeName.clusterStatusMonitor.name());
+        if (clusterStatusMonitor != null) {
+          clusterStatusMonitor.updateClusterEventDuration(getAsyncWorkerType().name(),
+              startTimestamp - submitTimestamp);
+          clusterStatusMonitor.updateClusterEventDuration(
+              ClusterEventMonitor.PhaseName.PipelineOverlap.name(), overlapTime);
+        }
       }
     });
     logger.info("Submitted asynchronous {} task to worker", taskType);
+
+    ClusterStatusMonitor clusterStatusMonitor =
+        event.getAttribute(AttributeName.clusterStatusMonitor.name());
+    if (clusterStatusMonitor != null) {
+      clusterStatusMonitor
+          .updateClusterEventQueueDepth(getAsyncWorkerType().name(), worker.getQueueSize());
+    }
   }
 
   /**
@@ -105,8 +105,8 @@ public abstract class AbstractRebalancer implements Rebalancer, MappingCalculato
 
   /**
    * Looking for cached ideal mapping for this resource, if it is already there, do not recompute it
-   * again. The cached mapping will be cleared in ClusterDataCache if there is anything changed in
-   * cluster state that can cause the potential changes in ideal state. This will avoid flip-flop
+   * again. The cached mapping is only returned by ClusterDataCache if nothing in the cluster state
+   * that can change the ideal state has changed since it was cached. This will avoid flip-flop
    * issue we saw in AutoRebalanceStrategy, and also improve the performance by avoiding recompute
    * IS everytime.
    */
@@ -57,10 +57,10 @@ public class CustomRebalancer extends AbstractRebalancer {
   public ResourceAssignment computeBestPossiblePartitionState(ClusterDataCache cache,
       IdealState idealState, Resource resource, CurrentStateOutput currentStateOutput) {
     // Looking for cached BestPossible mapping for this resource, if it is already there, do not recompute it again.
-    // The cached mapping will be cleared in ClusterDataCache if there is anything changed in cluster state that can
-    // cause the potential changes in BestPossible state.
+    // The cached mapping is only returned by ClusterDataCache if nothing that can change the BestPossible state,
+    // including the current states of the resource, has changed since it was cached.
     ResourceAssignment partitionMapping =
-        cache.getCachedResourceAssignment(resource.getResourceName());
+        cache.getCachedResourceAssignment(resource.getResourceName(), currentStateOutput);
     if (partitionMapping != null) {
       return partitionMapping;
     }
@@ -83,7 +83,8 @@ public class CustomRebalancer extends AbstractRebalancer {
       partitionMapping.addReplicaMap(partition, bestStateForPartition);
     }
 
-    cache.setCachedResourceAssignment(resource.getResourceName(), partitionMapping);
+    cache.setCachedResourceAssignment(resource.getResourceName(), partitionMapping,
+        currentStateOutput);
     if (LOG.isDebugEnabled()) {
       LOG.debug(String.format("Processing resource: %s", resource.getResourceName()));
       LOG.debug(String.format("Final Mapping of resource : %s", partitionMapping.toString()));
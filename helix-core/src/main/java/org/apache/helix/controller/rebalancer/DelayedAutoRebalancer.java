@@ -110,6 +110,8 @@ public class DelayedAutoRebalancer extends AbstractRebalancer {
     }
 
     Set<String> activeNodes = liveEnabledNodes;
+    // the mapping is computed for the current time if some inactive instances are still waited for
+    long mappingExpiryTime = Long.MAX_VALUE;
     if (delayRebalanceEnabled) {
       long delay = getRebalanceDelay(currentIdealState, clusterConfig);
       activeNodes = getActiveInstances(allNodes, currentIdealState, liveEnabledNodes,
@@ -118,7 +120,7 @@ public class DelayedAutoRebalancer extends AbstractRebalancer {
 
       Set<String> offlineOrDisabledInstances = new HashSet<>(activeNodes);
       offlineOrDisabledInstances.removeAll(liveEnabledNodes);
-      setRebalanceScheduler(currentIdealState, offlineOrDisabledInstances,
+      mappingExpiryTime = setRebalanceScheduler(currentIdealState, offlineOrDisabledInstances,
           clusterData.getInstanceOfflineTimeMap(), clusterData.getLiveInstances().keySet(),
           clusterData.getInstanceConfigMap(), delay, clusterConfig);
     }
@@ -192,7 +194,7 @@ public class DelayedAutoRebalancer extends AbstractRebalancer {
     }
 
     IdealState idealState = generateNewIdealState(resourceName, currentIdealState, finalMapping);
-    clusterData.setCachedIdealMapping(resourceName, idealState.getRecord());
+    clusterData.setCachedIdealMapping(resourceName, idealState.getRecord(), mappingExpiryTime);
     return idealState;
   }
 
@@ -234,14 +236,18 @@ public class DelayedAutoRebalancer extends AbstractRebalancer {
   }
 
   /* Set a rebalance scheduler for the closest future rebalance time. */
-  private void setRebalanceScheduler(IdealState idealState, Set<String> offlineOrDisabledInstances,
+  /**
+   * Schedule a rebalance of the resource when the delay of the next inactive instance expires.
+   * @return the time of the next rebalance, or Long.MAX_VALUE if no rebalance is needed
+   */
+  private long setRebalanceScheduler(IdealState idealState, Set<String> offlineOrDisabledInstances,
       Map<String, Long> instanceOfflineTimeMap, Set<String> liveNodes,
       Map<String, InstanceConfig> instanceConfigMap,  long delay,
       ClusterConfig clusterConfig) {
     String resourceName = idealState.getResourceName();
     if (!isDelayRebalanceEnabled(idealState, clusterConfig)) {
       _rebalanceScheduler.removeScheduledRebalance(resourceName);
-      return;
+      return Long.MAX_VALUE;
     }
 
     long currentTime = System.currentTimeMillis();
@@ -272,6 +278,7 @@ public class DelayedAutoRebalancer extends AbstractRebalancer {
         }
       }
     }
+    return nextRebalanceTime;
   }
 
   /**
@@ -39,6 +39,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * For partition compute best possible (instance,state) pair based on
@@ -104,28 +107,45 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     BestPossibleStateOutput output = new BestPossibleStateOutput();
 
     PriorityQueue<ResourcePriority> resourcePriorityQueue = new PriorityQueue<>();
-    TaskDriver taskDriver = null;
-    HelixManager helixManager = event.getAttribute(AttributeName.helixmanager.name());
-    if (helixManager != null) {
-      taskDriver = new TaskDriver(helixManager);
-    }
     for (Resource resource : resourceMap.values()) {
       resourcePriorityQueue.add(new ResourcePriority(resource, cache.getIdealState(resource.getResourceName()),
-          taskDriver));
+          cache));
+    }
+
+    // Drain the queue so resources are processed in priority order. Note that the iterator of a
+    // PriorityQueue does not guarantee any order.
+    List<Resource> orderedResources = new ArrayList<>(resourcePriorityQueue.size());
+    while (!resourcePriorityQueue.isEmpty()) {
+      orderedResources.add(resourcePriorityQueue.poll().getResource());
+    }
+
+    boolean[] results;
+    int parallelism = getParallelism(cache, orderedResources.size());
+    if (parallelism > 1) {
+      results = computeInParallel(event, cache, currentStateOutput, orderedResources, output,
+          parallelism);
+    } else {
+      results = new boolean[orderedResources.size()];
+      for (int i = 0; i < orderedResources.size(); i++) {
+        results[i] = computeResourceBestPossibleState(event, cache, currentStateOutput,
+            orderedResources.get(i), output);
+      }
     }
 
+    // Report failures in priority order regardless of the order the computations finished.
     final List<String> failureResources = new ArrayList<>();
-    Iterator<ResourcePriority> itr = resourcePriorityQueue.iterator();
-    while (itr.hasNext()) {
-      Resource resource = itr.next().getResource();
-      if (!computeResourceBestPossibleState(event, cache, currentStateOutput, resource, output)) {
-        failureResources.add(resource.getResourceName());
-        LogUtil.logWarn(logger, _eventId, "Failed to calculate best possible states for " + resource.getResourceName());
+    for (int i = 0; i < orderedResources.size(); i++) {
+      if (!results[i]) {
+        String resourceName = orderedResources.get(i).getResourceName();
+        failureResources.add(resourceName);
+        LogUtil.logWarn(logger, _eventId,
+            "Failed to calculate best possible states for " + resourceName);
       }
     }
 
     // Check and report if resource rebalance has failure
     if (!cache.isTaskCache()) {
+      HelixManager helixManager = event.getAttribute(AttributeName.helixmanager.name());
       ClusterStatusMonitor clusterStatusMonitor =
           event.getAttribute(AttributeName.clusterStatusMonitor.name());
       updateRebalanceStatus(!failureResources.isEmpty(), helixManager, cache, clusterStatusMonitor,
@@ -135,6 +155,62 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     return output;
   }
 
+  /**
+   * Task rebalancers update the shared task data cache, so the task pipeline is always computed
+   * serially. For the default pipeline, the parallelism is bounded by the cluster config and the
+   * number of resources.
+   */
+  private int getParallelism(ClusterDataCache cache, int resourceCount) {
+    if (cache.isTaskCache() || cache.getRebalanceThreadPool() == null
+        || cache.getClusterConfig() == null) {
+      return 1;
+    }
+    return Math.min(cache.getClusterConfig().getBestPossibleCalcParallelism(), resourceCount);
+  }
+
+  /**
+   * Compute the best possible states of the resources on the rebalance thread pool. At most
+   * parallelism resources are computed at the same time, and the resources are picked up in
+   * priority order.
+   * @return the computation result of each resource, indexed the same as the resources list
+   */
+  private boolean[] computeInParallel(final ClusterEvent event, final ClusterDataCache cache,
+      final CurrentStateOutput currentStateOutput, final List<Resource> resources,
+      final BestPossibleStateOutput output, int parallelism) {
+    final boolean[] results = new boolean[resources.size()];
+    final AtomicInteger nextResource = new AtomicInteger(0);
+    List<Callable<Object>> workers = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      workers.add(new Callable<Object>() {
+        @Override
+        public Object call() {
+          int index;
+          while ((index = nextResource.getAndIncrement()) < resources.size()) {
+            results[index] = computeResourceBestPossibleState(event, cache, currentStateOutput,
+                resources.get(index), output);
+          }
+          return null;
+        }
+      });
+    }
+
+    try {
+      // invokeAll waits for all the workers, which also publishes their writes to this thread.
+      for (Future<Object> future : cache.getRebalanceThreadPool().invokeAll(workers)) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          LogUtil.logError(logger, _eventId, "Failed to compute best possible states.", e);
+        }
+      }
+    } catch (InterruptedException e) {
+      LogUtil.logWarn(logger, _eventId,
+          "Interrupted while computing best possible states, unfinished resources are failed.");
+      Thread.currentThread().interrupt();
+    }
+    return results;
+  }
+
   private void updateRebalanceStatus(final boolean hasFailure, final HelixManager helixManager,
       final ClusterDataCache cache, final ClusterStatusMonitor clusterStatusMonitor,
       final String errorMessage) {
@@ -366,16 +442,17 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
       return _resource;
     }
 
-    public ResourcePriority(Resource resource, IdealState idealState, TaskDriver taskDriver) {
+    public ResourcePriority(Resource resource, IdealState idealState, ClusterDataCache cache) {
       _resource = resource;
 
-      if (taskDriver != null && idealState != null
+      if (cache != null && idealState != null
           && idealState.getRebalancerClassName() != null
           && idealState.getRebalancerClassName().equals(JobRebalancer.class.getName())) {
-        // Update priority for job resources, note that older jobs will be processed earlier
-        JobContext jobContext = taskDriver.getJobContext(resource.getResourceName());
-        if (jobContext != null && jobContext.getStartTime() != WorkflowContext.UNSTARTED) {
-          _priority = jobContext.getStartTime();
+        // Update priority for job resources, note that older jobs will be processed earlier.
+        // The start time comes from the cached context, so no ZK read is needed here.
+        Long startTime = cache.getJobStartTime(resource.getResourceName());
+        if (startTime != null && startTime != WorkflowContext.UNSTARTED) {
+          _priority = startTime;
         }
       }
     }
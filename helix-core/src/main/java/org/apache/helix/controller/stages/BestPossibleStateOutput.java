@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.helix.controller.common.PartitionStateMap;
 import org.apache.helix.controller.common.ResourcesStateMap;
@@ -31,10 +32,16 @@ import org.apache.helix.model.Partition;
 
 /**
  * Output for BestPossibleStateCalStage.
+ * Resources may be written concurrently, as long as each resource is written by a single thread.
  */
 public class BestPossibleStateOutput extends ResourcesStateMap {
   /* resource -> partition -> preference list */
-  private Map<String, Map<String, List<String>>> _preferenceLists;
+  private volatile Map<String, Map<String, List<String>>> _preferenceLists;
+
+  public BestPossibleStateOutput() {
+    _resourceStateMap = new ConcurrentHashMap<>();
+  }
+
   /**
    * Deprecated, use getResourceStatesMap instead.
    *
@@ -89,20 +96,31 @@ public class BestPossibleStateOutput extends ResourcesStateMap {
   }
 
   public void setPreferenceList(String resource, String partition, List<String> list) {
-    if (_preferenceLists == null) {
-      _preferenceLists = new HashMap<>();
-    }
-    if (!_preferenceLists.containsKey(resource)) {
-      _preferenceLists.put(resource, new HashMap<String, List<String>>());
+    Map<String, Map<String, List<String>>> preferenceLists = getOrCreatePreferenceLists();
+    if (!preferenceLists.containsKey(resource)) {
+      preferenceLists.put(resource, new HashMap<String, List<String>>());
     }
-    _preferenceLists.get(resource).put(partition, list);
+    preferenceLists.get(resource).put(partition, list);
   }
 
   public void setPreferenceLists(String resource,
       Map<String, List<String>> resourcePreferenceLists) {
+    if (resourcePreferenceLists == null) {
+      // ConcurrentHashMap does not accept null values, a missing entry reads the same
+      getOrCreatePreferenceLists().remove(resource);
+      return;
+    }
+    getOrCreatePreferenceLists().put(resource, resourcePreferenceLists);
+  }
+
+  private Map<String, Map<String, List<String>>> getOrCreatePreferenceLists() {
     if (_preferenceLists == null) {
-      _preferenceLists = new HashMap<>();
+      synchronized (this) {
+        if (_preferenceLists == null) {
+          _preferenceLists = new ConcurrentHashMap<>();
+        }
+      }
     }
-    _preferenceLists.put(resource, resourcePreferenceLists);
+    return _preferenceLists;
   }
 }
@@ -29,12 +29,15 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.common.caches.AbstractDataCache;
 import org.apache.helix.common.caches.CurrentStateCache;
 import org.apache.helix.common.caches.IdealStateCache;
 import org.apache.helix.common.caches.InstanceMessagesCache;
+import org.apache.helix.common.caches.PropertyCache;
 import org.apache.helix.common.caches.TaskDataCache;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.model.ClusterConfig;
@@ -54,6 +57,7 @@ import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.task.AssignableInstanceManager;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.JobContext;
+import org.apache.helix.task.ReadyJobIndex;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.TaskPartitionState;
 import org.apache.helix.task.WorkflowConfig;
@@ -72,40 +76,69 @@ public class ClusterDataCache {
 
   private ClusterConfig _clusterConfig;
   private Map<String, LiveInstance> _liveInstanceMap;
-  private Map<String, LiveInstance> _liveInstanceCacheMap;
   private Map<String, StateModelDefinition> _stateModelDefMap;
   private Map<String, InstanceConfig> _instanceConfigMap;
-  private Map<String, InstanceConfig> _instanceConfigCacheMap;
   private Map<String, Long> _instanceOfflineTimeMap;
   private Map<String, ResourceConfig> _resourceConfigMap;
-  private Map<String, ResourceConfig> _resourceConfigCacheMap;
   private Map<String, ClusterConstraints> _constraintMap;
   private Map<String, Map<String, String>> _idealStateRuleMap;
   private Map<String, Map<String, Long>> _missingTopStateMap = new HashMap<>();
   private Map<String, Map<String, String>> _lastTopStateLocationMap = new HashMap<>();
   private Map<String, ExternalView> _targetExternalViewMap = new HashMap<>();
   private Map<String, ExternalView> _externalViewMap = new HashMap<>();
+  // resourceName -> the CurrentStates the cached external view is computed from
+  private Map<String, List<CurrentState>> _externalViewSourceMap = new HashMap<>();
   private Map<String, Map<String, Set<String>>> _disabledInstanceForPartitionMap = new HashMap<>();
   private Set<String> _disabledInstanceSet = new HashSet<>();
+  // The snapshots the disabled instances were computed from
+  private Map<String, InstanceConfig> _disabledInstancesInstanceConfigMap;
+  private ClusterConfig _disabledInstancesClusterConfig;
   private String _eventId = "NO_ID";
 
   private IdealStateCache _idealStateCache;
   private CurrentStateCache _currentStateCache;
   private TaskDataCache _taskDataCache;
   private InstanceMessagesCache _instanceMessagesCache;
+  private PropertyCache<LiveInstance> _liveInstanceCache;
+  private PropertyCache<InstanceConfig> _instanceConfigCache;
+  private PropertyCache<ResourceConfig> _resourceConfigCache;
+  private PropertyCache<StateModelDefinition> _stateModelDefinitionCache;
+  private PropertyCache<ClusterConstraints> _clusterConstraintsCache;
+
+  // ChangeType -> number of properties fetched from/skipped reading ZK in the last refresh
+  private Map<ChangeType, Integer> _lastRefreshFetchedCounts = new ConcurrentHashMap<>();
+  private Map<ChangeType, Integer> _lastRefreshSkippedCounts = new ConcurrentHashMap<>();
 
   // maintain a cache of bestPossible assignment across pipeline runs
   // TODO: this is only for customRebalancer, remove it and merge it with _idealMappingCache.
-  private Map<String, ResourceAssignment> _resourceAssignmentCache = new HashMap<>();
+  // Concurrent since rebalancers may run in parallel, see BestPossibleStateCalcStage.
+  // Each entry is only reused while the rebalance inputs it was computed from are unchanged, so
+  // changes in the cluster do not need to drop the entries of other resources.
+  private Map<String, RebalanceMemo<ResourceAssignment>> _resourceAssignmentCache =
+      new ConcurrentHashMap<>();
 
   // maintain a cache of idealmapping (preference list) for full-auto resource across pipeline runs
-  private Map<String, ZNRecord> _idealMappingCache = new HashMap<>();
+  private Map<String, RebalanceMemo<ZNRecord>> _idealMappingCache = new ConcurrentHashMap<>();
+
+  // instance group tag -> configs of the instances a resource with the tag can be placed on, for
+  // the snapshot of the instance configs below
+  private final Map<String, Map<String, InstanceConfig>> _taggedInstanceConfigs = new HashMap<>();
+  private Map<String, InstanceConfig> _taggedInstanceConfigsSnapshot;
 
   private Map<ChangeType, Boolean> _propertyDataChangedMap;
 
   private Map<String, Integer> _participantActiveTaskCount = new HashMap<>();
 
   private ExecutorService _asyncTasksThreadPool;
+  private ExecutorService _rebalanceThreadPool;
+
+  // Incremented by every refresh. Async stages run while the pipeline handles the next events, so
+  // they compare it with the version of the event they were submitted for.
+  private volatile long _snapshotVersion = 0;
+  // the total time the pipeline thread spent handling events, and the start of the current one
+  private final Object _pipelineActivityLock = new Object();
+  private long _pipelineBusyTime = 0;
+  private long _pipelineStartTime = -1;
 
   boolean _updateInstanceOfflineTime = true;
   boolean _isTaskCache;
@@ -135,6 +168,91 @@ public class ClusterDataCache {
     _currentStateCache = new CurrentStateCache(_clusterName);
     _taskDataCache = new TaskDataCache(_clusterName);
     _instanceMessagesCache = new InstanceMessagesCache(_clusterName);
+    _liveInstanceCache = new PropertyCache<>("LiveInstance",
+        new PropertyCache.PropertyCacheKeyFuncs<LiveInstance>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return accessor.keyBuilder().liveInstances();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return accessor.keyBuilder().liveInstance(objName);
+          }
+
+          @Override
+          public String getObjName(LiveInstance obj) {
+            return obj.getInstanceName();
+          }
+        });
+    _instanceConfigCache = new PropertyCache<>("InstanceConfig",
+        new PropertyCache.PropertyCacheKeyFuncs<InstanceConfig>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return accessor.keyBuilder().instanceConfigs();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return accessor.keyBuilder().instanceConfig(objName);
+          }
+
+          @Override
+          public String getObjName(InstanceConfig obj) {
+            return obj.getInstanceName();
+          }
+        });
+    _resourceConfigCache = new PropertyCache<>("ResourceConfig",
+        new PropertyCache.PropertyCacheKeyFuncs<ResourceConfig>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return accessor.keyBuilder().resourceConfigs();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return accessor.keyBuilder().resourceConfig(objName);
+          }
+
+          @Override
+          public String getObjName(ResourceConfig obj) {
+            return obj.getResourceName();
+          }
+        });
+    _stateModelDefinitionCache = new PropertyCache<>("StateModelDefinition",
+        new PropertyCache.PropertyCacheKeyFuncs<StateModelDefinition>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return accessor.keyBuilder().stateModelDefs();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return accessor.keyBuilder().stateModelDef(objName);
+          }
+
+          @Override
+          public String getObjName(StateModelDefinition obj) {
+            return obj.getId();
+          }
+        });
+    _clusterConstraintsCache = new PropertyCache<>("ClusterConstraints",
+        new PropertyCache.PropertyCacheKeyFuncs<ClusterConstraints>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return accessor.keyBuilder().constraints();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return accessor.keyBuilder().constraint(objName);
+          }
+
+          @Override
+          public String getObjName(ClusterConstraints obj) {
+            return obj.getId();
+          }
+        });
   }
 
   /**
@@ -145,12 +263,18 @@ public class ClusterDataCache {
    */
   public synchronized boolean refresh(HelixDataAccessor accessor) {
     long startTime = System.currentTimeMillis();
+    _snapshotVersion++;
     Builder keyBuilder = accessor.keyBuilder();
+    _lastRefreshFetchedCounts.clear();
+    _lastRefreshSkippedCounts.clear();
 
     if (_propertyDataChangedMap.get(ChangeType.IDEAL_STATE)) {
       _propertyDataChangedMap.put(ChangeType.IDEAL_STATE, false);
-      clearCachedResourceAssignments();
       _idealStateCache.refresh(accessor);
+      recordRefreshCounts(ChangeType.IDEAL_STATE, _idealStateCache);
+      // Drop the cached mappings of the resources which have been dropped.
+      _resourceAssignmentCache.keySet().retainAll(_idealStateCache.getIdealStateMap().keySet());
+      _idealMappingCache.keySet().retainAll(_idealStateCache.getIdealStateMap().keySet());
       LogUtil.logInfo(LOG, _eventId,
           "Refresh IdealStates for cluster " + _clusterName + ", took "
               + (System.currentTimeMillis() - startTime) + " ms for "
@@ -160,8 +284,8 @@ public class ClusterDataCache {
     if (_propertyDataChangedMap.get(ChangeType.LIVE_INSTANCE)) {
       startTime = System.currentTimeMillis();
       _propertyDataChangedMap.put(ChangeType.LIVE_INSTANCE, false);
-      clearCachedResourceAssignments();
-      _liveInstanceCacheMap = accessor.getChildValuesMap(keyBuilder.liveInstances(), true);
+      _liveInstanceCache.refresh(accessor);
+      recordRefreshCounts(ChangeType.LIVE_INSTANCE, _liveInstanceCache);
       _updateInstanceOfflineTime = true;
       LogUtil.logInfo(LOG, _eventId,
           "Refresh LiveInstances for cluster " + _clusterName + ", took "
@@ -172,18 +296,19 @@ public class ClusterDataCache {
     if (_propertyDataChangedMap.get(ChangeType.INSTANCE_CONFIG)) {
       _existsInstanceChange = true;
       _propertyDataChangedMap.put(ChangeType.INSTANCE_CONFIG, false);
-      clearCachedResourceAssignments();
-      _instanceConfigCacheMap = accessor.getChildValuesMap(keyBuilder.instanceConfigs(), true);
-      LogUtil.logInfo(LOG, _eventId, "Reload InstanceConfig: " + _instanceConfigCacheMap.keySet()
+      _instanceConfigCache.refresh(accessor);
+      recordRefreshCounts(ChangeType.INSTANCE_CONFIG, _instanceConfigCache);
+      LogUtil.logInfo(LOG, _eventId,
+          "Reload InstanceConfig: " + _instanceConfigCache.getPropertyMap().keySet()
           + " for " + (_isTaskCache ? "TASK" : "DEFAULT") + "pipeline");
     }
 
     if (_propertyDataChangedMap.get(ChangeType.RESOURCE_CONFIG)) {
       _propertyDataChangedMap.put(ChangeType.RESOURCE_CONFIG, false);
-      clearCachedResourceAssignments();
-      _resourceConfigCacheMap =
-          accessor.getChildValuesMap(accessor.keyBuilder().resourceConfigs(), true);
-      LogUtil.logInfo(LOG, _eventId, "Reload ResourceConfigs: " + _resourceConfigCacheMap.keySet()
+      _resourceConfigCache.refresh(accessor);
+      recordRefreshCounts(ChangeType.RESOURCE_CONFIG, _resourceConfigCache);
+      LogUtil.logInfo(LOG, _eventId,
+          "Reload ResourceConfigs: " + _resourceConfigCache.getPropertyMap().keySet()
           + " for " + (_isTaskCache ? "TASK" : "DEFAULT") + "pipeline");
     }
 
@@ -196,25 +321,43 @@ public class ClusterDataCache {
 
     // This is for AssignableInstances. Whenever there is a quota config change in ClusterConfig, we
     // must trigger an update to AssignableInstanceManager
-    if (_propertyDataChangedMap.get(ChangeType.CLUSTER_CONFIG)) {
+    if (_propertyDataChangedMap.get(ChangeType.CLUSTER_CONFIG) || isClusterConfigStale(accessor)) {
       _existsClusterConfigChange = true;
       _propertyDataChangedMap.put(ChangeType.CLUSTER_CONFIG, false);
+      _clusterConfig = accessor.getProperty(keyBuilder.clusterConfig());
+      if (_clusterConfig != null) {
+        _idealStateRuleMap = _clusterConfig.getIdealStateRules();
+      } else {
+        _idealStateRuleMap = new HashMap<>();
+        LogUtil.logWarn(LOG, _eventId,
+            "Cluster config is null for " + (_isTaskCache ? "TASK" : "DEFAULT") + "pipeline");
+      }
+    }
+
+    // The maintenance signal is a child of the CONTROLLER path, so its creation and deletion are
+    // notified to the controller as a CONTROLLER change.
+    if (_propertyDataChangedMap.get(ChangeType.CONTROLLER)) {
+      _propertyDataChangedMap.put(ChangeType.CONTROLLER, false);
+      MaintenanceSignal maintenanceSignal = accessor.getProperty(keyBuilder.maintenance());
+      _isMaintenanceModeEnabled = maintenanceSignal != null;
     }
 
-    _liveInstanceMap = new HashMap<>(_liveInstanceCacheMap);
-    _liveInstanceMap = new HashMap<>(_liveInstanceCacheMap);
-    _instanceConfigMap = new ConcurrentHashMap<>(_instanceConfigCacheMap);
-    _resourceConfigMap = new HashMap<>(_resourceConfigCacheMap);
+    // The property caches hand out immutable snapshots that are only replaced when their content
+    // changes, so they can be shared with the stages without copying.
+    _liveInstanceMap = _liveInstanceCache.getPropertyMap();
+    _instanceConfigMap = _instanceConfigCache.getPropertyMap();
+    _resourceConfigMap = _resourceConfigCache.getPropertyMap();
 
     if (_updateInstanceOfflineTime) {
       updateOfflineInstanceHistory(accessor);
     }
 
-    Map<String, StateModelDefinition> stateDefMap =
-        accessor.getChildValuesMap(keyBuilder.stateModelDefs(), true);
-    _stateModelDefMap = new ConcurrentHashMap<>(stateDefMap);
-    _constraintMap = accessor.getChildValuesMap(keyBuilder.constraints(), true);
-    _clusterConfig = accessor.getProperty(keyBuilder.clusterConfig());
+    // State model definitions and constraints are not watched by the controller. Only the ones
+    // whose version on ZK has changed are read.
+    _stateModelDefinitionCache.refresh(accessor);
+    _stateModelDefMap = _stateModelDefinitionCache.getPropertyMap();
+    _clusterConstraintsCache.refresh(accessor);
+    _constraintMap = _clusterConstraintsCache.getPropertyMap();
 
     if (_isTaskCache) {
       // Refresh TaskCache
@@ -238,23 +381,13 @@ public class ClusterDataCache {
 
     _instanceMessagesCache.refresh(accessor, _liveInstanceMap);
     _currentStateCache.refresh(accessor, _liveInstanceMap);
+    recordRefreshCounts(ChangeType.CURRENT_STATE, _currentStateCache);
 
     // current state must be refreshed before refreshing relay messages
     // because we need to use current state to validate all relay messages.
     _instanceMessagesCache.updateRelayMessages(_liveInstanceMap,
         _currentStateCache.getCurrentStatesMap());
 
-    if (_clusterConfig != null) {
-      _idealStateRuleMap = _clusterConfig.getIdealStateRules();
-    } else {
-      _idealStateRuleMap = new HashMap<>();
-      LogUtil.logWarn(LOG, _eventId,
-          "Cluster config is null for " + (_isTaskCache ? "TASK" : "DEFAULT") + "pipeline");
-    }
-
-    MaintenanceSignal maintenanceSignal = accessor.getProperty(keyBuilder.maintenance());
-    _isMaintenanceModeEnabled = maintenanceSignal != null;
-
     updateDisabledInstances();
 
     long endTime = System.currentTimeMillis();
@@ -287,7 +420,37 @@ public class ClusterDataCache {
     return true;
   }
 
+  private void recordRefreshCounts(ChangeType changeType, AbstractDataCache cache) {
+    _lastRefreshFetchedCounts.put(changeType, cache.getLastFetchedCount());
+    _lastRefreshSkippedCounts.put(changeType, cache.getLastSkippedCount());
+  }
+
+  /**
+   * Return the number of properties read from ZK in the last refresh, per refreshed data type.
+   * @return
+   */
+  public Map<ChangeType, Integer> getLastRefreshFetchedCounts() {
+    return new HashMap<>(_lastRefreshFetchedCounts);
+  }
+
+  /**
+   * Return the number of properties whose read from ZK was skipped because the cached version
+   * is up to date in the last refresh, per refreshed data type.
+   * @return
+   */
+  public Map<ChangeType, Integer> getLastRefreshSkippedCounts() {
+    return new HashMap<>(_lastRefreshSkippedCounts);
+  }
+
   private void updateDisabledInstances() {
+    if (_instanceConfigMap == _disabledInstancesInstanceConfigMap
+        && _clusterConfig == _disabledInstancesClusterConfig) {
+      // Neither the instance configs nor the cluster config have changed since the last update.
+      return;
+    }
+    _disabledInstancesInstanceConfigMap = _instanceConfigMap;
+    _disabledInstancesClusterConfig = _clusterConfig;
+
     // Move the calculating disabled instances to refresh
     _disabledInstanceForPartitionMap.clear();
     _disabledInstanceSet.clear();
@@ -314,6 +477,19 @@ public class ClusterDataCache {
     }
   }
 
+  /**
+   * The cluster config is watched by the controller, but a change can be missed while the watch is
+   * being re-registered. Compare the version of the cached cluster config with the one on ZK, which
+   * only reads the Stat of the node.
+   */
+  private boolean isClusterConfigStale(HelixDataAccessor accessor) {
+    HelixProperty.Stat stat = accessor.getPropertyStat(accessor.keyBuilder().clusterConfig());
+    if (_clusterConfig == null) {
+      return stat != null;
+    }
+    return stat == null || !stat.equals(_clusterConfig.getStat());
+  }
+
   private void updateOfflineInstanceHistory(HelixDataAccessor accessor) {
     List<String> offlineNodes = new ArrayList<>(_instanceConfigMap.keySet());
     offlineNodes.removeAll(_liveInstanceMap.keySet());
@@ -448,7 +624,7 @@ public class ClusterDataCache {
     for (LiveInstance liveInstance : liveInstances) {
       liveInstanceMap.put(liveInstance.getId(), liveInstance);
     }
-    _liveInstanceCacheMap = liveInstanceMap;
+    _liveInstanceCache.setPropertyMap(liveInstanceMap);
     _updateInstanceOfflineTime = true;
 
     // TODO: Move this when listener for LiveInstance is being refactored
@@ -544,6 +720,19 @@ public class ClusterDataCache {
    * Notify the cache that some part of the cluster data has been changed.
    */
   public void notifyDataChange(ChangeType changeType, String pathChanged) {
+    switch (changeType) {
+    case LIVE_INSTANCE:
+      _liveInstanceCache.notifyDataChange(pathChanged);
+      break;
+    case INSTANCE_CONFIG:
+      _instanceConfigCache.notifyDataChange(pathChanged);
+      break;
+    case RESOURCE_CONFIG:
+      _resourceConfigCache.notifyDataChange(pathChanged);
+      break;
+    default:
+      break;
+    }
     notifyDataChange(changeType);
   }
 
@@ -594,7 +783,7 @@ public class ClusterDataCache {
     for (InstanceConfig instanceConfig : instanceConfigs) {
       instanceConfigMap.put(instanceConfig.getId(), instanceConfig);
     }
-    _instanceConfigCacheMap = instanceConfigMap;
+    _instanceConfigCache.setPropertyMap(instanceConfigMap);
   }
 
   /**
@@ -725,6 +914,15 @@ public class ClusterDataCache {
     return _taskDataCache.getJobContext(resourceName);
   }
 
+  /**
+   * Return the start time of the job from the cached JobContext
+   * @param jobName
+   * @return the start time, or null if the job has no context
+   */
+  public Long getJobStartTime(String jobName) {
+    return _taskDataCache.getJobStartTime(jobName);
+  }
+
   /**
    * Return the WorkflowContext by resource name
    * @param resourceName
@@ -750,6 +948,33 @@ public class ClusterDataCache {
     _taskDataCache.updateWorkflowContext(resourceName, workflowContext, accessor);
   }
 
+  /**
+   * Return the index of the jobs ready to be scheduled of the workflow
+   * @param workflow
+   * @return the index, or null if there is none
+   */
+  public ReadyJobIndex getReadyJobIndex(String workflow) {
+    return _taskDataCache.getReadyJobIndex(workflow);
+  }
+
+  /**
+   * Keep the index of the jobs ready to be scheduled of the workflow across refreshes
+   * @param workflow
+   * @param readyJobIndex
+   */
+  public void setReadyJobIndex(String workflow, ReadyJobIndex readyJobIndex) {
+    _taskDataCache.setReadyJobIndex(workflow, readyJobIndex);
+  }
+
+  /**
+   * Persist the workflow and job contexts updated since the last call in one batch
+   * @param accessor
+   * @return the number of contexts written to ZK
+   */
+  public int persistTaskContexts(HelixDataAccessor accessor) {
+    return _taskDataCache.persistDataChanges(accessor);
+  }
+
   /**
    * Return map of WorkflowContexts or JobContexts
    * @return
@@ -758,6 +983,23 @@ public class ClusterDataCache {
     return _taskDataCache.getContexts();
   }
 
+  /**
+   * Return the number of workflow and job contexts read from ZK, the number of them skipped since
+   * the cached ones are up to date, and the bytes read in the last refresh.
+   * @return
+   */
+  public int getLastContextFetchedCount() {
+    return _taskDataCache.getLastFetchedCount();
+  }
+
+  public int getLastContextSkippedCount() {
+    return _taskDataCache.getLastSkippedCount();
+  }
+
+  public long getLastContextFetchedBytes() {
+    return _taskDataCache.getLastFetchedBytes();
+  }
+
   /**
    * Returns AssignableInstanceManager.
    * @return
@@ -800,9 +1042,28 @@ public class ClusterDataCache {
   public void removeExternalViews(List<String> resourceNames) {
     for (String externalView : resourceNames) {
       _externalViewMap.remove(externalView);
+      _externalViewSourceMap.remove(externalView);
     }
   }
 
+  /**
+   * Get the CurrentStates the cached external view of the resource is computed from
+   * @param resourceName
+   * @return the list of CurrentStates, or null if unknown
+   */
+  public List<CurrentState> getExternalViewSources(String resourceName) {
+    return _externalViewSourceMap.get(resourceName);
+  }
+
+  /**
+   * Update the CurrentStates the cached external view of the resource is computed from
+   * @param resourceName
+   * @param currentStates
+   */
+  public void updateExternalViewSources(String resourceName, List<CurrentState> currentStates) {
+    _externalViewSourceMap.put(resourceName, currentStates);
+  }
+
   /**
    * Indicate that a full read should be done on the next refresh
    */
@@ -823,10 +1084,28 @@ public class ClusterDataCache {
   /**
    * Get cached resourceAssignment (bestPossible mapping) for a resource
    * @param resource
-   * @return
+   * @return the cached mapping, or null if the rebalance inputs have changed since it was cached
    */
   public ResourceAssignment getCachedResourceAssignment(String resource) {
-    return _resourceAssignmentCache.get(resource);
+    return getCachedResourceAssignment(resource, null);
+  }
+
+  /**
+   * Get cached resourceAssignment (bestPossible mapping) for a resource, which was computed from
+   * the current states of the resource.
+   * @param resource
+   * @param currentStateOutput
+   * @return the cached mapping, or null if the rebalance inputs or the current states have changed
+   *         since it was cached
+   */
+  public ResourceAssignment getCachedResourceAssignment(String resource,
+      CurrentStateOutput currentStateOutput) {
+    RebalanceMemo<ResourceAssignment> memo = _resourceAssignmentCache.get(resource);
+    if (memo == null || !memo.matches(getRebalanceInputs(resource, false),
+        getCurrentStateSources(resource, currentStateOutput))) {
+      return null;
+    }
+    return memo._value;
   }
 
   /**
@@ -834,7 +1113,14 @@ public class ClusterDataCache {
    * @return
    */
   public Map<String, ResourceAssignment> getCachedResourceAssignments() {
-    return Collections.unmodifiableMap(_resourceAssignmentCache);
+    Map<String, ResourceAssignment> resourceAssignments = new HashMap<>();
+    for (Map.Entry<String, RebalanceMemo<ResourceAssignment>> entry : _resourceAssignmentCache
+        .entrySet()) {
+      if (entry.getValue().matches(getRebalanceInputs(entry.getKey(), false))) {
+        resourceAssignments.put(entry.getKey(), entry.getValue()._value);
+      }
+    }
+    return Collections.unmodifiableMap(resourceAssignments);
   }
 
   /**
@@ -843,16 +1129,34 @@ public class ClusterDataCache {
    * @return
    */
   public void setCachedResourceAssignment(String resource, ResourceAssignment resourceAssignment) {
-    _resourceAssignmentCache.put(resource, resourceAssignment);
+    setCachedResourceAssignment(resource, resourceAssignment, null);
+  }
+
+  /**
+   * Cache resourceAssignment (bestPossible mapping) for a resource, which was computed from the
+   * current states of the resource.
+   * @param resource
+   * @param resourceAssignment
+   * @param currentStateOutput
+   */
+  public void setCachedResourceAssignment(String resource, ResourceAssignment resourceAssignment,
+      CurrentStateOutput currentStateOutput) {
+    _resourceAssignmentCache.put(resource,
+        new RebalanceMemo<>(resourceAssignment, getRebalanceInputs(resource, true),
+            getCurrentStateSources(resource, currentStateOutput), Long.MAX_VALUE));
   }
 
   /**
    * Get cached resourceAssignment (ideal mapping) for a resource
    * @param resource
-   * @return
+   * @return the cached mapping, or null if the rebalance inputs have changed since it was cached
    */
   public ZNRecord getCachedIdealMapping(String resource) {
-    return _idealMappingCache.get(resource);
+    RebalanceMemo<ZNRecord> memo = _idealMappingCache.get(resource);
+    if (memo == null || !memo.matches(getRebalanceInputs(resource, false), null)) {
+      return null;
+    }
+    return memo._value;
   }
 
   /**
@@ -860,7 +1164,13 @@ public class ClusterDataCache {
    * @return
    */
   public Map<String, ZNRecord> getCachedIdealMapping() {
-    return Collections.unmodifiableMap(_idealMappingCache);
+    Map<String, ZNRecord> idealMappings = new HashMap<>();
+    for (Map.Entry<String, RebalanceMemo<ZNRecord>> entry : _idealMappingCache.entrySet()) {
+      if (entry.getValue().matches(getRebalanceInputs(entry.getKey(), false), null)) {
+        idealMappings.put(entry.getKey(), entry.getValue()._value);
+      }
+    }
+    return Collections.unmodifiableMap(idealMappings);
   }
 
   /**
@@ -869,7 +1179,19 @@ public class ClusterDataCache {
    * @return
    */
   public void setCachedIdealMapping(String resource, ZNRecord mapping) {
-    _idealMappingCache.put(resource, mapping);
+    setCachedIdealMapping(resource, mapping, Long.MAX_VALUE);
+  }
+
+  /**
+   * Cache resourceAssignment (ideal mapping) for a resource, which is only valid until the given
+   * time, e.g. since it keeps replicas on instances that are inactive for less than the delay.
+   * @param resource
+   * @param mapping
+   * @param expiryTime
+   */
+  public void setCachedIdealMapping(String resource, ZNRecord mapping, long expiryTime) {
+    _idealMappingCache.put(resource,
+        new RebalanceMemo<>(mapping, getRebalanceInputs(resource, true), null, expiryTime));
   }
 
   public void clearCachedResourceAssignments() {
@@ -877,6 +1199,234 @@ public class ClusterDataCache {
     _idealMappingCache.clear();
   }
 
+  /**
+   * The cluster data the rebalancers read to compute the mappings of a resource: its ideal state,
+   * resource config and state model definition, the cluster config, the live instances and
+   * instance configs it can be placed on, and the disabled instances and partitions.
+   * @param resource
+   * @param isSnapshot whether to copy the disabled instances, which are updated in place
+   */
+  private RebalanceInputs getRebalanceInputs(String resource, boolean isSnapshot) {
+    IdealState idealState = getIdealState(resource);
+    if (idealState == null) {
+      return new RebalanceInputs(null, null, null, null, null, null,
+          Collections.<String>emptySet(), null);
+    }
+    return new RebalanceInputs(idealState, getResourceConfig(resource),
+        getStateModelDef(idealState.getStateModelDefRef()), _clusterConfig, _liveInstanceMap,
+        getTaggedInstanceConfigs(idealState.getInstanceGroupTag()),
+        isSnapshot ? new HashSet<>(_disabledInstanceSet) : _disabledInstanceSet,
+        _disabledInstanceForPartitionMap.get(resource));
+  }
+
+  /**
+   * The configs of the instances with the given tag, or of all instances if the tag is null.
+   * Computed once per snapshot of the instance configs.
+   */
+  private synchronized Map<String, InstanceConfig> getTaggedInstanceConfigs(String instanceTag) {
+    if (_instanceConfigMap == null) {
+      return Collections.emptyMap();
+    }
+    if (instanceTag == null) {
+      return _instanceConfigMap;
+    }
+    if (_instanceConfigMap != _taggedInstanceConfigsSnapshot) {
+      _taggedInstanceConfigs.clear();
+      _taggedInstanceConfigsSnapshot = _instanceConfigMap;
+    }
+    Map<String, InstanceConfig> instanceConfigs = _taggedInstanceConfigs.get(instanceTag);
+    if (instanceConfigs == null) {
+      instanceConfigs = new HashMap<>();
+      for (InstanceConfig instanceConfig : _instanceConfigMap.values()) {
+        if (instanceConfig.containsTag(instanceTag)) {
+          instanceConfigs.put(instanceConfig.getInstanceName(), instanceConfig);
+        }
+      }
+      _taggedInstanceConfigs.put(instanceTag, instanceConfigs);
+    }
+    return instanceConfigs;
+  }
+
+  private static List<CurrentState> getCurrentStateSources(String resource,
+      CurrentStateOutput currentStateOutput) {
+    return currentStateOutput == null ? null
+        : currentStateOutput.getCurrentStateSources(resource);
+  }
+
+  /**
+   * Snapshot of the rebalance inputs of a resource, see getRebalanceInputs().
+   * The cached properties are only replaced when they change, so they are compared by identity, or
+   * by their Stat if they are read again from ZK, e.g. on a full refresh. The disabled instances
+   * and partitions are small, and compared by content.
+   */
+  private static class RebalanceInputs {
+    private final IdealState _idealState;
+    private final ResourceConfig _resourceConfig;
+    private final StateModelDefinition _stateModelDef;
+    private final ClusterConfig _clusterConfig;
+    private final Set<String> _disabledInstances;
+    private final Map<String, Set<String>> _disabledPartitions;
+    // Replaced by the ones of the matched inputs, so that the next match is by identity.
+    private volatile Map<String, LiveInstance> _liveInstances;
+    private volatile Map<String, InstanceConfig> _instanceConfigs;
+
+    RebalanceInputs(IdealState idealState, ResourceConfig resourceConfig,
+        StateModelDefinition stateModelDef, ClusterConfig clusterConfig,
+        Map<String, LiveInstance> liveInstances, Map<String, InstanceConfig> instanceConfigs,
+        Set<String> disabledInstances, Map<String, Set<String>> disabledPartitions) {
+      _idealState = idealState;
+      _resourceConfig = resourceConfig;
+      _stateModelDef = stateModelDef;
+      _clusterConfig = clusterConfig;
+      _liveInstances = liveInstances;
+      _instanceConfigs = instanceConfigs;
+      _disabledInstances = disabledInstances;
+      _disabledPartitions = disabledPartitions;
+    }
+
+    boolean matches(RebalanceInputs inputs) {
+      if (!isSameProperty(_idealState, inputs._idealState)
+          || !isSameProperty(_resourceConfig, inputs._resourceConfig)
+          || !isSameProperty(_stateModelDef, inputs._stateModelDef)
+          || !isSameProperty(_clusterConfig, inputs._clusterConfig)
+          || !_disabledInstances.equals(inputs._disabledInstances)
+          || !(_disabledPartitions == null ? inputs._disabledPartitions == null
+          : _disabledPartitions.equals(inputs._disabledPartitions))) {
+        return false;
+      }
+      Map<String, LiveInstance> liveInstances = inputs._liveInstances;
+      if (_liveInstances != liveInstances) {
+        if (!isSameLiveInstances(_liveInstances, liveInstances)) {
+          return false;
+        }
+        _liveInstances = liveInstances;
+      }
+      Map<String, InstanceConfig> instanceConfigs = inputs._instanceConfigs;
+      if (_instanceConfigs != instanceConfigs) {
+        if (!isSameInstanceConfigs(_instanceConfigs, instanceConfigs)) {
+          return false;
+        }
+        _instanceConfigs = instanceConfigs;
+      }
+      return true;
+    }
+
+    /**
+     * Properties read from ZK are the same if their Stat is, e.g. a bucketized ideal state that is
+     * read again on every refresh. Updating an ideal state without changing it, which is how a
+     * rebalance is invoked, see RebalanceScheduler, changes the Stat.
+     */
+    private static boolean isSameProperty(HelixProperty cached, HelixProperty property) {
+      return cached == property || (cached != null && property != null
+          && cached.getRecord().getCreationTime() > 0 && cached.getStat()
+          .equals(property.getStat()));
+    }
+
+    private static boolean isSameLiveInstances(Map<String, LiveInstance> cached,
+        Map<String, LiveInstance> liveInstances) {
+      if (cached == null || liveInstances == null || cached.size() != liveInstances.size()) {
+        return false;
+      }
+      for (Map.Entry<String, LiveInstance> entry : liveInstances.entrySet()) {
+        if (!isSameProperty(cached.get(entry.getKey()), entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Compare the instance configs, leaving out the partitions disabled on the instances, which
+     * are part of the inputs of their own resource only.
+     */
+    private static boolean isSameInstanceConfigs(Map<String, InstanceConfig> cached,
+        Map<String, InstanceConfig> instanceConfigs) {
+      if (cached.size() != instanceConfigs.size()) {
+        return false;
+      }
+      for (Map.Entry<String, InstanceConfig> entry : instanceConfigs.entrySet()) {
+        InstanceConfig cachedConfig = cached.get(entry.getKey());
+        if (!isSameProperty(cachedConfig, entry.getValue()) && (cachedConfig == null
+            || !isSameIgnoringDisabledPartitions(cachedConfig.getRecord(),
+            entry.getValue().getRecord()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isSameIgnoringDisabledPartitions(ZNRecord cached, ZNRecord record) {
+      if (!cached.getSimpleFields().equals(record.getSimpleFields())
+          || !cached.getListFields().equals(record.getListFields())) {
+        return false;
+      }
+      String disabledPartitionKey =
+          InstanceConfig.InstanceConfigProperty.HELIX_DISABLED_PARTITION.name();
+      Map<String, Map<String, String>> cachedMapFields = cached.getMapFields();
+      Map<String, Map<String, String>> mapFields = record.getMapFields();
+      int cachedSize = cachedMapFields.size() - (cachedMapFields.containsKey(disabledPartitionKey)
+          ? 1 : 0);
+      int size = mapFields.size() - (mapFields.containsKey(disabledPartitionKey) ? 1 : 0);
+      if (cachedSize != size) {
+        return false;
+      }
+      for (Map.Entry<String, Map<String, String>> entry : cachedMapFields.entrySet()) {
+        if (!entry.getKey().equals(disabledPartitionKey) && !entry.getValue()
+            .equals(mapFields.get(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A cached rebalance result with the inputs it was computed from, the CurrentStates it was
+   * computed from if it depends on the current states, and the time until which it is valid.
+   */
+  private static class RebalanceMemo<T> {
+    private final T _value;
+    private final RebalanceInputs _inputs;
+    private final List<CurrentState> _currentStateSources;
+    private final long _expiryTime;
+
+    RebalanceMemo(T value, RebalanceInputs inputs, List<CurrentState> currentStateSources,
+        long expiryTime) {
+      _value = value;
+      _inputs = inputs;
+      _currentStateSources =
+          currentStateSources == null ? null : new ArrayList<>(currentStateSources);
+      _expiryTime = expiryTime;
+    }
+
+    boolean isExpired() {
+      return _expiryTime != Long.MAX_VALUE && System.currentTimeMillis() >= _expiryTime;
+    }
+
+    boolean matches(RebalanceInputs inputs) {
+      return !isExpired() && _inputs.matches(inputs);
+    }
+
+    boolean matches(RebalanceInputs inputs, List<CurrentState> currentStateSources) {
+      if (!matches(inputs)) {
+        return false;
+      }
+      if (_currentStateSources == null || currentStateSources == null) {
+        return _currentStateSources == currentStateSources;
+      }
+      if (_currentStateSources.size() != currentStateSources.size()) {
+        return false;
+      }
+      // The cached CurrentStates are only replaced when they change.
+      for (int i = 0; i < _currentStateSources.size(); i++) {
+        if (_currentStateSources.get(i) != currentStateSources.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   /**
    * Set async update thread pool
    * @param asyncTasksThreadPool
@@ -885,6 +1435,65 @@ public class ClusterDataCache {
     _asyncTasksThreadPool = asyncTasksThreadPool;
   }
 
+  /**
+   * Get the version of the cached data, which is incremented by every refresh
+   * @return
+   */
+  public long getSnapshotVersion() {
+    return _snapshotVersion;
+  }
+
+  /**
+   * Mark the pipeline thread as busy handling an event
+   */
+  public void markPipelineStarted() {
+    synchronized (_pipelineActivityLock) {
+      _pipelineStartTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Mark the pipeline thread as done handling an event
+   */
+  public void markPipelineFinished() {
+    synchronized (_pipelineActivityLock) {
+      if (_pipelineStartTime >= 0) {
+        _pipelineBusyTime += System.currentTimeMillis() - _pipelineStartTime;
+        _pipelineStartTime = -1;
+      }
+    }
+  }
+
+  /**
+   * Get the total time the pipeline thread has spent handling events, including the current one.
+   * The difference between two readings is how long the pipeline was busy in between.
+   * @return the busy time in ms
+   */
+  public long getPipelineBusyTime() {
+    synchronized (_pipelineActivityLock) {
+      if (_pipelineStartTime < 0) {
+        return _pipelineBusyTime;
+      }
+      return _pipelineBusyTime + System.currentTimeMillis() - _pipelineStartTime;
+    }
+  }
+
+  /**
+   * Get the thread pool used to compute best possible states of resources in parallel
+   * @return
+   */
+  public ExecutorService getRebalanceThreadPool() {
+    return _rebalanceThreadPool;
+  }
+
+  /**
+   * Set the thread pool used to compute best possible states of resources in parallel
+   * @param rebalanceThreadPool
+   */
+  public void setRebalanceThreadPool(ExecutorService rebalanceThreadPool) {
+    _rebalanceThreadPool = rebalanceThreadPool;
+  }
+
   /**
    * Set the cache is serving for Task pipeline or not
    * @param taskCache
@@ -917,6 +1526,11 @@ public class ClusterDataCache {
   public void setEventId(String eventId) {
     _eventId = eventId;
     _idealStateCache.setEventId(eventId);
+    _liveInstanceCache.setEventId(eventId);
+    _instanceConfigCache.setEventId(eventId);
+    _resourceConfigCache.setEventId(eventId);
+    _stateModelDefinitionCache.setEventId(eventId);
+    _clusterConstraintsCache.setEventId(eventId);
     _currentStateCache.setEventId(eventId);
     _taskDataCache.setEventId(eventId);
   }
@@ -28,10 +28,14 @@ import org.apache.helix.controller.LogUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
@@ -45,6 +49,7 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
   public final long NOT_RECORDED = -1L;
   public final long TRANSITION_FAILED = -2L;
   public final String TASK_STATE_MODEL_NAME = "Task";
+  private static final int MIN_INSTANCES_PER_WORKER = 100;
 
   @Override
   public void process(ClusterEvent event) throws Exception {
@@ -57,10 +62,28 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
           + ". Requires DataCache|RESOURCE");
     }
 
-    Map<String, LiveInstance> liveInstances = cache.getLiveInstances();
-    final CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    List<LiveInstance> liveInstances = new ArrayList<>(cache.getLiveInstances().values());
+    int parallelism = getParallelism(cache, liveInstances.size());
+    final CurrentStateOutput currentStateOutput;
+    if (parallelism > 1) {
+      currentStateOutput = computeInParallel(cache, liveInstances, resourceMap, parallelism);
+    } else {
+      currentStateOutput = new CurrentStateOutput();
+      computeCurrentStates(cache, liveInstances, currentStateOutput, resourceMap);
+    }
+
+    if (!cache.isTaskCache()) {
+      ClusterStatusMonitor clusterStatusMonitor =
+          event.getAttribute(AttributeName.clusterStatusMonitor.name());
+      // TODO Update the status async -- jjwang
+      updateTopStateStatus(cache, clusterStatusMonitor, resourceMap, currentStateOutput);
+    }
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+  }
 
-    for (LiveInstance instance : liveInstances.values()) {
+  private void computeCurrentStates(ClusterDataCache cache, List<LiveInstance> liveInstances,
+      CurrentStateOutput currentStateOutput, Map<String, Resource> resourceMap) {
+    for (LiveInstance instance : liveInstances) {
       String instanceName = instance.getInstanceName();
       String instanceSessionId = instance.getSessionId();
 
@@ -72,14 +95,56 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
       Map<String, CurrentState> currentStateMap = cache.getCurrentState(instanceName, instanceSessionId);
       updateCurrentStates(instance, currentStateMap.values(), currentStateOutput, resourceMap);
     }
+  }
 
-    if (!cache.isTaskCache()) {
-      ClusterStatusMonitor clusterStatusMonitor =
-          event.getAttribute(AttributeName.clusterStatusMonitor.name());
-      // TODO Update the status async -- jjwang
-      updateTopStateStatus(cache, clusterStatusMonitor, resourceMap, currentStateOutput);
+  /**
+   * The stage only reads the cache, so both pipelines can be computed in parallel. Each worker
+   * gets at least MIN_INSTANCES_PER_WORKER instances, since small clusters don't gain from it.
+   */
+  private int getParallelism(ClusterDataCache cache, int instanceCount) {
+    if (cache.getRebalanceThreadPool() == null || cache.getClusterConfig() == null) {
+      return 1;
     }
-    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    return Math.min(cache.getClusterConfig().getCurrentStateCalcParallelism(),
+        (instanceCount + MIN_INSTANCES_PER_WORKER - 1) / MIN_INSTANCES_PER_WORKER);
+  }
+
+  /**
+   * Split the live instances into contiguous ranges, compute the output of each range on the
+   * rebalance thread pool, and merge the outputs in order. Since the instances of a range are
+   * processed in the same order as in the serial computation, the result is identical to it.
+   */
+  private CurrentStateOutput computeInParallel(final ClusterDataCache cache,
+      List<LiveInstance> liveInstances, final Map<String, Resource> resourceMap, int parallelism)
+      throws StageException {
+    List<Callable<CurrentStateOutput>> workers = new ArrayList<>(parallelism);
+    for (int i = 0; i < parallelism; i++) {
+      final List<LiveInstance> instanceRange = liveInstances
+          .subList(liveInstances.size() * i / parallelism,
+              liveInstances.size() * (i + 1) / parallelism);
+      workers.add(new Callable<CurrentStateOutput>() {
+        @Override
+        public CurrentStateOutput call() {
+          CurrentStateOutput output = new CurrentStateOutput();
+          computeCurrentStates(cache, instanceRange, output, resourceMap);
+          return output;
+        }
+      });
+    }
+
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    try {
+      // invokeAll waits for all the workers, which also publishes their outputs to this thread.
+      for (Future<CurrentStateOutput> future : cache.getRebalanceThreadPool().invokeAll(workers)) {
+        currentStateOutput.merge(future.get());
+      }
+    } catch (ExecutionException e) {
+      throw new StageException("Failed to compute current states.", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StageException("Interrupted while computing current states.", e);
+    }
+    return currentStateOutput;
   }
 
   // update all pending messages to CurrentStateOutput.
@@ -143,6 +208,7 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
       if (resource == null) {
         continue;
       }
+      currentStateOutput.addCurrentStateSource(resourceName, currentState);
       if (stateModelDefName != null) {
         currentStateOutput.setResourceStateModelDef(resourceName, stateModelDefName);
       }
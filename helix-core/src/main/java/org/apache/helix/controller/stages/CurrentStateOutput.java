@@ -19,10 +19,18 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import org.apache.helix.HelixException;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
@@ -36,38 +44,34 @@ import com.google.common.collect.Sets;
  * constraints @see HELIX-541
  */
 public class CurrentStateOutput {
-  private final Map<String, Map<Partition, Map<String, String>>> _currentStateMap;
+  // resourceName -> replicas of the resource, holding for each (partition, instance) the current
+  // state, the end time, the requested state and the info of the CURRENTSTATES node.
+  // Note that startTime / endTime in CurrentState marks that of state transition
+  // and therefore endTime is the starting timestamp of the partition being in the
+  // current state.
+  // The info is information returned by state transition methods on the participants. It may be
+  // used by the rebalancer.
+  private final Map<String, ResourceReplicas> _replicasMap;
   private final Map<String, Map<Partition, Map<String, Message>>> _pendingStateMap;
   private final Map<String, Map<Partition, Map<String, Message>>> _cancellationStateMap;
 
-  // resourceName -> (Partition -> (instanceName -> endTime))
-  // Note that startTime / endTime in CurrentState marks that of state transition
-  // and therefore endTime is the starting timestamp of the partition being in the
-  // current state
-  private final Map<String, Map<Partition, Map<String, Long>>> _currentStateEndTimeMap;
-
-  // Contains per-resource maps of partition -> (instance, requested_state). This corresponds to the
-  // REQUESTED_STATE
-  // field in the CURRENTSTATES node.
-  private final Map<String, Map<Partition, Map<String, String>>> _requestedStateMap;
-  // Contains per-resource maps of partition -> (instance, info). This corresponds to the INFO field
-  // in the
-  // CURRENTSTATES node. This is information returned by state transition methods on the
-  // participants. It may be used
-  // by the rebalancer.
-  private final Map<String, Map<Partition, Map<String, String>>> _infoMap;
+  // instance names interned to the ids replicas refer to them by
+  private final Map<String, Integer> _instanceIdMap;
+  private final List<String> _instanceNames;
   private final Map<String, String> _resourceStateModelMap;
   private final Map<String, CurrentState> _curStateMetaMap;
+  // resourceName -> the CurrentStates the states of the resource are computed from
+  private final Map<String, List<CurrentState>> _currentStateSourceMap;
 
   public CurrentStateOutput() {
-    _currentStateMap = new HashMap<>();
+    _replicasMap = new HashMap<>();
     _pendingStateMap = new HashMap<>();
     _cancellationStateMap = new HashMap<>();
-    _currentStateEndTimeMap = new HashMap<>();
+    _instanceIdMap = new HashMap<>();
+    _instanceNames = new ArrayList<>();
     _resourceStateModelMap = new HashMap<>();
     _curStateMetaMap = new HashMap<>();
-    _requestedStateMap = new HashMap<>();
-    _infoMap = new HashMap<>();
+    _currentStateSourceMap = new HashMap<>();
   }
 
   public void setResourceStateModelDef(String resourceName, String stateModelDefName) {
@@ -78,6 +82,32 @@ public class CurrentStateOutput {
     return _resourceStateModelMap.get(resourceName);
   }
 
+  /**
+   * Record a CurrentState the states of the resource are computed from.
+   * @param resourceName
+   * @param currentState
+   */
+  public void addCurrentStateSource(String resourceName, CurrentState currentState) {
+    List<CurrentState> sources = _currentStateSourceMap.get(resourceName);
+    if (sources == null) {
+      sources = new ArrayList<>();
+      _currentStateSourceMap.put(resourceName, sources);
+    }
+    sources.add(currentState);
+  }
+
+  /**
+   * Get the CurrentStates the states of the resource are computed from. The controller caches
+   * unchanged CurrentStates, so the same objects mean the states of the resource are unchanged.
+   * @param resourceName
+   * @return the list of CurrentStates, in the order they were added
+   */
+  public List<CurrentState> getCurrentStateSources(String resourceName) {
+    List<CurrentState> sources = _currentStateSourceMap.get(resourceName);
+    return sources == null ? Collections.<CurrentState>emptyList()
+        : Collections.unmodifiableList(sources);
+  }
+
   public void setBucketSize(String resource, int bucketSize) {
     CurrentState curStateMeta = _curStateMetaMap.get(resource);
     if (curStateMeta == null) {
@@ -99,45 +129,30 @@ public class CurrentStateOutput {
 
   public void setCurrentState(String resourceName, Partition partition, String instanceName,
       String state) {
-    if (!_currentStateMap.containsKey(resourceName)) {
-      _currentStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
-    }
-    if (!_currentStateMap.get(resourceName).containsKey(partition)) {
-      _currentStateMap.get(resourceName).put(partition, new HashMap<String, String>());
-    }
-    _currentStateMap.get(resourceName).get(partition).put(instanceName, state);
+    getOrCreateReplicas(resourceName).setState(partition, instanceName, state);
   }
 
   public void setEndTime(String resourceName, Partition partition,
       String instanceName, Long timestamp) {
-    if (!_currentStateEndTimeMap.containsKey(resourceName)) {
-      _currentStateEndTimeMap.put(resourceName, new HashMap<Partition, Map<String, Long>>());
-    }
-    if (!_currentStateEndTimeMap.get(resourceName).containsKey(partition)) {
-      _currentStateEndTimeMap.get(resourceName).put(partition, new HashMap<String, Long>());
-    }
-    _currentStateEndTimeMap.get(resourceName).get(partition).put(instanceName, timestamp);
+    getOrCreateReplicas(resourceName).setEndTime(partition, instanceName, timestamp);
   }
 
   public void setRequestedState(String resourceName, Partition partition, String instanceName,
       String state) {
-    if (!_requestedStateMap.containsKey(resourceName)) {
-      _requestedStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
-    }
-    if (!_requestedStateMap.get(resourceName).containsKey(partition)) {
-      _requestedStateMap.get(resourceName).put(partition, new HashMap<String, String>());
-    }
-    _requestedStateMap.get(resourceName).get(partition).put(instanceName, state);
+    getOrCreateReplicas(resourceName).setRequestedState(partition, instanceName, state);
   }
 
   public void setInfo(String resourceName, Partition partition, String instanceName, String state) {
-    if (!_infoMap.containsKey(resourceName)) {
-      _infoMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
-    }
-    if (!_infoMap.get(resourceName).containsKey(partition)) {
-      _infoMap.get(resourceName).put(partition, new HashMap<String, String>());
+    getOrCreateReplicas(resourceName).setInfo(partition, instanceName, state);
+  }
+
+  private ResourceReplicas getOrCreateReplicas(String resourceName) {
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas == null) {
+      replicas = new ResourceReplicas();
+      _replicasMap.put(resourceName, replicas);
     }
-    _infoMap.get(resourceName).get(partition).put(instanceName, state);
+    return replicas;
   }
 
   public void setPendingState(String resourceName, Partition partition, String instanceName,
@@ -168,6 +183,49 @@ public class CurrentStateOutput {
     stateMessageMap.get(resourceName).get(partition).put(instanceName, message);
   }
 
+  /**
+   * Merge another output into this one. The result is the same as if the updates that built the
+   * other output were applied to this output, after the updates already applied to it. This lets
+   * the outputs of disjoint sets of instances be computed separately and merged in order.
+   * @param other the output to merge, which is not modified
+   */
+  public void merge(CurrentStateOutput other) {
+    for (Map.Entry<String, ResourceReplicas> entry : other._replicasMap.entrySet()) {
+      getOrCreateReplicas(entry.getKey()).merge(entry.getValue(), other._instanceNames);
+    }
+    mergeStateMessages(other._pendingStateMap, _pendingStateMap);
+    mergeStateMessages(other._cancellationStateMap, _cancellationStateMap);
+    _resourceStateModelMap.putAll(other._resourceStateModelMap);
+    for (Map.Entry<String, CurrentState> entry : other._curStateMetaMap.entrySet()) {
+      setBucketSize(entry.getKey(), entry.getValue().getBucketSize());
+    }
+    for (Map.Entry<String, List<CurrentState>> entry : other._currentStateSourceMap.entrySet()) {
+      for (CurrentState currentState : entry.getValue()) {
+        addCurrentStateSource(entry.getKey(), currentState);
+      }
+    }
+  }
+
+  private static void mergeStateMessages(Map<String, Map<Partition, Map<String, Message>>> from,
+      Map<String, Map<Partition, Map<String, Message>>> to) {
+    for (Map.Entry<String, Map<Partition, Map<String, Message>>> resourceEntry : from.entrySet()) {
+      Map<Partition, Map<String, Message>> toResourceMap = to.get(resourceEntry.getKey());
+      if (toResourceMap == null) {
+        toResourceMap = new HashMap<>();
+        to.put(resourceEntry.getKey(), toResourceMap);
+      }
+      for (Map.Entry<Partition, Map<String, Message>> partitionEntry : resourceEntry.getValue()
+          .entrySet()) {
+        Map<String, Message> toPartitionMap = toResourceMap.get(partitionEntry.getKey());
+        if (toPartitionMap == null) {
+          toPartitionMap = new HashMap<>();
+          toResourceMap.put(partitionEntry.getKey(), toPartitionMap);
+        }
+        toPartitionMap.putAll(partitionEntry.getValue());
+      }
+    }
+  }
+
   /**
    * given (resource, partition, instance), returns currentState
    * @param resourceName
@@ -176,11 +234,11 @@ public class CurrentStateOutput {
    * @return
    */
   public String getCurrentState(String resourceName, Partition partition, String instanceName) {
-    Map<Partition, Map<String, String>> map = _currentStateMap.get(resourceName);
-    if (map != null) {
-      Map<String, String> instanceStateMap = map.get(partition);
-      if (instanceStateMap != null) {
-        return instanceStateMap.get(instanceName);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      int replica = replicas.getReplica(partition, instanceName);
+      if (replica >= 0) {
+        return replicas.getState(replica);
       }
     }
     return null;
@@ -188,33 +246,33 @@ public class CurrentStateOutput {
 
   public Long getEndTime(String resourceName, Partition partition,
       String instanceName) {
-    Map<Partition, Map<String, Long>> partitionInfo = _currentStateEndTimeMap.get(resourceName);
-    if (partitionInfo != null) {
-      Map<String, Long> instanceInfo = partitionInfo.get(partition);
-      if (instanceInfo != null && instanceInfo.get(instanceName) != null) {
-        return instanceInfo.get(instanceName);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      int replica = replicas.getReplica(partition, instanceName);
+      if (replica >= 0) {
+        return replicas.getEndTime(replica);
       }
     }
     return -1L;
   }
 
   public String getRequestedState(String resourceName, Partition partition, String instanceName) {
-    Map<Partition, Map<String, String>> map = _requestedStateMap.get(resourceName);
-    if (map != null) {
-      Map<String, String> instanceStateMap = map.get(partition);
-      if (instanceStateMap != null) {
-        return instanceStateMap.get(instanceName);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      int replica = replicas.getReplica(partition, instanceName);
+      if (replica >= 0) {
+        return replicas.getRequestedState(replica);
       }
     }
     return null;
   }
 
   public String getInfo(String resourceName, Partition partition, String instanceName) {
-    Map<Partition, Map<String, String>> map = _infoMap.get(resourceName);
-    if (map != null) {
-      Map<String, String> instanceStateMap = map.get(partition);
-      if (instanceStateMap != null) {
-        return instanceStateMap.get(instanceName);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      int replica = replicas.getReplica(partition, instanceName);
+      if (replica >= 0) {
+        return replicas.getInfo(replica);
       }
     }
     return null;
@@ -257,28 +315,32 @@ public class CurrentStateOutput {
   }
 
   /**
-   * Given resource, returns current state map (parition -> instance -> currentState)
+   * Given resource, returns current state map (parition -> instance -> currentState). The map is
+   * a read-only view of this output.
    * @param resourceName
    * @return
    */
   public Map<Partition, Map<String, String>> getCurrentStateMap(String resourceName) {
-    if (_currentStateMap.containsKey(resourceName)) {
-      return  _currentStateMap.get(resourceName);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      return replicas.getStateMap();
     }
     return Collections.emptyMap();
   }
 
   /**
-   * given (resource, partition), returns (instance->currentState) map
+   * given (resource, partition), returns (instance->currentState) map. The map is a view of this
+   * output, which only supports removing entries.
    * @param resourceName
    * @param partition
    * @return
    */
   public Map<String, String> getCurrentStateMap(String resourceName, Partition partition) {
-    if (_currentStateMap.containsKey(resourceName)) {
-      Map<Partition, Map<String, String>> map = _currentStateMap.get(resourceName);
-      if (map.containsKey(partition)) {
-        return map.get(partition);
+    ResourceReplicas replicas = _replicasMap.get(resourceName);
+    if (replicas != null) {
+      int partitionIndex = replicas.getPartitionIndex(partition);
+      if (partitionIndex >= 0) {
+        return replicas.getPartitionStateMap(partitionIndex);
       }
     }
     return Collections.emptyMap();
@@ -305,6 +367,18 @@ public class CurrentStateOutput {
     return Collections.emptyMap();
   }
 
+  /**
+   * Given resource, returns pending message map (partition -> instance -> pendingMessage)
+   * @param resourceName
+   * @return pending messages map of the partitions with pending messages
+   */
+  public Map<Partition, Map<String, Message>> getPendingMessageMap(String resourceName) {
+    if (_pendingStateMap.containsKey(resourceName)) {
+      return _pendingStateMap.get(resourceName);
+    }
+    return Collections.emptyMap();
+  }
+
   /**
    * Given (resource, partition), returns (instance->pendingMessage) map
    * @param resourceName
@@ -327,11 +401,11 @@ public class CurrentStateOutput {
    * @return set of mapped partitions, or empty set if there are none
    */
   public Set<Partition> getCurrentStateMappedPartitions(String resourceId) {
-    Map<Partition, Map<String, String>> currentStateMap = _currentStateMap.get(resourceId);
+    ResourceReplicas replicas = _replicasMap.get(resourceId);
     Map<Partition, Map<String, Message>> pendingStateMap = _pendingStateMap.get(resourceId);
     Set<Partition> partitionSet = Sets.newHashSet();
-    if (currentStateMap != null) {
-      partitionSet.addAll(currentStateMap.keySet());
+    if (replicas != null) {
+      partitionSet.addAll(replicas.getStateMap().keySet());
     }
     if (pendingStateMap != null) {
       partitionSet.addAll(pendingStateMap.keySet());
@@ -356,7 +430,11 @@ public class CurrentStateOutput {
    * @return set of participants to partitions mapping
    */
   public Map<String, Integer> getPartitionCountWithCurrentState(String resourceStateModel, String state) {
-    return getPartitionCountWithState(resourceStateModel, state, (Map) _currentStateMap);
+    Map<String, Map<Partition, Map<String, Object>>> stateMap = new HashMap<>();
+    for (Map.Entry<String, ResourceReplicas> entry : _replicasMap.entrySet()) {
+      stateMap.put(entry.getKey(), (Map) entry.getValue().getStateMap());
+    }
+    return getPartitionCountWithState(resourceStateModel, state, stateMap);
   }
 
   private Map<String, Integer> getPartitionCountWithState(String resourceStateModel, String state,
@@ -396,9 +474,415 @@ public class CurrentStateOutput {
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
-    sb.append("current state= ").append(_currentStateMap);
+    Map<String, Map<Partition, Map<String, String>>> currentStateMap = new HashMap<>();
+    for (Map.Entry<String, ResourceReplicas> entry : _replicasMap.entrySet()) {
+      currentStateMap.put(entry.getKey(), entry.getValue().getStateMap());
+    }
+    sb.append("current state= ").append(currentStateMap);
     sb.append(", pending state= ").append(_pendingStateMap);
     return sb.toString();
   }
 
+  private int getInstanceId(String instanceName, boolean create) {
+    Integer instanceId = _instanceIdMap.get(instanceName);
+    if (instanceId == null) {
+      if (!create) {
+        return -1;
+      }
+      instanceId = _instanceNames.size();
+      _instanceIdMap.put(instanceName, instanceId);
+      _instanceNames.add(instanceName);
+    }
+    return instanceId;
+  }
+
+  /**
+   * The replicas of a resource, stored column by column to avoid a map per partition. Partitions
+   * get dense indexes in the order they are added, and the replicas of a partition are chained in
+   * the order they are added. Instances are referred to by their interned ids, and states are
+   * interned to bytes per resource, since a state model only has a handful of states. Columns
+   * that are rarely set are only allocated once a value is set.
+   */
+  private class ResourceReplicas {
+    private static final byte NO_STATE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> _partitionIndexMap = new HashMap<>();
+    private final List<Partition> _partitions = new ArrayList<>();
+    // per partition: first and last replica, and number of replicas with a current state
+    private int[] _firstReplica = new int[INITIAL_CAPACITY];
+    private int[] _lastReplica = new int[INITIAL_CAPACITY];
+    private int[] _stateCount = new int[INITIAL_CAPACITY];
+    private int _mappedPartitionCount = 0;
+
+    private final Map<String, Byte> _stateIdMap = new HashMap<>();
+    private final List<String> _states = new ArrayList<>();
+
+    // per replica
+    private int _replicaCount = 0;
+    private int[] _nextReplica = new int[INITIAL_CAPACITY];
+    private int[] _replicaInstance = new int[INITIAL_CAPACITY];
+    private byte[] _replicaState = new byte[INITIAL_CAPACITY];
+    private long[] _replicaEndTime;
+    private String[] _replicaRequestedState;
+    private String[] _replicaInfo;
+
+    private final Map<Partition, Map<String, String>> _stateMap = new ResourceStateView();
+
+    int getPartitionIndex(Partition partition) {
+      Integer index = _partitionIndexMap.get(partition.getPartitionName());
+      return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the replica of the instance in the partition, or -1 if there is none
+     */
+    int getReplica(Partition partition, String instanceName) {
+      int partitionIndex = getPartitionIndex(partition);
+      int instanceId = getInstanceId(instanceName, false);
+      if (partitionIndex < 0 || instanceId < 0) {
+        return -1;
+      }
+      return findReplica(partitionIndex, instanceId);
+    }
+
+    private int findReplica(int partitionIndex, int instanceId) {
+      for (int replica = _firstReplica[partitionIndex]; replica >= 0;
+          replica = _nextReplica[replica]) {
+        if (_replicaInstance[replica] == instanceId) {
+          return replica;
+        }
+      }
+      return -1;
+    }
+
+    private int getOrCreateReplica(Partition partition, String instanceName) {
+      Integer partitionIndex = _partitionIndexMap.get(partition.getPartitionName());
+      if (partitionIndex == null) {
+        partitionIndex = _partitions.size();
+        if (partitionIndex == _firstReplica.length) {
+          int capacity = partitionIndex * 2;
+          _firstReplica = Arrays.copyOf(_firstReplica, capacity);
+          _lastReplica = Arrays.copyOf(_lastReplica, capacity);
+          _stateCount = Arrays.copyOf(_stateCount, capacity);
+        }
+        _partitionIndexMap.put(partition.getPartitionName(), partitionIndex);
+        _partitions.add(partition);
+        _firstReplica[partitionIndex] = -1;
+        _lastReplica[partitionIndex] = -1;
+      }
+
+      int instanceId = getInstanceId(instanceName, true);
+      int replica = findReplica(partitionIndex, instanceId);
+      if (replica >= 0) {
+        return replica;
+      }
+
+      replica = _replicaCount++;
+      if (replica == _replicaInstance.length) {
+        int capacity = replica * 2;
+        _nextReplica = Arrays.copyOf(_nextReplica, capacity);
+        _replicaInstance = Arrays.copyOf(_replicaInstance, capacity);
+        _replicaState = Arrays.copyOf(_replicaState, capacity);
+        if (_replicaEndTime != null) {
+          _replicaEndTime = Arrays.copyOf(_replicaEndTime, capacity);
+        }
+        if (_replicaRequestedState != null) {
+          _replicaRequestedState = Arrays.copyOf(_replicaRequestedState, capacity);
+        }
+        if (_replicaInfo != null) {
+          _replicaInfo = Arrays.copyOf(_replicaInfo, capacity);
+        }
+      }
+      _nextReplica[replica] = -1;
+      _replicaInstance[replica] = instanceId;
+      _replicaState[replica] = NO_STATE;
+      if (_replicaEndTime != null) {
+        _replicaEndTime[replica] = -1L;
+      }
+      if (_lastReplica[partitionIndex] < 0) {
+        _firstReplica[partitionIndex] = replica;
+      } else {
+        _nextReplica[_lastReplica[partitionIndex]] = replica;
+      }
+      _lastReplica[partitionIndex] = replica;
+      return replica;
+    }
+
+    void setState(Partition partition, String instanceName, String state) {
+      int replica = getOrCreateReplica(partition, instanceName);
+      if (_replicaState[replica] == NO_STATE) {
+        int partitionIndex = _partitionIndexMap.get(partition.getPartitionName());
+        if (_stateCount[partitionIndex]++ == 0) {
+          _mappedPartitionCount++;
+        }
+      }
+      Byte stateId = _stateIdMap.get(state);
+      if (stateId == null) {
+        if (_states.size() > Byte.MAX_VALUE) {
+          throw new HelixException(
+              "Too many distinct states in current states of partition " + partition);
+        }
+        stateId = (byte) _states.size();
+        _stateIdMap.put(state, stateId);
+        _states.add(state);
+      }
+      _replicaState[replica] = stateId;
+    }
+
+    void setEndTime(Partition partition, String instanceName, Long timestamp) {
+      int replica = getOrCreateReplica(partition, instanceName);
+      if (_replicaEndTime == null) {
+        _replicaEndTime = new long[_replicaInstance.length];
+        Arrays.fill(_replicaEndTime, -1L);
+      }
+      _replicaEndTime[replica] = timestamp == null ? -1L : timestamp;
+    }
+
+    void setRequestedState(Partition partition, String instanceName, String requestedState) {
+      int replica = getOrCreateReplica(partition, instanceName);
+      if (_replicaRequestedState == null) {
+        if (requestedState == null) {
+          return;
+        }
+        _replicaRequestedState = new String[_replicaInstance.length];
+      }
+      _replicaRequestedState[replica] = requestedState;
+    }
+
+    void setInfo(Partition partition, String instanceName, String info) {
+      int replica = getOrCreateReplica(partition, instanceName);
+      if (_replicaInfo == null) {
+        if (info == null) {
+          return;
+        }
+        _replicaInfo = new String[_replicaInstance.length];
+      }
+      _replicaInfo[replica] = info;
+    }
+
+    /**
+     * Add the replicas of another resource in the order they were added to it.
+     * @param other
+     * @param otherInstanceNames the instance names the other replicas refer to by id
+     */
+    void merge(ResourceReplicas other, List<String> otherInstanceNames) {
+      for (int partitionIndex = 0; partitionIndex < other._partitions.size(); partitionIndex++) {
+        Partition partition = other._partitions.get(partitionIndex);
+        for (int otherReplica = other._firstReplica[partitionIndex]; otherReplica >= 0;
+            otherReplica = other._nextReplica[otherReplica]) {
+          String instanceName = otherInstanceNames.get(other._replicaInstance[otherReplica]);
+          if (other._replicaState[otherReplica] != NO_STATE) {
+            setState(partition, instanceName, other._states.get(other._replicaState[otherReplica]));
+          } else {
+            getOrCreateReplica(partition, instanceName);
+          }
+          if (other._replicaEndTime != null) {
+            setEndTime(partition, instanceName, other._replicaEndTime[otherReplica]);
+          }
+          if (other._replicaRequestedState != null) {
+            setRequestedState(partition, instanceName,
+                other._replicaRequestedState[otherReplica]);
+          }
+          if (other._replicaInfo != null) {
+            setInfo(partition, instanceName, other._replicaInfo[otherReplica]);
+          }
+        }
+      }
+    }
+
+    String getState(int replica) {
+      return _replicaState[replica] == NO_STATE ? null : _states.get(_replicaState[replica]);
+    }
+
+    long getEndTime(int replica) {
+      return _replicaEndTime == null ? -1L : _replicaEndTime[replica];
+    }
+
+    String getRequestedState(int replica) {
+      return _replicaRequestedState == null ? null : _replicaRequestedState[replica];
+    }
+
+    String getInfo(int replica) {
+      return _replicaInfo == null ? null : _replicaInfo[replica];
+    }
+
+    Map<Partition, Map<String, String>> getStateMap() {
+      return _stateMap;
+    }
+
+    Map<String, String> getPartitionStateMap(int partitionIndex) {
+      return new PartitionStateView(partitionIndex);
+    }
+
+    /**
+     * Read-only view of the current states of the resource: partition -> instance -> state
+     */
+    private class ResourceStateView extends AbstractMap<Partition, Map<String, String>> {
+      @Override
+      public Map<String, String> get(Object key) {
+        if (!(key instanceof Partition)) {
+          return null;
+        }
+        int partitionIndex = getPartitionIndex((Partition) key);
+        if (partitionIndex < 0 || _stateCount[partitionIndex] == 0) {
+          return null;
+        }
+        return new PartitionStateView(partitionIndex);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public int size() {
+        return _mappedPartitionCount;
+      }
+
+      @Override
+      public Set<Entry<Partition, Map<String, String>>> entrySet() {
+        return new AbstractSet<Entry<Partition, Map<String, String>>>() {
+          @Override
+          public int size() {
+            return _mappedPartitionCount;
+          }
+
+          @Override
+          public Iterator<Entry<Partition, Map<String, String>>> iterator() {
+            return new Iterator<Entry<Partition, Map<String, String>>>() {
+              private int _next = advance(0);
+
+              private int advance(int partitionIndex) {
+                while (partitionIndex < _partitions.size() && _stateCount[partitionIndex] == 0) {
+                  partitionIndex++;
+                }
+                return partitionIndex;
+              }
+
+              @Override
+              public boolean hasNext() {
+                return _next < _partitions.size();
+              }
+
+              @Override
+              public Entry<Partition, Map<String, String>> next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                int partitionIndex = _next;
+                _next = advance(_next + 1);
+                return new SimpleImmutableEntry<Partition, Map<String, String>>(
+                    _partitions.get(partitionIndex), new PartitionStateView(partitionIndex));
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+        };
+      }
+    }
+
+    /**
+     * View of the current states of a partition: instance -> state. Only removal is supported.
+     */
+    private class PartitionStateView extends AbstractMap<String, String> {
+      private final int _partitionIndex;
+
+      PartitionStateView(int partitionIndex) {
+        _partitionIndex = partitionIndex;
+      }
+
+      private int findStateReplica(Object key) {
+        if (!(key instanceof String)) {
+          return -1;
+        }
+        int instanceId = getInstanceId((String) key, false);
+        if (instanceId < 0) {
+          return -1;
+        }
+        int replica = findReplica(_partitionIndex, instanceId);
+        return replica < 0 || _replicaState[replica] == NO_STATE ? -1 : replica;
+      }
+
+      @Override
+      public String get(Object key) {
+        int replica = findStateReplica(key);
+        return replica < 0 ? null : _states.get(_replicaState[replica]);
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return findStateReplica(key) >= 0;
+      }
+
+      @Override
+      public String remove(Object key) {
+        int replica = findStateReplica(key);
+        if (replica < 0) {
+          return null;
+        }
+        String state = _states.get(_replicaState[replica]);
+        _replicaState[replica] = NO_STATE;
+        if (--_stateCount[_partitionIndex] == 0) {
+          _mappedPartitionCount--;
+        }
+        return state;
+      }
+
+      @Override
+      public int size() {
+        return _stateCount[_partitionIndex];
+      }
+
+      @Override
+      public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+          @Override
+          public int size() {
+            return _stateCount[_partitionIndex];
+          }
+
+          @Override
+          public Iterator<Entry<String, String>> iterator() {
+            return new Iterator<Entry<String, String>>() {
+              private int _next = advance(_firstReplica[_partitionIndex]);
+
+              private int advance(int replica) {
+                while (replica >= 0 && _replicaState[replica] == NO_STATE) {
+                  replica = _nextReplica[replica];
+                }
+                return replica;
+              }
+
+              @Override
+              public boolean hasNext() {
+                return _next >= 0;
+              }
+
+              @Override
+              public Entry<String, String> next() {
+                if (!hasNext()) {
+                  throw new NoSuchElementException();
+                }
+                int replica = _next;
+                _next = advance(_nextReplica[replica]);
+                return new SimpleImmutableEntry<>(_instanceNames.get(_replicaInstance[replica]),
+                    _states.get(_replicaState[replica]));
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+        };
+      }
+    }
+  }
 }
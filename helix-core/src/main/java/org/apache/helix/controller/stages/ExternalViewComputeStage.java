@@ -19,12 +19,14 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
 import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.ZNRecordBucketizer;
 import org.apache.helix.ZNRecordDelta;
 import org.apache.helix.ZNRecordDelta.MergeOperation;
 import org.apache.helix.controller.LogUtil;
@@ -32,6 +34,8 @@ import org.apache.helix.controller.pipeline.AbstractAsyncBaseStage;
 import org.apache.helix.controller.pipeline.AsyncWorkerType;
 import org.apache.helix.controller.pipeline.StageException;
 import org.apache.helix.manager.zk.DefaultSchedulerMessageHandlerFactory;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
 import org.apache.helix.model.Message;
@@ -89,38 +93,57 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     Map<String, ExternalView> curExtViews = cache.getExternalViews();
 
     for (String resourceName : resourceMap.keySet()) {
+      Resource resource = resourceMap.get(resourceName);
+      IdealState idealState = cache.getIdealState(resourceName);
+      ExternalView curExtView = curExtViews.get(resourceName);
+      List<CurrentState> currentStateSources =
+          currentStateOutput.getCurrentStateSources(resourceName);
+
       ExternalView view = new ExternalView(resourceName);
       // view.setBucketSize(currentStateOutput.getBucketSize(resourceName));
       // if resource ideal state has bucket size, set it
       // otherwise resource has been dropped, use bucket size from current state instead
-      Resource resource = resourceMap.get(resourceName);
       if (resource.getBucketSize() > 0) {
         view.setBucketSize(resource.getBucketSize());
       } else {
         view.setBucketSize(currentStateOutput.getBucketSize(resourceName));
       }
+      // copy simplefields from IS, in cases where IS is deleted copy it from existing ExternalView
+      if (idealState != null) {
+        view.getRecord().getSimpleFields().putAll(idealState.getRecord().getSimpleFields());
+      } else if (curExtView != null) {
+        view.getRecord().getSimpleFields().putAll(curExtView.getRecord().getSimpleFields());
+      }
 
-      int totalPendingMessageCount = 0;
-
-      for (Partition partition : resource.getPartitions()) {
-        Map<String, String> currentStateMap =
-            currentStateOutput.getCurrentStateMap(resourceName, partition);
-        if (currentStateMap != null && currentStateMap.size() > 0) {
-          // Set<String> disabledInstances
-          // = cache.getDisabledInstancesForResource(resource.toString());
-          for (String instance : currentStateMap.keySet()) {
-            // if (!disabledInstances.contains(instance))
-            // {
-            view.setState(partition.getPartitionName(), instance, currentStateMap.get(instance));
-            // }
+      // The states of the view only depend on the current states of the resource. If they are
+      // computed from the same CurrentStates as the current view, the current view is still valid.
+      boolean isChanged;
+      if (curExtView != null && curExtView.getRecord().getSimpleFields()
+          .equals(view.getRecord().getSimpleFields()) && isSameCurrentStates(
+          cache.getExternalViewSources(resourceName), currentStateSources)) {
+        view = curExtView;
+        isChanged = false;
+      } else {
+        for (Partition partition : resource.getPartitions()) {
+          Map<String, String> currentStateMap =
+              currentStateOutput.getCurrentStateMap(resourceName, partition);
+          if (currentStateMap != null && currentStateMap.size() > 0) {
+            // Set<String> disabledInstances
+            // = cache.getDisabledInstancesForResource(resource.toString());
+            for (String instance : currentStateMap.keySet()) {
+              // if (!disabledInstances.contains(instance))
+              // {
+              view.setState(partition.getPartitionName(), instance, currentStateMap.get(instance));
+              // }
+            }
           }
         }
-        totalPendingMessageCount +=
-            currentStateOutput.getPendingMessageMap(resource.getResourceName(), partition).size();
+        // compare the new external view with current one, set only on different
+        isChanged = curExtView == null || !curExtView.getRecord().equals(view.getRecord());
       }
+      cache.updateExternalViewSources(resourceName, currentStateSources);
 
       // Update cluster status monitor mbean
-      IdealState idealState = cache.getIdealState(resourceName);
       if (!cache.isTaskCache()) {
         ResourceConfig resourceConfig = cache.getResourceConfig(resourceName);
         if (clusterStatusMonitor != null) {
@@ -128,6 +151,11 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
               && (resourceConfig == null || !resourceConfig.isMonitoringDisabled()) // monitoring not disabled
               && !idealState.getStateModelDefRef() // and not a job resource
               .equalsIgnoreCase(DefaultSchedulerMessageHandlerFactory.SCHEDULER_TASK_QUEUE)) {
+            int totalPendingMessageCount = 0;
+            for (Partition partition : resource.getPartitions()) {
+              totalPendingMessageCount +=
+                  currentStateOutput.getPendingMessageMap(resourceName, partition).size();
+            }
             StateModelDefinition stateModelDef =
                 cache.getStateModelDef(idealState.getStateModelDefRef());
             clusterStatusMonitor
@@ -139,16 +167,8 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
           }
         }
       }
-      ExternalView curExtView = curExtViews.get(resourceName);
-      // copy simplefields from IS, in cases where IS is deleted copy it from existing ExternalView
-      if (idealState != null) {
-        view.getRecord().getSimpleFields().putAll(idealState.getRecord().getSimpleFields());
-      } else if (curExtView != null) {
-        view.getRecord().getSimpleFields().putAll(curExtView.getRecord().getSimpleFields());
-      }
 
-      // compare the new external view with current one, set only on different
-      if (curExtView == null || !curExtView.getRecord().equals(view.getRecord())) {
+      if (isChanged) {
         // Add external view to the list which will be written to ZK later.
         newExtViews.add(view);
 
@@ -175,6 +195,13 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     // For the resource with DisableExternalView option turned on in IdealState
     // We will not actually create or write the externalView to ZooKeeper.
     List<PropertyKey> keys = new ArrayList<>();
+    List<ExternalView> fullExtViews = new ArrayList<>();
+    List<DataWriteOp<ZNRecord>> ops = new ArrayList<>();
+    List<ExternalView> opViews = new ArrayList<>();
+    List<DataWriteOp<ZNRecord>> metaOps = new ArrayList<>();
+    List<ExternalView> metaOpViews = new ArrayList<>();
+    // Only a ZooKeeper backed accessor writes in transactions, others set the whole views
+    boolean isBatched = dataAccessor instanceof ZKHelixDataAccessor;
     for(Iterator<ExternalView> it = newExtViews.iterator(); it.hasNext(); ) {
       ExternalView view = it.next();
       String resourceName = view.getResourceName();
@@ -189,13 +216,58 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
           externalViewsToRemove.add(resourceName);
         }
       } else {
-        keys.add(keyBuilder.externalView(resourceName));
+        ExternalView curExtView = curExtViews.get(resourceName);
+        PropertyKey key = keyBuilder.externalView(resourceName);
+        if (isBatched && view.getBucketSize() > 0 && curExtView != null
+            && curExtView.getBucketSize() == view.getBucketSize()) {
+          addChangedBuckets(key.getPath(), curExtView, view, ops, opViews);
+          ExternalView metaView = new ExternalView(view.getId());
+          metaView.getRecord().setSimpleFields(view.getRecord().getSimpleFields());
+          metaOps.add(DataWriteOp.set(key, metaView));
+          metaOpViews.add(view);
+        } else if (isBatched && view.getBucketSize() == 0 && curExtView != null) {
+          ops.add(DataWriteOp.set(key, view));
+          opViews.add(view);
+        } else {
+          // An uncached external-view may still exist, e.g. right after a controller takeover,
+          // so it is set on its own, creating it if needed.
+          keys.add(key);
+          fullExtViews.add(view);
+        }
       }
     }
 
-    // add/update external-views
+    // add/update new, uncached or re-bucketized external-views
+    if (fullExtViews.size() > 0) {
+      dataAccessor.setChildren(keys, fullExtViews);
+    }
+    // Changed cached external-views, or the changed buckets of bucketized ones, are written in as
+    // few ZooKeeper transactions as possible. The parent nodes of bucketized external-views go
+    // last so that watchers are notified once the buckets are in place.
+    ops.addAll(metaOps);
+    opViews.addAll(metaOpViews);
+    if (ops.size() > 0) {
+      boolean[] success = ((ZKHelixDataAccessor) dataAccessor).multi(ops);
+      // Drop the external-views that failed to be written from the cache, so that they are set
+      // on their own in the next run
+      Set<String> failedResources = new HashSet<>();
+      for (int i = 0; i < success.length; i++) {
+        if (!success[i]) {
+          failedResources.add(opViews.get(i).getResourceName());
+        }
+      }
+      if (!failedResources.isEmpty()) {
+        LogUtil.logWarn(LOG, _eventId,
+            "Fail to write externalView for resources: " + failedResources);
+        for (Iterator<ExternalView> it = newExtViews.iterator(); it.hasNext(); ) {
+          if (failedResources.contains(it.next().getResourceName())) {
+            it.remove();
+          }
+        }
+        cache.removeExternalViews(new ArrayList<>(failedResources));
+      }
+    }
     if (newExtViews.size() > 0) {
-      dataAccessor.setChildren(keys, newExtViews);
       cache.updateExternalViews(newExtViews);
     }
 
@@ -210,6 +282,53 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     cache.removeExternalViews(externalViewsToRemove);
   }
 
+  private static boolean isSameCurrentStates(List<CurrentState> cachedCurrentStates,
+      List<CurrentState> currentStates) {
+    if (cachedCurrentStates == null || cachedCurrentStates.size() != currentStates.size()) {
+      return false;
+    }
+    for (int i = 0; i < currentStates.size(); i++) {
+      if (cachedCurrentStates.get(i) != currentStates.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add writes of the buckets of a bucketized external view that differ from the current one,
+   * creations of the buckets that are new, e.g. for partitions that get their first current
+   * states, and removals of the buckets that no longer exist, to the operations to apply.
+   */
+  private void addChangedBuckets(String path, ExternalView curExtView, ExternalView view,
+      List<DataWriteOp<ZNRecord>> ops, List<ExternalView> opViews) {
+    ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(view.getBucketSize());
+    Map<String, ZNRecord> curBuckets = bucketizer.bucketize(curExtView.getRecord());
+    Map<String, ZNRecord> newBuckets = bucketizer.bucketize(view.getRecord());
+    int changedBucketCount = 0;
+    for (Map.Entry<String, ZNRecord> entry : newBuckets.entrySet()) {
+      ZNRecord curBucket = curBuckets.get(entry.getKey());
+      if (entry.getValue().equals(curBucket)) {
+        continue;
+      }
+      // a set fails on a missing node, so new buckets are created
+      String bucketPath = path + "/" + entry.getKey();
+      ops.add(curBucket == null ? DataWriteOp.create(bucketPath, entry.getValue())
+          : DataWriteOp.set(bucketPath, entry.getValue()));
+      opViews.add(view);
+      changedBucketCount++;
+    }
+    for (String bucketName : curBuckets.keySet()) {
+      if (!newBuckets.containsKey(bucketName)) {
+        ops.add(DataWriteOp.<ZNRecord>remove(path + "/" + bucketName));
+        opViews.add(view);
+      }
+    }
+    LogUtil.logInfo(LOG, _eventId,
+        "Write " + changedBucketCount + " of " + newBuckets.size() + " buckets of externalView "
+            + view.getResourceName());
+  }
+
   private void updateScheduledTaskStatus(ExternalView ev, HelixManager manager,
       IdealState taskQueueIdealState) {
     HelixDataAccessor accessor = manager.getHelixDataAccessor();
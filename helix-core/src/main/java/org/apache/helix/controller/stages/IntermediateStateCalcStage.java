@@ -259,6 +259,14 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
           bestPossiblePartitionStateMap.getPartitionMap(partition);
       List<String> preferenceList = preferenceLists.get(partition.getPartitionName());
 
+      // Most partitions are at BestPossibleState, skip computing their rebalance type. Partitions
+      // with an ERROR replica are still counted below.
+      if (currentStateMap.equals(bestPossibleMap)
+          && !currentStateMap.containsValue(HelixDefinedState.ERROR.name())) {
+        intermediatePartitionStateMap.setState(partition, new HashMap<>(bestPossibleMap));
+        continue;
+      }
+
       RebalanceType rebalanceType = getRebalanceType(cache, bestPossibleMap, preferenceList,
           stateModelDef, currentStateMap, idealState);
 
@@ -403,14 +411,18 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
       Set<Partition> partitionsNeedLoadbalance) {
     String resourceName = resource.getResourceName();
 
-    // check and charge pending transitions
-    for (Partition partition : resource.getPartitions()) {
+    // check and charge pending transitions, only partitions with pending messages are charged
+    for (Map.Entry<Partition, Map<String, Message>> entry : currentStateOutput
+        .getPendingMessageMap(resourceName).entrySet()) {
+      Partition partition = entry.getKey();
+      if (resource.getPartition(partition.getPartitionName()) == null) {
+        continue;
+      }
       // Maps instance to its current state
       Map<String, String> currentStateMap =
           currentStateOutput.getCurrentStateMap(resourceName, partition);
-      // Maps instance to its pending (next) state
-      Map<String, String> pendingMap =
-          currentStateOutput.getPendingStateMap(resourceName, partition);
+      // Maps instance to its pending message
+      Map<String, Message> pendingMap = entry.getValue();
 
       StateTransitionThrottleConfig.RebalanceType rebalanceType = RebalanceType.NONE;
       if (partitionsNeedRecovery.contains(partition)) {
@@ -426,7 +438,7 @@ public class IntermediateStateCalcStage extends AbstractBaseStage {
         // charge each instance.
         for (String instance : pendingMap.keySet()) {
           String currentState = currentStateMap.get(instance);
-          String pendingState = pendingMap.get(instance);
+          String pendingState = pendingMap.get(instance).getToState();
           if (pendingState != null && !pendingState.equals(currentState)) {
             throttleController.chargeInstance(rebalanceType, instance);
           }
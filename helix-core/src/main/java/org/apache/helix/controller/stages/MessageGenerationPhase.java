@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import org.apache.helix.HelixDataAccessor;
@@ -304,8 +303,7 @@ public class MessageGenerationPhase extends AbstractBaseStage {
   private Message createStateTransitionMessage(HelixManager manager, Resource resource, String partitionName,
       String instanceName, String currentState, String nextState, String sessionId,
       String stateModelDefName) {
-    String uuid = UUID.randomUUID().toString();
-    Message message = new Message(MessageType.STATE_TRANSITION, uuid);
+    Message message = new Message(MessageType.STATE_TRANSITION, Message.generateMsgId());
     message.setSrcName(manager.getInstanceName());
     message.setTgtName(instanceName);
     message.setMsgState(MessageState.NEW);
@@ -340,8 +338,8 @@ public class MessageGenerationPhase extends AbstractBaseStage {
               + "." + partitionName + " on " + instanceName + ", currentState: " + currentState
               + ", nextState: " + (nextState == null ? "N/A" : nextState));
 
-      String uuid = UUID.randomUUID().toString();
-      Message message = new Message(MessageType.STATE_TRANSITION_CANCELLATION, uuid);
+      Message message =
+          new Message(MessageType.STATE_TRANSITION_CANCELLATION, Message.generateMsgId());
       message.setSrcName(manager.getInstanceName());
       message.setTgtName(instanceName);
       message.setMsgState(MessageState.NEW);
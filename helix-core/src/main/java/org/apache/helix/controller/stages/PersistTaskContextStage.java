@@ -0,0 +1,56 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.HelixManager;
+import org.apache.helix.controller.LogUtil;
+import org.apache.helix.controller.pipeline.AbstractBaseStage;
+import org.apache.helix.controller.pipeline.StageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persist the workflow and job contexts the task rebalancers updated in this pipeline run, in one
+ * batch. It runs before the messages are generated, so that the contexts are persisted before
+ * the participants are asked to run the tasks they assign.
+ */
+public class PersistTaskContextStage extends AbstractBaseStage {
+  private static final Logger LOG = LoggerFactory.getLogger(PersistTaskContextStage.class);
+
+  @Override
+  public void process(ClusterEvent event) throws Exception {
+    HelixManager manager = event.getAttribute(AttributeName.helixmanager.name());
+    ClusterDataCache cache = event.getAttribute(AttributeName.ClusterDataCache.name());
+    if (manager == null || cache == null) {
+      throw new StageException("Missing attributes in event:" + event
+          + ". Requires HelixManager | DataCache");
+    }
+    if (!cache.isTaskCache()) {
+      return;
+    }
+
+    long startTime = System.currentTimeMillis();
+    int persisted = cache.persistTaskContexts(manager.getHelixDataAccessor());
+    if (persisted > 0) {
+      LogUtil.logInfo(LOG, event.getEventId(), "Persisted " + persisted
+          + " workflow/job contexts, took " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
+import org.apache.helix.HelixConstants.ChangeType;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.controller.LogUtil;
@@ -41,6 +42,8 @@ import com.google.common.collect.Sets;
 
 public class ReadClusterDataStage extends AbstractBaseStage {
   private static final Logger logger = LoggerFactory.getLogger(ReadClusterDataStage.class.getName());
+  // the data type the refresh of the workflow and job contexts is reported as
+  private static final String TASK_CONTEXT_DATA_TYPE = "TASK_CONTEXT";
 
   private ClusterDataCache _cache = null;
 
@@ -64,10 +67,18 @@ public class ReadClusterDataStage extends AbstractBaseStage {
     if (!_cache.isTaskCache()) {
       final ClusterStatusMonitor clusterStatusMonitor =
           event.getAttribute(AttributeName.clusterStatusMonitor.name());
+      final Map<ChangeType, Integer> fetchedCounts = _cache.getLastRefreshFetchedCounts();
+      final Map<ChangeType, Integer> skippedCounts = _cache.getLastRefreshSkippedCounts();
       asyncExecute(_cache.getAsyncTasksThreadPool(), new Callable<Object>() {
         @Override public Object call() {
           // Update the cluster status gauges
           if (clusterStatusMonitor != null) {
+            for (Map.Entry<ChangeType, Integer> entry : fetchedCounts.entrySet()) {
+              Integer skipped = skippedCounts.get(entry.getKey());
+              clusterStatusMonitor.updateDataRefreshCounters(entry.getKey().name(),
+                  entry.getValue(), skipped == null ? 0 : skipped);
+            }
+
             LogUtil.logDebug(logger, _eventId, "Update cluster status monitors");
 
             Set<String> instanceSet = Sets.newHashSet();
@@ -104,6 +115,14 @@ public class ReadClusterDataStage extends AbstractBaseStage {
           return null;
         }
       });
+    } else {
+      final ClusterStatusMonitor clusterStatusMonitor =
+          event.getAttribute(AttributeName.clusterStatusMonitor.name());
+      if (clusterStatusMonitor != null) {
+        clusterStatusMonitor.updateDataRefreshCounters(TASK_CONTEXT_DATA_TYPE,
+            _cache.getLastContextFetchedCount(), _cache.getLastContextSkippedCount(),
+            _cache.getLastContextFetchedBytes());
+      }
     }
     event.addAttribute(AttributeName.ClusterDataCache.name(), _cache);
   }
@@ -40,10 +40,17 @@ class StateTransitionThrottleController {
   // pending allowed transition counts in the cluster level for recovery and load balance
   private Map<StateTransitionThrottleConfig.RebalanceType, Long> _pendingTransitionAllowedInCluster;
 
-  // pending allowed transition counts for each instance and resource
+  // pending allowed transition counts for each instance and resource, an entry is only created
+  // from the configured limits once the instance or resource is charged
   private Map<String, Map<StateTransitionThrottleConfig.RebalanceType, Long>> _pendingTransitionAllowedPerInstance;
   private Map<String, Map<StateTransitionThrottleConfig.RebalanceType, Long>> _pendingTransitionAllowedPerResource;
 
+  // configured limits for each instance and resource
+  private Map<StateTransitionThrottleConfig.RebalanceType, Long> _instanceThrottleLimits;
+  private Map<StateTransitionThrottleConfig.RebalanceType, Long> _resourceThrottleLimits;
+  private final Set<String> _resources;
+  private final Set<String> _liveInstances;
+
   private boolean _throttleEnabled = false;
 
   public StateTransitionThrottleController(Set<String> resources, ClusterConfig clusterConfig,
@@ -52,6 +59,10 @@ class StateTransitionThrottleController {
     _pendingTransitionAllowedInCluster = new HashMap<>();
     _pendingTransitionAllowedPerInstance = new HashMap<>();
     _pendingTransitionAllowedPerResource = new HashMap<>();
+    _instanceThrottleLimits = new HashMap<>();
+    _resourceThrottleLimits = new HashMap<>();
+    _resources = resources;
+    _liveInstances = liveInstances;
 
     if (clusterConfig == null) {
       logger.warn("Cluster config is not found, no throttle config set!");
@@ -74,25 +85,13 @@ class StateTransitionThrottleController {
           _throttleEnabled = true;
           break;
         case RESOURCE:
-          for (String resource : resources) {
-            if (!_pendingTransitionAllowedPerResource.containsKey(resource)) {
-              _pendingTransitionAllowedPerResource.put(resource,
-                  new HashMap<StateTransitionThrottleConfig.RebalanceType, Long>());
-            }
-            _pendingTransitionAllowedPerResource.get(resource).put(config.getRebalanceType(),
-                config.getMaxPartitionInTransition());
-          }
+          _resourceThrottleLimits.put(config.getRebalanceType(),
+              config.getMaxPartitionInTransition());
           _throttleEnabled = true;
           break;
         case INSTANCE:
-          for (String instance : liveInstances) {
-            if (!_pendingTransitionAllowedPerInstance.containsKey(instance)) {
-              _pendingTransitionAllowedPerInstance.put(instance,
-                  new HashMap<StateTransitionThrottleConfig.RebalanceType, Long>());
-            }
-            _pendingTransitionAllowedPerInstance.get(instance).put(config.getRebalanceType(),
-                config.getMaxPartitionInTransition());
-          }
+          _instanceThrottleLimits.put(config.getRebalanceType(),
+              config.getMaxPartitionInTransition());
           _throttleEnabled = true;
           break;
       }
@@ -135,10 +134,12 @@ class StateTransitionThrottleController {
     if (shouldThrottleForCluster(rebalanceType)) {
       return true;
     }
-    Long resourceThrottle;
-    if (_pendingTransitionAllowedPerResource.containsKey(resourceName)) {
-      resourceThrottle = _pendingTransitionAllowedPerResource.get(resourceName).get(rebalanceType);
-      if (shouldThrottleForANYType(_pendingTransitionAllowedPerResource.get(resourceName))
+    Map<StateTransitionThrottleConfig.RebalanceType, Long> pendingTransitionAllowed =
+        getPendingTransitionAllowed(_pendingTransitionAllowedPerResource, _resources,
+            _resourceThrottleLimits, resourceName, false);
+    if (pendingTransitionAllowed != null) {
+      Long resourceThrottle = pendingTransitionAllowed.get(rebalanceType);
+      if (shouldThrottleForANYType(pendingTransitionAllowed)
           || (resourceThrottle != null && resourceThrottle <= 0)) {
         return true;
       }
@@ -158,10 +159,12 @@ class StateTransitionThrottleController {
     if (shouldThrottleForCluster(rebalanceType)) {
       return true;
     }
-    Long instanceThrottle;
-    if (_pendingTransitionAllowedPerInstance.containsKey(instanceName)) {
-      instanceThrottle = _pendingTransitionAllowedPerInstance.get(instanceName).get(rebalanceType);
-      if (shouldThrottleForANYType(_pendingTransitionAllowedPerInstance.get(instanceName))
+    Map<StateTransitionThrottleConfig.RebalanceType, Long> pendingTransitionAllowed =
+        getPendingTransitionAllowed(_pendingTransitionAllowedPerInstance, _liveInstances,
+            _instanceThrottleLimits, instanceName, false);
+    if (pendingTransitionAllowed != null) {
+      Long instanceThrottle = pendingTransitionAllowed.get(rebalanceType);
+      if (shouldThrottleForANYType(pendingTransitionAllowed)
           || (instanceThrottle != null && instanceThrottle <= 0)) {
         return true;
       }
@@ -191,12 +194,16 @@ class StateTransitionThrottleController {
    */
   protected void chargeResource(StateTransitionThrottleConfig.RebalanceType rebalanceType,
       String resource) {
-    if (_pendingTransitionAllowedPerResource.containsKey(resource)
-        && _pendingTransitionAllowedPerResource.get(resource).containsKey(rebalanceType)) {
-      chargeANYType(_pendingTransitionAllowedPerResource.get(resource));
-      Long resourceThrottle = _pendingTransitionAllowedPerResource.get(resource).get(rebalanceType);
-      if (resourceThrottle > 0) {
-        _pendingTransitionAllowedPerResource.get(resource).put(rebalanceType, resourceThrottle - 1);
+    if (_resourceThrottleLimits.containsKey(rebalanceType)) {
+      Map<StateTransitionThrottleConfig.RebalanceType, Long> pendingTransitionAllowed =
+          getPendingTransitionAllowed(_pendingTransitionAllowedPerResource, _resources,
+              _resourceThrottleLimits, resource, true);
+      if (pendingTransitionAllowed != null) {
+        chargeANYType(pendingTransitionAllowed);
+        Long resourceThrottle = pendingTransitionAllowed.get(rebalanceType);
+        if (resourceThrottle > 0) {
+          pendingTransitionAllowed.put(rebalanceType, resourceThrottle - 1);
+        }
       }
     }
   }
@@ -208,14 +215,47 @@ class StateTransitionThrottleController {
    */
   protected void chargeInstance(StateTransitionThrottleConfig.RebalanceType rebalanceType,
       String instance) {
-    if (_pendingTransitionAllowedPerInstance.containsKey(instance)
-        && _pendingTransitionAllowedPerInstance.get(instance).containsKey(rebalanceType)) {
-      chargeANYType(_pendingTransitionAllowedPerInstance.get(instance));
-      Long instanceThrottle = _pendingTransitionAllowedPerInstance.get(instance).get(rebalanceType);
-      if (instanceThrottle > 0) {
-        _pendingTransitionAllowedPerInstance.get(instance).put(rebalanceType, instanceThrottle - 1);
+    if (_instanceThrottleLimits.containsKey(rebalanceType)) {
+      Map<StateTransitionThrottleConfig.RebalanceType, Long> pendingTransitionAllowed =
+          getPendingTransitionAllowed(_pendingTransitionAllowedPerInstance, _liveInstances,
+              _instanceThrottleLimits, instance, true);
+      if (pendingTransitionAllowed != null) {
+        chargeANYType(pendingTransitionAllowed);
+        Long instanceThrottle = pendingTransitionAllowed.get(rebalanceType);
+        if (instanceThrottle > 0) {
+          pendingTransitionAllowed.put(rebalanceType, instanceThrottle - 1);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the pending allowed transition counts of an instance or a resource. Until it is charged,
+   * they are the configured limits.
+   * @param pendingTransitionAllowedMap the charged instances or resources
+   * @param names the instances or resources the limits apply to
+   * @param limits the configured limits
+   * @param name the instance or resource
+   * @param forCharge true to get a map that can be charged
+   * @return the pending allowed transition counts, or null if no limit applies
+   */
+  private Map<StateTransitionThrottleConfig.RebalanceType, Long> getPendingTransitionAllowed(
+      Map<String, Map<StateTransitionThrottleConfig.RebalanceType, Long>> pendingTransitionAllowedMap,
+      Set<String> names, Map<StateTransitionThrottleConfig.RebalanceType, Long> limits,
+      String name, boolean forCharge) {
+    Map<StateTransitionThrottleConfig.RebalanceType, Long> pendingTransitionAllowed =
+        pendingTransitionAllowedMap.get(name);
+    if (pendingTransitionAllowed == null) {
+      if (limits.isEmpty() || !names.contains(name)) {
+        return null;
+      }
+      if (!forCharge) {
+        return limits;
       }
+      pendingTransitionAllowed = new HashMap<>(limits);
+      pendingTransitionAllowedMap.put(name, pendingTransitionAllowed);
     }
+    return pendingTransitionAllowed;
   }
 
   /**
@@ -25,14 +25,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixManagerProperties;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.ZNRecord;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
 import org.apache.helix.controller.pipeline.StageException;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
@@ -139,7 +142,7 @@ public class TaskAssignmentStage extends AbstractBaseStage {
 
     Builder keyBuilder = dataAccessor.keyBuilder();
 
-    List<PropertyKey> keys = new ArrayList<PropertyKey>();
+    List<PropertyKey> keys = new ArrayList<>();
     for (Message message : messages) {
       LogUtil.logInfo(logger, _eventId,
           "Sending Message " + message.getMsgId() + " to " + message.getTgtName() + " transit "
@@ -160,6 +163,32 @@ public class TaskAssignmentStage extends AbstractBaseStage {
       keys.add(keyBuilder.message(message.getTgtName(), message.getId()));
     }
 
-    dataAccessor.createChildren(keys, new ArrayList<>(messages));
+    if (!(dataAccessor instanceof ZKHelixDataAccessor)) {
+      dataAccessor.createChildren(keys, new ArrayList<>(messages));
+      return;
+    }
+
+    // Create all the messages in as few ZooKeeper transactions as possible
+    List<DataWriteOp<ZNRecord>> ops = new ArrayList<>();
+    for (int i = 0; i < messages.size(); i++) {
+      ops.add(DataWriteOp.create(keys.get(i), messages.get(i)));
+    }
+    boolean[] success = ((ZKHelixDataAccessor) dataAccessor).multi(ops);
+
+    // A failed transaction leaves all of its messages unsent, e.g. if the message folder of one
+    // instance is missing. Create these messages one by one.
+    List<PropertyKey> failedKeys = new ArrayList<>();
+    List<Message> failedMessages = new ArrayList<>();
+    for (int i = 0; i < success.length; i++) {
+      if (!success[i]) {
+        failedKeys.add(keys.get(i));
+        failedMessages.add(messages.get(i));
+      }
+    }
+    if (!failedKeys.isEmpty()) {
+      LogUtil.logWarn(logger, _eventId,
+          "Fail to send " + failedKeys.size() + " messages in batch, send them one by one");
+      dataAccessor.createChildren(failedKeys, failedMessages);
+    }
   }
 }
@@ -27,6 +27,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import org.I0Itec.zkclient.IZkChildListener;
 import org.I0Itec.zkclient.IZkDataListener;
@@ -56,6 +63,7 @@ import org.apache.helix.NotificationContext.Type;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyPathConfig;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.common.DedupEventBlockingQueue;
 import org.apache.helix.common.DedupEventProcessor;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.CurrentState;
@@ -66,6 +74,7 @@ import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.HelixCallbackMonitor;
+import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.zookeeper.Watcher.Event.EventType;
@@ -89,6 +98,11 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
   // processor to handle async zk event resubscription.
   private static DedupEventProcessor SubscribeChangeEventProcessor;
 
+  // threads shared by the CallbackProcessors of all batch-mode CallbackHandlers
+  private static final int DEFAULT_CALLBACK_DISPATCH_POOL_SIZE =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+  private static final ThreadPoolExecutor CallbackDispatchPool;
+
   private final String _path;
   private final Object _listener;
   private final Set<EventType> _eventTypes;
@@ -102,7 +116,6 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
   private boolean _preFetchEnabled = true;
   private HelixCallbackMonitor _monitor;
 
-  // TODO: make this be per _manager or per _listener instaed of per callbackHandler -- Lei
   private CallbackProcessor _batchCallbackProcessor;
   private boolean _watchChild = true;  // Whether we should subscribe to the child znode's data change.
 
@@ -134,6 +147,19 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
         };
 
     SubscribeChangeEventProcessor.start();
+
+    int poolSize = HelixUtil.getSystemPropertyAsInt(SystemPropertyKeys.CALLBACK_DISPATCH_POOL_SIZE,
+        DEFAULT_CALLBACK_DISPATCH_POOL_SIZE);
+    CallbackDispatchPool = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          private AtomicInteger threadId = new AtomicInteger(0);
+          @Override public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "CallbackDispatcher-" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    CallbackDispatchPool.allowCoreThreadTimeOut(true);
   }
 
   class SubscribeChangeEvent {
@@ -153,23 +179,65 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     }
   }
 
-  class CallbackProcessor
-      extends DedupEventProcessor<NotificationContext.Type, NotificationContext> {
-    private CallbackHandler _handler;
+  /**
+   * Queues the batch-mode callbacks of a handler and dispatches them on the shared
+   * CallbackDispatchPool. Pending callbacks of the same type are merged, and at most one callback
+   * of the handler is running or scheduled at a time, so callbacks are invoked in order.
+   */
+  class CallbackProcessor implements Runnable {
+    private final CallbackHandler _handler;
+    private final DedupEventBlockingQueue<NotificationContext.Type, NotificationContext>
+        _eventQueue = new DedupEventBlockingQueue<>();
+    private final AtomicBoolean _scheduled = new AtomicBoolean(false);
+    private volatile boolean _shutdown = false;
 
     public CallbackProcessor(CallbackHandler handler) {
-      super(_manager.getClusterName(), "CallbackProcessor");
       _handler = handler;
     }
 
+    public void queueEvent(NotificationContext.Type eventType, NotificationContext event) {
+      if (_shutdown) {
+        return;
+      }
+      _eventQueue.put(eventType, event);
+      schedule();
+    }
+
+    private void schedule() {
+      if (!_shutdown && !_eventQueue.isEmpty() && _scheduled.compareAndSet(false, true)) {
+        try {
+          CallbackDispatchPool.execute(this);
+        } catch (RejectedExecutionException e) {
+          _scheduled.set(false);
+          logger.error("Fail to schedule callback processing for listener: " + _listener, e);
+        }
+      }
+    }
+
     @Override
-    protected void handleEvent(NotificationContext event) {
+    public void run() {
       try {
-        _handler.invoke(event);
+        NotificationContext event = _eventQueue.poll();
+        if (event != null && !_shutdown) {
+          if (_monitor != null) {
+            _monitor.updateCallbackQueueLatency(
+                System.currentTimeMillis() - event.getCreationTime());
+          }
+          _handler.invoke(event);
+        }
       } catch (Exception e) {
         logger.warn("Exception in callback processing thread. Skipping callback", e);
+      } finally {
+        // handle the next callback in a new task so that the handlers share the pool fairly
+        _scheduled.set(false);
+        schedule();
       }
     }
+
+    public void shutdown() {
+      _shutdown = true;
+      _eventQueue.clear();
+    }
   }
 
   /**
@@ -576,7 +644,6 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
         _batchCallbackProcessor.shutdown();
       }
       _batchCallbackProcessor = new CallbackProcessor(this);
-      _batchCallbackProcessor.start();
     }
 
     updateNotificationTime(System.nanoTime());
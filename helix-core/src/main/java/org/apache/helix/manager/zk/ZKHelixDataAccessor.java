@@ -29,6 +29,7 @@ import org.I0Itec.zkclient.DataUpdater;
 import org.I0Itec.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.GroupCommit;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixProperty;
@@ -37,6 +38,7 @@ import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.PropertyType;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.ZNRecordAssembler;
 import org.apache.helix.ZNRecordBucketizer;
@@ -47,6 +49,7 @@ import org.apache.helix.model.MaintenanceSignal;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.PauseSignal;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.zookeeper.data.Stat;
@@ -58,7 +61,8 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
   final InstanceType _instanceType;
   private final String _clusterName;
   private final Builder _propertyKeyBuilder;
-  private final GroupCommit _groupCommit = new GroupCommit();
+  private final GroupCommit _groupCommit = new GroupCommit(HelixUtil
+      .getSystemPropertyAsLong(SystemPropertyKeys.CURRENT_STATE_UPDATE_COMMIT_WINDOW, 0L));
 
   public ZKHelixDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     this(clusterName, null, baseDataAccessor);
@@ -72,6 +76,13 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     _propertyKeyBuilder = new PropertyKey.Builder(_clusterName);
   }
 
+  /**
+   * Return the group committer that merges the current state updates of this accessor.
+   */
+  public GroupCommit getCurrentStateGroupCommit() {
+    return _groupCommit;
+  }
+
   @Override
   public boolean createStateModelDef(StateModelDefinition stateModelDef) {
     String path = PropertyPathBuilder.stateModelDef(_clusterName, stateModelDef.getId());
@@ -580,6 +591,42 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     return success;
   }
 
+  /**
+   * Apply a batch of creates, sets and removes of persistent properties. With a ZooKeeper backed
+   * accessor the operations are written in size-bounded atomic transactions, see
+   * {@link ZkBaseDataAccessor#multi(List, int)}; otherwise they are applied one by one with the
+   * same semantics, see {@link DataWriteOp.Type}.
+   * @param ops the operations to apply, see {@link DataWriteOp#create(PropertyKey, HelixProperty)}
+   * @return array where true means the operation succeeded and false means it did not
+   */
+  public boolean[] multi(List<DataWriteOp<ZNRecord>> ops) {
+    int options = AccessOption.PERSISTENT;
+    if (_baseDataAccessor instanceof ZkBaseDataAccessor) {
+      return ((ZkBaseDataAccessor<ZNRecord>) _baseDataAccessor).multi(ops, options);
+    }
+    if (_baseDataAccessor instanceof ZkCacheBaseDataAccessor) {
+      return ((ZkCacheBaseDataAccessor<ZNRecord>) _baseDataAccessor).multi(ops, options);
+    }
+
+    boolean[] success = new boolean[ops.size()];
+    for (int i = 0; i < ops.size(); i++) {
+      DataWriteOp<ZNRecord> op = ops.get(i);
+      switch (op.getType()) {
+      case CREATE:
+        success[i] = _baseDataAccessor.create(op.getPath(), op.getRecord(), options);
+        break;
+      case SET:
+        success[i] =
+            ZkBaseDataAccessor.setIfExists(_baseDataAccessor, op.getPath(), op.getRecord(), options);
+        break;
+      default:
+        success[i] = _baseDataAccessor.remove(op.getPath(), options);
+        break;
+      }
+    }
+    return success;
+  }
+
   @Override
   public BaseDataAccessor<ZNRecord> getBaseDataAccessor() {
     return _baseDataAccessor;
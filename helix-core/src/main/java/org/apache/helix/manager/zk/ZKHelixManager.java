@@ -614,6 +614,8 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
       _baseDataAccessor = createBaseDataAccessor();
 
       _dataAccessor = new ZKHelixDataAccessor(_clusterName, _instanceType, _baseDataAccessor);
+      _messagingService.getExecutor().getParticipantMonitor()
+          .monitorCurrentStateUpdates(_dataAccessor.getCurrentStateGroupCommit());
       _configAccessor = new ConfigAccessor(_zkclient);
 
       if (_instanceType == InstanceType.CONTROLLER
@@ -0,0 +1,458 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.I0Itec.zkclient.exception.ZkMarshallingError;
+import org.I0Itec.zkclient.serialize.ZkSerializer;
+import org.apache.helix.HelixException;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.monitoring.mbeans.CompressionMonitor;
+import org.apache.helix.util.compression.CompressionCodec;
+import org.apache.helix.util.compression.CompressionCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes ZNRecord into a compact binary format.
+ * <p>
+ * Layout: a 4-byte magic header, a format version byte, a flags byte, then the record body,
+ * compressed by a {@link CompressionCodec} if the compressed flag is set. All lengths and counts
+ * are varints. Every string is interned into a dictionary the first time it is written, and
+ * written as a reference to the dictionary afterwards, so repeated field names, instance names and
+ * states are stored once.
+ * The dictionary starts out with the strings in {@link #PRESET_DICTIONARY}, so the common message
+ * and current state fields cost a single byte even in small records such as state transition
+ * messages.
+ * <p>
+ * Deserialization detects the format by the magic header and falls back to
+ * {@link ZNRecordSerializer} for JSON data, so clusters can be migrated with mixed formats.
+ * {@link ZNRecordSerializer} and {@link ZNRecordStreamingSerializer} read this format as well.
+ */
+public class ZNRecordBinarySerializer implements ZkSerializer {
+  private static Logger LOG = LoggerFactory.getLogger(ZNRecordBinarySerializer.class);
+
+  // 0xFE never appears in UTF-8, so the header can't collide with JSON or GZIP data.
+  private static final byte[] MAGIC = { (byte) 0xFE, 'Z', 'N', 'R' };
+  private static final byte FORMAT_VERSION = 1;
+  private static final int HEADER_LENGTH = MAGIC.length + 2;
+  private static final int FLAG_COMPRESSED = 0x01;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Strings every reader knows without reading them from the data. Records written with this list
+   * must stay readable, so it can only be appended to.
+   */
+  private static final String[] PRESET_DICTIONARY = {
+      // message fields
+      "MSG_ID", "RELAY_MSG_ID", "SRC_SESSION_ID", "TGT_SESSION_ID", "SRC_NAME", "TGT_NAME",
+      "SRC_INSTANCE_TYPE", "MSG_STATE", "PARTITION_NAME", "RESOURCE_NAME", "RESOURCE_GROUP_NAME",
+      "RESOURCE_TAG", "FROM_STATE", "TO_STATE", "STATE_MODEL_DEF", "CREATE_TIMESTAMP",
+      "READ_TIMESTAMP", "EXECUTE_START_TIMESTAMP", "MSG_TYPE", "MSG_SUBTYPE", "CORRELATION_ID",
+      "EXE_SESSION_ID", "TIMEOUT", "RETRY_COUNT", "STATE_MODEL_FACTORY_NAME", "BUCKET_SIZE",
+      "PARENT_MSG_ID",
+      // message types and states
+      "STATE_TRANSITION", "STATE_TRANSITION_CANCELLATION", "SCHEDULER_MSG", "TASK_REPLY",
+      "NO_OP", "new", "read", "unprocessable", "DEFAULT", "true", "false",
+      // current state fields
+      "SESSION_ID", "CURRENT_STATE", "REQUESTED_STATE", "INFO", "START_TIME", "END_TIME",
+      "PREVIOUS_STATE", "TRIGGERED_BY",
+      // built-in state model definitions and their states
+      "MasterSlave", "LeaderStandby", "OnlineOffline", "Task", "MASTER", "SLAVE", "LEADER",
+      "STANDBY", "ONLINE", "OFFLINE", "DROPPED", "ERROR", "INIT", "RUNNING", "STOPPED",
+      "COMPLETED", "TIMED_OUT", "TASK_ERROR", "TASK_ABORTED"
+  };
+  private static final Map<String, Integer> PRESET_INDEX = new HashMap<>();
+
+  static {
+    for (int i = 0; i < PRESET_DICTIONARY.length; i++) {
+      PRESET_INDEX.put(PRESET_DICTIONARY[i], i);
+    }
+  }
+
+  private final ZNRecordSerializer _jsonSerializer;
+  private final CompressionCodec _compressionCodec;
+  private final CompressionMonitor _compressionMonitor;
+
+  public ZNRecordBinarySerializer() {
+    this(null, null);
+  }
+
+  /**
+   * Create a serializer compressing every ZNRecord with the codec, unless the record selects its
+   * own codec. Without a codec, only the records that enable compression or exceed
+   * {@link ZNRecord#SIZE_LIMIT} are compressed, with {@link CompressionCodecs#DEFLATE_FAST}.
+   * @param compressionCodec the codec, or null to compress only the records that enable it
+   * @param compressionMonitor the monitor of the compression, may be null
+   */
+  public ZNRecordBinarySerializer(CompressionCodec compressionCodec,
+      CompressionMonitor compressionMonitor) {
+    _compressionCodec = compressionCodec;
+    _compressionMonitor = compressionMonitor;
+    _jsonSerializer = new ZNRecordSerializer(compressionCodec, compressionMonitor);
+  }
+
+  /**
+   * Check if the bytes are in the format written by this serializer.
+   * @param bytes
+   * @return true if the bytes start with the magic header
+   */
+  public static boolean isBinaryFormat(byte[] bytes) {
+    if (bytes == null || bytes.length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getListFieldBound(ZNRecord record) {
+    int max = Integer.MAX_VALUE;
+    if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
+      String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
+      try {
+        max = Integer.parseInt(maxStr);
+      } catch (Exception e) {
+        LOG.error("IllegalNumberFormat for list field bound: " + maxStr);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public byte[] serialize(Object data) throws ZkMarshallingError {
+    if (!(data instanceof ZNRecord)) {
+      // null is NOT an instance of any class
+      LOG.error("Input object must be of type ZNRecord but it is " + data
+          + ". Will not write to zk");
+      throw new HelixException("Input object is not of type ZNRecord (was " + data + ")");
+    }
+
+    // apply retention policy on list field
+    ZNRecord record = (ZNRecord) data;
+    int max = getListFieldBound(record);
+    if (max < Integer.MAX_VALUE) {
+      Map<String, List<String>> listMap = record.getListFields();
+      for (String key : listMap.keySet()) {
+        List<String> list = listMap.get(key);
+        if (list.size() > max) {
+          listMap.put(key, list.subList(0, max));
+        }
+      }
+    }
+
+    byte[] serializedBytes;
+    try {
+      Encoder encoder = new Encoder();
+      encoder.writeRecord(record);
+      byte[] body = encoder.toByteArray();
+      CompressionCodec codec = CompressionCodecs.selectCodec(record, _compressionCodec,
+          CompressionCodecs.DEFLATE_FAST, body.length + HEADER_LENGTH);
+      if (codec != null) {
+        long startCpuTime = _compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+        int uncompressedLength = body.length;
+        body = codec.compress(body);
+        if (_compressionMonitor != null) {
+          _compressionMonitor.recordCompression(uncompressedLength, body.length, startCpuTime);
+        }
+      }
+
+      serializedBytes = new byte[HEADER_LENGTH + body.length];
+      System.arraycopy(MAGIC, 0, serializedBytes, 0, MAGIC.length);
+      serializedBytes[MAGIC.length] = FORMAT_VERSION;
+      serializedBytes[MAGIC.length + 1] = (byte) (codec != null ? FLAG_COMPRESSED : 0);
+      System.arraycopy(body, 0, serializedBytes, HEADER_LENGTH, body.length);
+    } catch (Exception e) {
+      LOG.error("Exception during data serialization. Will not write to zk. ZNRecord.id: "
+          + record.getId(), e);
+      throw new HelixException(e);
+    }
+
+    // check size
+    if (serializedBytes.length > ZNRecord.SIZE_LIMIT) {
+      LOG.error("Data size larger than 1M, ZNRecord.id: " + record.getId()
+          + ". Will not write to zk.");
+      throw new HelixException("Data size larger than 1M, ZNRecord.id: " + record.getId());
+    }
+    return serializedBytes;
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws ZkMarshallingError {
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+    if (!isBinaryFormat(bytes)) {
+      return _jsonSerializer.deserialize(bytes);
+    }
+    return deserializeBinary(bytes, _compressionMonitor);
+  }
+
+  /**
+   * Deserialize the bytes that are known to be in binary format.
+   * @param bytes
+   * @return the ZNRecord, or null if the bytes can't be deserialized
+   */
+  static ZNRecord deserializeBinary(byte[] bytes) {
+    return deserializeBinary(bytes, null);
+  }
+
+  private static ZNRecord deserializeBinary(byte[] bytes, CompressionMonitor compressionMonitor) {
+    try {
+      if (bytes[MAGIC.length] > FORMAT_VERSION) {
+        throw new IOException("Unsupported binary ZNRecord format version: "
+            + bytes[MAGIC.length]);
+      }
+      InputStream in =
+          new ByteArrayInputStream(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+      boolean compressed = (bytes[MAGIC.length + 1] & FLAG_COMPRESSED) != 0;
+      long startCpuTime =
+          compressed && compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+      if (compressed) {
+        byte[] body = Arrays.copyOfRange(bytes, HEADER_LENGTH, bytes.length);
+        CompressionCodec codec = CompressionCodecs.detectCodec(body);
+        if (codec == null) {
+          throw new IOException("Unknown compression codec of binary ZNRecord");
+        }
+        // Decode while decompressing, without materializing the uncompressed bytes.
+        in = new BufferedInputStream(codec.decompress(new ByteArrayInputStream(body)));
+      }
+      try {
+        ZNRecord record = new Decoder(in).readRecord();
+        if (compressed && compressionMonitor != null) {
+          compressionMonitor.recordDecompression(startCpuTime);
+        }
+        return record;
+      } finally {
+        in.close();
+      }
+    } catch (Exception e) {
+      LOG.error("Exception during deserialization of binary ZNRecord, length: " + bytes.length,
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the record body. Strings are interned in a dictionary: a tag of 0 is a null string, an
+   * odd tag refers to the (tag >> 1)-th string in the dictionary, and an even tag is followed by
+   * (tag >> 1) - 1 bytes of a new UTF-8 string, which is appended to the dictionary. The dictionary
+   * starts with the preset strings.
+   */
+  private static class Encoder extends ByteArrayOutputStream {
+    private final Map<String, Integer> _dictionary = new HashMap<>();
+
+    Encoder() {
+      super(4096);
+    }
+
+    void writeRecord(ZNRecord record) {
+      writeString(record.getId());
+
+      Map<String, String> simpleFields = record.getSimpleFields();
+      writeVarInt(simpleFields.size());
+      for (Map.Entry<String, String> entry : simpleFields.entrySet()) {
+        writeString(entry.getKey());
+        writeString(entry.getValue());
+      }
+
+      Map<String, List<String>> listFields = record.getListFields();
+      writeVarInt(listFields.size());
+      for (Map.Entry<String, List<String>> entry : listFields.entrySet()) {
+        writeString(entry.getKey());
+        List<String> list = entry.getValue();
+        writeVarInt(list.size());
+        for (String value : list) {
+          writeString(value);
+        }
+      }
+
+      Map<String, Map<String, String>> mapFields = record.getMapFields();
+      writeVarInt(mapFields.size());
+      for (Map.Entry<String, Map<String, String>> entry : mapFields.entrySet()) {
+        writeString(entry.getKey());
+        Map<String, String> map = entry.getValue();
+        writeVarInt(map.size());
+        for (Map.Entry<String, String> mapEntry : map.entrySet()) {
+          writeString(mapEntry.getKey());
+          writeString(mapEntry.getValue());
+        }
+      }
+
+      byte[] rawPayload = record.getRawPayload();
+      if (rawPayload == null) {
+        writeVarInt(0);
+      } else {
+        writeVarInt(rawPayload.length + 1);
+        write(rawPayload, 0, rawPayload.length);
+      }
+    }
+
+    void writeString(String value) {
+      if (value == null) {
+        writeVarInt(0);
+        return;
+      }
+      Integer index = PRESET_INDEX.get(value);
+      if (index == null) {
+        index = _dictionary.get(value);
+      }
+      if (index != null) {
+        writeVarInt((index << 1) | 1);
+        return;
+      }
+      _dictionary.put(value, PRESET_DICTIONARY.length + _dictionary.size());
+      byte[] bytes = value.getBytes(UTF_8);
+      writeVarInt((bytes.length + 1) << 1);
+      write(bytes, 0, bytes.length);
+    }
+
+    void writeVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        write((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+  }
+
+  /**
+   * Reads the record body written by {@link Encoder} from a stream.
+   */
+  private static class Decoder {
+    private final InputStream _in;
+    private final List<String> _dictionary = new ArrayList<>();
+    private byte[] _buffer = new byte[256];
+
+    Decoder(InputStream in) {
+      _in = in;
+      _dictionary.addAll(Arrays.asList(PRESET_DICTIONARY));
+    }
+
+    ZNRecord readRecord() throws IOException {
+      String id = readString();
+      if (id == null) {
+        throw new IllegalStateException("ZNRecord id field is required!");
+      }
+      ZNRecord record = new ZNRecord(id);
+
+      int simpleFieldCount = readVarInt();
+      Map<String, String> simpleFields = record.getSimpleFields();
+      for (int i = 0; i < simpleFieldCount; i++) {
+        String key = readString();
+        simpleFields.put(key, readString());
+      }
+
+      int listFieldCount = readVarInt();
+      Map<String, List<String>> listFields = record.getListFields();
+      for (int i = 0; i < listFieldCount; i++) {
+        String key = readString();
+        int size = readVarInt();
+        List<String> list = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          list.add(readString());
+        }
+        listFields.put(key, list);
+      }
+
+      int mapFieldCount = readVarInt();
+      Map<String, Map<String, String>> mapFields = record.getMapFields();
+      for (int i = 0; i < mapFieldCount; i++) {
+        String key = readString();
+        int size = readVarInt();
+        Map<String, String> map = new TreeMap<>();
+        for (int j = 0; j < size; j++) {
+          String mapKey = readString();
+          map.put(mapKey, readString());
+        }
+        mapFields.put(key, map);
+      }
+
+      int rawPayloadLength = readVarInt();
+      if (rawPayloadLength > 0) {
+        byte[] rawPayload = new byte[rawPayloadLength - 1];
+        readFully(rawPayload, rawPayload.length);
+        record.setRawPayload(rawPayload);
+      }
+      return record;
+    }
+
+    String readString() throws IOException {
+      int tag = readVarInt();
+      if (tag == 0) {
+        return null;
+      }
+      if ((tag & 1) != 0) {
+        return _dictionary.get(tag >>> 1);
+      }
+      int length = (tag >>> 1) - 1;
+      if (_buffer.length < length) {
+        _buffer = new byte[Math.max(length, _buffer.length * 2)];
+      }
+      readFully(_buffer, length);
+      String value = new String(_buffer, 0, length, UTF_8);
+      _dictionary.add(value);
+      return value;
+    }
+
+    int readVarInt() throws IOException {
+      int value = 0;
+      for (int shift = 0; shift < 32; shift += 7) {
+        int b = _in.read();
+        if (b < 0) {
+          throw new EOFException("Unexpected end of binary ZNRecord");
+        }
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IOException("Malformed varint in binary ZNRecord");
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+      int offset = 0;
+      while (offset < length) {
+        int read = _in.read(buffer, offset, length - offset);
+        if (read < 0) {
+          throw new EOFException("Unexpected end of binary ZNRecord");
+        }
+        offset += read;
+      }
+    }
+  }
+}
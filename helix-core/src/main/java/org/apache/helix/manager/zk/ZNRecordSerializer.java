@@ -22,6 +22,7 @@ package org.apache.helix.manager.zk;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.List;
 import java.util.Map;
@@ -31,7 +32,9 @@ import java.util.zip.GZIPOutputStream;
 import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.HelixException;
 import org.apache.helix.ZNRecord;
-import org.apache.helix.util.GZipCompressionUtil;
+import org.apache.helix.monitoring.mbeans.CompressionMonitor;
+import org.apache.helix.util.compression.CompressionCodec;
+import org.apache.helix.util.compression.CompressionCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.codehaus.jackson.map.DeserializationConfig;
@@ -41,6 +44,26 @@ import org.codehaus.jackson.map.SerializationConfig;
 public class ZNRecordSerializer implements ZkSerializer {
   private static Logger logger = LoggerFactory.getLogger(ZNRecordSerializer.class);
 
+  private final CompressionCodec _compressionCodec;
+  private final CompressionMonitor _compressionMonitor;
+
+  public ZNRecordSerializer() {
+    this(null, null);
+  }
+
+  /**
+   * Create a serializer compressing every ZNRecord with the codec, unless the record selects its
+   * own codec. To compress only the ZNRecords on some paths, configure serializers per path with
+   * {@link ChainedPathZkSerializer}.
+   * @param compressionCodec the codec, or null to compress only the records that enable it
+   * @param compressionMonitor the monitor of the compression, may be null
+   */
+  public ZNRecordSerializer(CompressionCodec compressionCodec,
+      CompressionMonitor compressionMonitor) {
+    _compressionCodec = compressionCodec;
+    _compressionMonitor = compressionMonitor;
+  }
+
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
     if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
@@ -89,8 +112,16 @@ public class ZNRecordSerializer implements ZkSerializer {
       mapper.writeValue(baos, data);
       serializedBytes = baos.toByteArray();
       // apply compression if needed
-      if (record.getBooleanField("enableCompression", false) || serializedBytes.length > ZNRecord.SIZE_LIMIT) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+      CompressionCodec codec =
+          CompressionCodecs.selectCodec(record, _compressionCodec, serializedBytes.length);
+      if (codec != null) {
+        long startCpuTime = _compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+        int uncompressedLength = serializedBytes.length;
+        serializedBytes = codec.compress(serializedBytes);
+        if (_compressionMonitor != null) {
+          _compressionMonitor
+              .recordCompression(uncompressedLength, serializedBytes.length, startCpuTime);
+        }
       }
     } catch (Exception e) {
       logger.error("Exception during data serialization. Will not write to zk. Data (first 1k): "
@@ -112,6 +143,10 @@ public class ZNRecordSerializer implements ZkSerializer {
       // reading a parent/null node
       return null;
     }
+    if (ZNRecordBinarySerializer.isBinaryFormat(bytes)) {
+      // written by ZNRecordBinarySerializer
+      return ZNRecordBinarySerializer.deserializeBinary(bytes);
+    }
 
     ObjectMapper mapper = new ObjectMapper();
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
@@ -121,14 +156,22 @@ public class ZNRecordSerializer implements ZkSerializer {
     deserializationConfig.set(DeserializationConfig.Feature.AUTO_DETECT_SETTERS, true);
     deserializationConfig.set(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, true);
     try {
-      //decompress the data if its already compressed
-      if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
-        bais = new ByteArrayInputStream(uncompressedBytes);
+      // decompress the data while parsing if it's compressed
+      CompressionCodec codec = CompressionCodecs.detectCodec(bytes);
+      if (codec == null) {
+        return mapper.readValue(bais, ZNRecord.class);
+      }
+      long startCpuTime = _compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+      InputStream in = codec.decompress(bais);
+      try {
+        ZNRecord zn = mapper.readValue(in, ZNRecord.class);
+        if (_compressionMonitor != null) {
+          _compressionMonitor.recordDecompression(startCpuTime);
+        }
+        return zn;
+      } finally {
+        in.close();
       }
-      ZNRecord zn = mapper.readValue(bais, ZNRecord.class);
-
-      return zn;
     } catch (Exception e) {
       logger.error("Exception during deserialization of bytes: " + new String(bytes), e);
       return null;
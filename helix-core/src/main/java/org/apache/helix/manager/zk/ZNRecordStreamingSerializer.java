@@ -21,6 +21,7 @@ package org.apache.helix.manager.zk;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,7 +35,9 @@ import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.helix.HelixException;
 import org.apache.helix.ZNRecord;
-import org.apache.helix.util.GZipCompressionUtil;
+import org.apache.helix.monitoring.mbeans.CompressionMonitor;
+import org.apache.helix.util.compression.CompressionCodec;
+import org.apache.helix.util.compression.CompressionCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.codehaus.jackson.JsonFactory;
@@ -47,6 +50,26 @@ import com.google.common.collect.Maps;
 public class ZNRecordStreamingSerializer implements ZkSerializer {
   private static Logger LOG = LoggerFactory.getLogger(ZNRecordStreamingSerializer.class);
 
+  private final CompressionCodec _compressionCodec;
+  private final CompressionMonitor _compressionMonitor;
+
+  public ZNRecordStreamingSerializer() {
+    this(null, null);
+  }
+
+  /**
+   * Create a serializer compressing every ZNRecord with the codec, unless the record selects its
+   * own codec. To compress only the ZNRecords on some paths, configure serializers per path with
+   * {@link ChainedPathZkSerializer}.
+   * @param compressionCodec the codec, or null to compress only the records that enable it
+   * @param compressionMonitor the monitor of the compression, may be null
+   */
+  public ZNRecordStreamingSerializer(CompressionCodec compressionCodec,
+      CompressionMonitor compressionMonitor) {
+    _compressionCodec = compressionCodec;
+    _compressionMonitor = compressionMonitor;
+  }
+
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
     if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
@@ -157,8 +180,16 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       g.close();
       serializedBytes = baos.toByteArray();
       // apply compression if needed
-      if (record.getBooleanField("enableCompression", false) || serializedBytes.length > ZNRecord.SIZE_LIMIT) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+      CompressionCodec codec =
+          CompressionCodecs.selectCodec(record, _compressionCodec, serializedBytes.length);
+      if (codec != null) {
+        long startCpuTime = _compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+        int uncompressedLength = serializedBytes.length;
+        serializedBytes = codec.compress(serializedBytes);
+        if (_compressionMonitor != null) {
+          _compressionMonitor
+              .recordCompression(uncompressedLength, serializedBytes.length, startCpuTime);
+        }
       }
     } catch (Exception e) {
       LOG.error("Exception during data serialization. Will not write to zk. Data (first 1k): "
@@ -182,6 +213,10 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       LOG.error("ZNode is empty.");
       return null;
     }
+    if (ZNRecordBinarySerializer.isBinaryFormat(bytes)) {
+      // written by ZNRecordBinarySerializer
+      return ZNRecordBinarySerializer.deserializeBinary(bytes);
+    }
 
     ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
 
@@ -193,13 +228,13 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
     byte[] rawPayload = null;
 
     try {
-      // decompress the data if its already compressed
-      if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
-        bais = new ByteArrayInputStream(uncompressedBytes);
-      }
+      // decompress the data while parsing if it's compressed
+      CompressionCodec codec = CompressionCodecs.detectCodec(bytes);
+      long startCpuTime =
+          codec != null && _compressionMonitor != null ? CompressionMonitor.getCpuTime() : 0;
+      InputStream in = codec != null ? codec.decompress(bais) : bais;
       JsonFactory f = new JsonFactory();
-      JsonParser jp = f.createJsonParser(bais);
+      JsonParser jp = f.createJsonParser(in);
 
       jp.nextToken(); // will return JsonToken.START_OBJECT (verify?)
       while (jp.nextToken() != JsonToken.END_OBJECT) {
@@ -247,6 +282,9 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
         }
       }
       jp.close(); // ensure resources get cleaned up timely and properly
+      if (codec != null && _compressionMonitor != null) {
+        _compressionMonitor.recordDecompression(startCpuTime);
+      }
 
       if (id == null) {
         throw new IllegalStateException("ZNRecord id field is required!");
@@ -35,6 +35,7 @@ import org.I0Itec.zkclient.exception.ZkNoNodeException;
 import org.I0Itec.zkclient.exception.ZkNodeExistsException;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.HelixException;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
@@ -47,6 +48,8 @@ import org.apache.helix.store.zk.ZNode;
 import org.apache.helix.util.HelixUtil;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.server.DataTree;
 import org.slf4j.Logger;
@@ -83,6 +86,10 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
   private static Logger LOG = LoggerFactory.getLogger(ZkBaseDataAccessor.class);
 
+  // Bounds of a multi() transaction, the serialized size is kept well below jute.maxbuffer (1MB)
+  static final int MAX_MULTI_OPS = 1000;
+  static final int MAX_MULTI_BYTES = 512 * 1024;
+
   private final ZkClient _zkClient;
 
   public ZkBaseDataAccessor(ZkClient zkClient) {
@@ -849,7 +856,6 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
       return updateData;
     }
 
-    SetDataCallbackHandler[] cbList = new SetDataCallbackHandler[paths.size()];
     CreateCallbackHandler[] createCbList = null;
     boolean[] needUpdate = new boolean[paths.size()];
     Arrays.fill(needUpdate, true);
@@ -860,6 +866,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
       boolean retry;
       do {
         retry = false;
+        SetDataCallbackHandler[] cbList = new SetDataCallbackHandler[paths.size()];
         boolean[] needCreate = new boolean[paths.size()]; // init'ed with false
         boolean failOnNoNode = false;
 
@@ -911,8 +918,8 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
             needUpdate[i] = false;
             break;
           case NONODE:
-            failOnNoNode = true;
-            needCreate[i] = true;
+            // node removed after read, retry so the updater sees the removal
+            retry = true;
             break;
           case BADVERSION:
             failOnBadVersion = true;
@@ -1065,6 +1072,169 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * Apply a batch of creates, sets and removes in size-bounded ZooKeeper multi() transactions.
+   * Each transaction is applied atomically, in the given order: if it fails, none of its
+   * operations are applied and all of them are reported as failed. An operation that is too large
+   * to fit in a transaction is applied on its own: a create with the semantics of
+   * {@link #createChildren}, a set only if the node exists, see {@link DataWriteOp.Type#SET}, and a
+   * remove with the semantics of {@link #remove(String, int)}.
+   * @param ops the operations to apply
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   * @return For each operation: true if it succeeded, false otherwise
+   */
+  public boolean[] multi(List<DataWriteOp<T>> ops, int options) {
+    boolean[] success = new boolean[ops.size()];
+
+    CreateMode mode = AccessOption.getMode(options);
+    if (mode == null) {
+      LOG.error("Invalid multi mode. options: " + options);
+      return success;
+    }
+
+    List<Op> batch = new ArrayList<>();
+    List<Integer> batchIndexes = new ArrayList<>();
+    List<Integer> oversizedIndexes = new ArrayList<>();
+    int batchBytes = 0;
+    long startT = System.nanoTime();
+    try {
+      for (int i = 0; i < ops.size(); i++) {
+        DataWriteOp<T> op = ops.get(i);
+        Op zkOp;
+        int bytes = op.getPath().length();
+        try {
+          byte[] data = op.getType() == DataWriteOp.Type.REMOVE ? null
+              : _zkClient.serialize(op.getRecord(), op.getPath());
+          bytes += data == null ? 0 : data.length;
+          zkOp = toZkOp(op, data, mode);
+        } catch (Exception e) {
+          LOG.error("Fail to serialize " + op + " for multi", e);
+          continue;
+        }
+
+        if (bytes > MAX_MULTI_BYTES) {
+          oversizedIndexes.add(i);
+          continue;
+        }
+        if (batch.size() >= MAX_MULTI_OPS || batchBytes + bytes > MAX_MULTI_BYTES) {
+          commit(ops, batch, batchIndexes, success, options);
+          batch.clear();
+          batchIndexes.clear();
+          batchBytes = 0;
+        }
+        batch.add(zkOp);
+        batchIndexes.add(i);
+        batchBytes += bytes;
+      }
+      commit(ops, batch, batchIndexes, success, options);
+      if (!oversizedIndexes.isEmpty()) {
+        apply(ops, oversizedIndexes, success, options);
+      }
+      return success;
+    } finally {
+      long endT = System.nanoTime();
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("multi, size: " + ops.size() + ", oversized: " + oversizedIndexes.size()
+            + ", time: " + (endT - startT) + " ns");
+      }
+    }
+  }
+
+  private Op toZkOp(DataWriteOp<T> op, byte[] data, CreateMode mode) {
+    switch (op.getType()) {
+    case CREATE:
+      return Op.create(op.getPath(), data, ZooDefs.Ids.OPEN_ACL_UNSAFE, mode);
+    case SET:
+      return Op.setData(op.getPath(), data, -1);
+    case REMOVE:
+      return Op.delete(op.getPath(), -1);
+    default:
+      throw new IllegalArgumentException("Unsupported operation: " + op);
+    }
+  }
+
+  /**
+   * Commit a batch atomically, all its operations are reported as failed if the transaction fails
+   */
+  private void commit(List<DataWriteOp<T>> ops, List<Op> batch, List<Integer> batchIndexes,
+      boolean[] success, int options) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      _zkClient.multi(batch);
+      for (int index : batchIndexes) {
+        success[index] = true;
+      }
+    } catch (ZkException e) {
+      // e.g. a node to set does not exist, or a node to create exists
+      List<DataWriteOp<T>> failedOps = new ArrayList<>();
+      for (int index : batchIndexes) {
+        failedOps.add(ops.get(index));
+      }
+      LOG.error("Fail to commit " + batch.size() + " operations in one transaction: " + failedOps,
+          e);
+    }
+  }
+
+  /**
+   * Apply the operations that are too large for a transaction one by one, using async api for
+   * creates
+   */
+  private void apply(List<DataWriteOp<T>> ops, List<Integer> indexes, boolean[] success,
+      int options) {
+    List<Integer> createIndexes = new ArrayList<>();
+    List<String> createPaths = new ArrayList<>();
+    List<T> createRecords = new ArrayList<>();
+    for (int index : indexes) {
+      DataWriteOp<T> op = ops.get(index);
+      switch (op.getType()) {
+      case CREATE:
+        createIndexes.add(index);
+        createPaths.add(op.getPath());
+        createRecords.add(op.getRecord());
+        break;
+      case SET:
+        success[index] = setIfExists(this, op.getPath(), op.getRecord(), options);
+        break;
+      case REMOVE:
+        success[index] = remove(op.getPath(), options);
+        break;
+      default:
+        break;
+      }
+    }
+    if (!createIndexes.isEmpty()) {
+      boolean[] created = createChildren(createPaths, createRecords, options);
+      for (int i = 0; i < created.length; i++) {
+        success[createIndexes.get(i)] = created[i];
+      }
+    }
+  }
+
+  /**
+   * Set the data of a node only if it exists, which is the semantics of a set in a ZooKeeper
+   * transaction. Unlike {@link BaseDataAccessor#set(String, Object, int)}, a missing node is not
+   * created.
+   * @return true if the node exists and is set, false otherwise
+   */
+  static <T> boolean setIfExists(BaseDataAccessor<T> accessor, String path, T record,
+      int options) {
+    while (true) {
+      // check existence first, a cache miss in getStat() may cache a missing node
+      Stat stat = accessor.exists(path, options) ? accessor.getStat(path, options) : null;
+      if (stat == null) {
+        return false;
+      }
+      try {
+        // a set with the expected version fails instead of creating the node if it is removed
+        return accessor.set(path, record, stat.getVersion(), options);
+      } catch (ZkBadVersionException e) {
+        // modified concurrently, retry
+      }
+    }
+  }
+
   /**
    * Subscribe to zookeeper data changes
    */
@@ -35,6 +35,7 @@ import org.I0Itec.zkclient.IZkDataListener;
 import org.I0Itec.zkclient.exception.ZkNoNodeException;
 import org.I0Itec.zkclient.serialize.ZkSerializer;
 import org.apache.helix.AccessOption;
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.HelixException;
 import org.apache.helix.manager.zk.ZkAsyncCallbacks.CreateCallbackHandler;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
@@ -485,6 +486,52 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     return _baseAccessor.setChildren(serverPaths, records, options);
   }
 
+  /**
+   * Apply a batch of creates, sets and removes, see {@link ZkBaseDataAccessor#multi(List, int)}.
+   * Operations on cached paths are applied one by one to keep the cache up-to-date.
+   */
+  public boolean[] multi(List<DataWriteOp<T>> ops, int options) {
+    List<DataWriteOp<T>> serverOps = new ArrayList<>();
+    boolean isCached = false;
+    for (DataWriteOp<T> op : ops) {
+      String serverPath = prependChroot(op.getPath());
+      isCached = isCached || getCache(serverPath) != null;
+      switch (op.getType()) {
+      case CREATE:
+        serverOps.add(DataWriteOp.create(serverPath, op.getRecord()));
+        break;
+      case SET:
+        serverOps.add(DataWriteOp.set(serverPath, op.getRecord()));
+        break;
+      default:
+        serverOps.add(DataWriteOp.<T>remove(serverPath));
+        break;
+      }
+    }
+
+    if (isCached) {
+      // apply one by one so that the cache is kept up-to-date
+      boolean[] success = new boolean[ops.size()];
+      for (int i = 0; i < ops.size(); i++) {
+        DataWriteOp<T> op = ops.get(i);
+        switch (op.getType()) {
+        case CREATE:
+          success[i] = create(op.getPath(), op.getRecord(), options);
+          break;
+        case SET:
+          success[i] = ZkBaseDataAccessor.setIfExists(this, op.getPath(), op.getRecord(), options);
+          break;
+        default:
+          success[i] = remove(op.getPath(), options);
+          break;
+        }
+      }
+      return success;
+    }
+
+    return _baseAccessor.multi(serverOps, options);
+  }
+
   @Override
   public boolean[] updateChildren(List<String> paths, List<DataUpdater<T>> updaters, int options) {
     final int size = paths.size();
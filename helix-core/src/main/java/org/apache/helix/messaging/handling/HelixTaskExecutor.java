@@ -36,6 +36,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import org.I0Itec.zkclient.DataUpdater;
+import org.apache.helix.AccessOption;
 import org.apache.helix.ConfigAccessor;
 import org.apache.helix.Criteria;
 import org.apache.helix.HelixConstants;
@@ -48,6 +50,7 @@ import org.apache.helix.NotificationContext.MapKey;
 import org.apache.helix.NotificationContext.Type;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.ZNRecord;
 import org.apache.helix.api.listeners.MessageListener;
 import org.apache.helix.api.listeners.PreFetch;
 import org.apache.helix.controller.GenericHelixController;
@@ -521,15 +524,34 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     }
   }
 
-  private void updateMessageState(List<Message> readMsgs, HelixDataAccessor accessor,
-      String instanceName) {
+  /**
+   * Write the READ state of the given messages in batch. The messages may already be handled and
+   * removed by their tasks, so a message is only updated if its znode still exists.
+   */
+  private void updateMessageState(List<Message> readMsgs, List<ZNRecord> readRecords,
+      HelixDataAccessor accessor, String instanceName) {
     Builder keyBuilder = accessor.keyBuilder();
-    List<PropertyKey> readMsgKeys = new ArrayList<>();
-    for (Message msg : readMsgs) {
-      readMsgKeys.add(msg.getKey(keyBuilder, instanceName));
-      _knownMessageIds.add(msg.getId());
+    List<String> readMsgPaths = new ArrayList<>();
+    List<DataUpdater<ZNRecord>> updaters = new ArrayList<>();
+    for (int i = 0; i < readMsgs.size(); i++) {
+      readMsgPaths.add(readMsgs.get(i).getKey(keyBuilder, instanceName).getPath());
+      updaters.add(new ReadMessageUpdater(readRecords.get(i)));
+    }
+    accessor.updateChildren(readMsgPaths, updaters, AccessOption.PERSISTENT);
+  }
+
+  private static class ReadMessageUpdater implements DataUpdater<ZNRecord> {
+    private final ZNRecord _readRecord;
+
+    ReadMessageUpdater(ZNRecord readRecord) {
+      _readRecord = readRecord;
+    }
+
+    @Override
+    public ZNRecord update(ZNRecord currentData) {
+      // the message is already removed, don't create it again
+      return currentData == null ? null : _readRecord;
     }
-    accessor.setChildren(readMsgKeys, readMsgs);
   }
 
   private void shutdownAndAwaitTermination(ExecutorService pool) {
@@ -731,11 +753,13 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       // continue to process messages
     }
 
+    long intakeStartTime = System.currentTimeMillis();
     // if prefetch is disabled in MessageListenerCallback, we need to read all new messages from zk.
     if (messages == null || messages.isEmpty()) {
       // If no messages are given, check and read all new messages.
       messages = readNewMessagesFromZK(manager, instanceName, changeContext.getChangeType());
     }
+    long readLatency = System.currentTimeMillis() - intakeStartTime;
 
     if (_isShuttingDown) {
       StringBuilder sb = new StringBuilder();
@@ -944,9 +968,14 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       }
     }
 
-    // update message state to READ in batch and schedule all read messages
+    // schedule all read messages first, so the tasks don't wait for the READ state to be written
     if (readMsgs.size() > 0) {
-      updateMessageState(readMsgs, accessor, instanceName);
+      // snapshot the READ messages before their tasks start to modify them
+      List<ZNRecord> readRecords = new ArrayList<>(readMsgs.size());
+      for (Message msg : readMsgs) {
+        readRecords.add(new ZNRecord(msg.getRecord()));
+        _knownMessageIds.add(msg.getId());
+      }
 
       for (Map.Entry<String, MessageHandler> handlerEntry : stateTransitionHandlers.entrySet()) {
         MessageHandler handler = handlerEntry.getValue();
@@ -965,6 +994,17 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
             new HelixTask(msg, context, handler, this)
         );
       }
+      long dispatchLatency = System.currentTimeMillis() - intakeStartTime;
+
+      // update message state to READ in batch
+      long markReadStartTime = System.currentTimeMillis();
+      try {
+        updateMessageState(readMsgs, readRecords, accessor, instanceName);
+      } catch (Exception e) {
+        LOG.error("Failed to mark messages as READ: " + readMsgs, e);
+      }
+      _monitor.reportMessageIntakeLatency(readLatency, dispatchLatency,
+          System.currentTimeMillis() - markReadStartTime);
     }
   }
 
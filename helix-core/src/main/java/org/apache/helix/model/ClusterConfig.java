@@ -76,6 +76,14 @@ public class ClusterConfig extends HelixProperty {
     VIEW_CLUSTER_SOURCES, // Map field, key is the name of source cluster, value is
     // ViewClusterSourceConfig JSON string
     VIEW_CLUSTER_REFRESH_PERIOD, // In second
+    BEST_POSSIBLE_CALC_PARALLELISM, // number of resources whose best possible states are computed
+    // concurrently by the controller, 1 means serial computation
+    CURRENT_STATE_CALC_PARALLELISM, // number of workers the controller computes the current states
+    // of live instances with, 1 means serial computation
+    EVENT_COALESCING_MIN_DELAY, // min time in ms the controller waits for more events to handle in
+    // the same pipeline run
+    EVENT_COALESCING_MAX_DELAY, // max time in ms the controller waits for more events to handle in
+    // the same pipeline run, coalescing is disabled if not positive
 
     // Specifies job types and used for quota allocation
     QUOTA_TYPES
@@ -90,6 +98,8 @@ public class ClusterConfig extends HelixProperty {
   private final static int DEFAULT_ERROR_OR_RECOVERY_PARTITION_THRESHOLD_FOR_LOAD_BALANCE = -1;
   private static final String IDEAL_STATE_RULE_PREFIX = "IdealStateRule!";
   private final static int DEFAULT_VIEW_CLUSTER_REFRESH_PERIOD = 30;
+  private final static int DEFAULT_BEST_POSSIBLE_CALC_PARALLELISM = 1;
+  private final static int DEFAULT_CURRENT_STATE_CALC_PARALLELISM = 1;
 
   public final static String TASK_QUOTA_RATIO_NOT_SET = "-1";
 
@@ -558,6 +568,70 @@ public class ClusterConfig extends HelixProperty {
     return _record.getBooleanField(ClusterConfigProperty.TARGET_EXTERNALVIEW_ENABLED.name(), false);
   }
 
+  /**
+   * Set the number of resources whose best possible states can be computed concurrently by the
+   * controller. 1 (the default) keeps the computation on the pipeline thread.
+   * @param parallelism
+   */
+  public void setBestPossibleCalcParallelism(int parallelism) {
+    _record.setIntField(ClusterConfigProperty.BEST_POSSIBLE_CALC_PARALLELISM.name(), parallelism);
+  }
+
+  /**
+   * Get the number of resources whose best possible states can be computed concurrently.
+   * @return the parallelism, 1 if not set
+   */
+  public int getBestPossibleCalcParallelism() {
+    return _record.getIntField(ClusterConfigProperty.BEST_POSSIBLE_CALC_PARALLELISM.name(),
+        DEFAULT_BEST_POSSIBLE_CALC_PARALLELISM);
+  }
+
+  /**
+   * Set the number of workers the controller computes the current states of live instances with.
+   * 1 (the default) keeps the computation on the pipeline thread.
+   * @param parallelism
+   */
+  public void setCurrentStateCalcParallelism(int parallelism) {
+    _record.setIntField(ClusterConfigProperty.CURRENT_STATE_CALC_PARALLELISM.name(), parallelism);
+  }
+
+  /**
+   * Get the number of workers the current states of live instances can be computed with.
+   * @return the parallelism, 1 if not set
+   */
+  public int getCurrentStateCalcParallelism() {
+    return _record.getIntField(ClusterConfigProperty.CURRENT_STATE_CALC_PARALLELISM.name(),
+        DEFAULT_CURRENT_STATE_CALC_PARALLELISM);
+  }
+
+  /**
+   * Set the bounds of the time the controller waits for more events after taking an event, so
+   * the events of a burst are handled in one pipeline run. Within the bounds, the window is
+   * sized by the recent pipeline durations. A non-positive max delay disables coalescing.
+   * @param minDelay the min delay in ms
+   * @param maxDelay the max delay in ms
+   */
+  public void setEventCoalescingDelay(long minDelay, long maxDelay) {
+    _record.setLongField(ClusterConfigProperty.EVENT_COALESCING_MIN_DELAY.name(), minDelay);
+    _record.setLongField(ClusterConfigProperty.EVENT_COALESCING_MAX_DELAY.name(), maxDelay);
+  }
+
+  /**
+   * Get the min time the controller waits for more events to handle in the same pipeline run.
+   * @return the delay in ms, 0 if not set
+   */
+  public long getEventCoalescingMinDelay() {
+    return _record.getLongField(ClusterConfigProperty.EVENT_COALESCING_MIN_DELAY.name(), 0L);
+  }
+
+  /**
+   * Get the max time the controller waits for more events to handle in the same pipeline run.
+   * @return the delay in ms, -1 (coalescing disabled) if not set
+   */
+  public long getEventCoalescingMaxDelay() {
+    return _record.getLongField(ClusterConfigProperty.EVENT_COALESCING_MAX_DELAY.name(), -1L);
+  }
+
   /**
    * Get maximum allowed running task count on all instances in this cluster.
    * @return the maximum task count
@@ -121,8 +121,34 @@ public class Message extends HelixProperty {
     }
   };
 
+  private static final char[] MSG_ID_CHARS =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
   // AtomicInteger _groupMsgCountDown = new AtomicInteger(1);
 
+  /**
+   * Generate a unique message id. The id has the same random bits as {@link UUID#randomUUID()},
+   * written as 22 URL-safe base64 characters instead of the 36 characters of the canonical form.
+   * The id appears in the message path, the record id and the MSG_ID field, so the shorter form
+   * adds up when a rebalance sends thousands of messages.
+   * @return a new message id
+   */
+  public static String generateMsgId() {
+    UUID uuid = UUID.randomUUID();
+    char[] chars = new char[22];
+    encodeMsgIdBits(uuid.getMostSignificantBits(), chars, 0);
+    encodeMsgIdBits(uuid.getLeastSignificantBits(), chars, 11);
+    return new String(chars);
+  }
+
+  // writes the 64 bits as 11 characters of 6 bits each, the last one holding the remaining 4 bits
+  private static void encodeMsgIdBits(long bits, char[] chars, int offset) {
+    for (int i = 0; i < 11; i++) {
+      chars[offset + i] = MSG_ID_CHARS[(int) (bits >>> 58) & 0x3F];
+      bits <<= 6;
+    }
+  }
+
   /**
    * Instantiate a message
    * @param type the message category
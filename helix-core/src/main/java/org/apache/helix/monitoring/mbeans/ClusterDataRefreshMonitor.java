@@ -0,0 +1,88 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Counts the properties the controller read from ZK, and the ones it skipped reading since the
+ * cached version is up to date, when refreshing the cluster data of a certain type. Also counts
+ * the bytes read for the data types that report them.
+ */
+public class ClusterDataRefreshMonitor extends DynamicMBeanProvider {
+  private static final String DATA_REFRESH_DN_KEY = "ClusterDataRefreshStatus";
+  private static final String DATA_TYPE_DN_KEY = "dataType";
+
+  private final String _dataType;
+  private final ClusterStatusMonitor _clusterStatusMonitor;
+
+  private SimpleDynamicMetric<Long> _fetchedCounter;
+  private SimpleDynamicMetric<Long> _skippedCounter;
+  private SimpleDynamicMetric<Long> _lastFetchedGauge;
+  private SimpleDynamicMetric<Long> _fetchedBytesCounter;
+
+  public ClusterDataRefreshMonitor(ClusterStatusMonitor clusterStatusMonitor, String dataType) {
+    _clusterStatusMonitor = clusterStatusMonitor;
+    _dataType = dataType;
+
+    _fetchedCounter = new SimpleDynamicMetric("FetchedCounter", 0l);
+    _skippedCounter = new SimpleDynamicMetric("SkippedCounter", 0l);
+    _lastFetchedGauge = new SimpleDynamicMetric("LastFetchedGauge", 0l);
+    _fetchedBytesCounter = new SimpleDynamicMetric("FetchedBytesCounter", 0l);
+  }
+
+  public void reportRefresh(long fetched, long skipped) {
+    reportRefresh(fetched, skipped, 0);
+  }
+
+  public synchronized void reportRefresh(long fetched, long skipped, long fetchedBytes) {
+    _fetchedCounter.updateValue(_fetchedCounter.getValue() + fetched);
+    _skippedCounter.updateValue(_skippedCounter.getValue() + skipped);
+    _lastFetchedGauge.updateValue(fetched);
+    _fetchedBytesCounter.updateValue(_fetchedBytesCounter.getValue() + fetchedBytes);
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s.%s", DATA_REFRESH_DN_KEY,
+        _clusterStatusMonitor.getClusterName(), ClusterStatusMonitor.DEFAULT_TAG, _dataType);
+  }
+
+  private String getBeanName() {
+    return String.format("%s,%s=%s", _clusterStatusMonitor.clusterBeanName(), DATA_TYPE_DN_KEY,
+        _dataType);
+  }
+
+  @Override
+  public ClusterDataRefreshMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_fetchedCounter);
+    attributeList.add(_skippedCounter);
+    attributeList.add(_lastFetchedGauge);
+    attributeList.add(_fetchedBytesCounter);
+    doRegister(attributeList, _clusterStatusMonitor.getObjectName(getBeanName()));
+    return this;
+  }
+}
@@ -35,7 +35,11 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   public enum PhaseName {
     Callback,
     InQueue,
-    TotalProcessed
+    TotalProcessed,
+    // time async stages ran while the pipeline was handling later events
+    PipelineOverlap,
+    // time the controller waited for more events to handle in the same pipeline run
+    Coalescing
   }
 
   private static final String CLUSTEREVENT_DN_KEY = "ClusterEventStatus";
@@ -48,6 +52,8 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _maxDuration;
   private SimpleDynamicMetric<Long> _count;
   private HistogramDynamicMetric _duration;
+  private SimpleDynamicMetric<Long> _queueDepth;
+  private HistogramDynamicMetric _coalescedEvents;
 
   private long _lastResetTime;
   private ClusterStatusMonitor _clusterStatusMonitor;
@@ -61,6 +67,9 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     _count = new SimpleDynamicMetric("EventCounter", 0l);
     _maxDuration = new SimpleDynamicMetric("MaxSingleDurationGauge", 0l);
     _totalDuration = new SimpleDynamicMetric("TotalDurationCounter", 0l);
+    _queueDepth = new SimpleDynamicMetric("QueueDepthGauge", 0l);
+    _coalescedEvents = new HistogramDynamicMetric("CoalescedEventsGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
   }
 
   public ClusterEventMonitor(ClusterStatusMonitor clusterStatusMonitor, String phaseName,
@@ -73,6 +82,9 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     _count = new SimpleDynamicMetric("EventCounter", 0l);
     _maxDuration = new SimpleDynamicMetric("MaxSingleDurationGauge", 0l);
     _totalDuration = new SimpleDynamicMetric("TotalDurationCounter", 0l);
+    _queueDepth = new SimpleDynamicMetric("QueueDepthGauge", 0l);
+    _coalescedEvents = new HistogramDynamicMetric("CoalescedEventsGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(histogramTimeWindowMs, TimeUnit.MILLISECONDS)));
   }
 
   public void reportDuration(long duration) {
@@ -86,6 +98,22 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     }
   }
 
+  /**
+   * Report the number of events waiting in the queue of the phase
+   * @param depth
+   */
+  public void reportQueueDepth(long depth) {
+    _queueDepth.updateValue(depth);
+  }
+
+  /**
+   * Report the number of events handled by one pipeline run
+   * @param eventCount
+   */
+  public void reportCoalescedEvents(long eventCount) {
+    _coalescedEvents.updateValue(eventCount);
+  }
+
   @Override
   public String getSensorName() {
     return String.format("%s.%s.%s.%s", CLUSTEREVENT_DN_KEY, _clusterStatusMonitor.getClusterName(),
@@ -103,6 +131,8 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     attributeList.add(_maxDuration);
     attributeList.add(_count);
     attributeList.add(_duration);
+    attributeList.add(_queueDepth);
+    attributeList.add(_coalescedEvents);
     doRegister(attributeList, _clusterStatusMonitor.getObjectName(getBeanName()));
     return this;
   }
@@ -99,6 +99,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private final Map<PerInstanceResourceMonitor.BeanName, PerInstanceResourceMonitor> _perInstanceResourceMap =
       new ConcurrentHashMap<>();
 
+  // dataType -> dataRefreshMonitor
+  private final ConcurrentHashMap<String, ClusterDataRefreshMonitor> _dataRefreshMbeanMap =
+      new ConcurrentHashMap<>();
+
   private final Map<String, WorkflowMonitor> _perTypeWorkflowMonitorMap = new ConcurrentHashMap<>();
 
   private final Map<String, JobMonitor> _perTypeJobMonitorMap = new ConcurrentHashMap<>();
@@ -290,6 +294,35 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     }
   }
 
+  /**
+   * Update the number of events waiting in the queue of a certain phase.
+   *
+   * @param phase
+   * @param depth
+   */
+  public void updateClusterEventQueueDepth(String phase, long depth) {
+    ClusterEventMonitor monitor = getOrCreateClusterEventMonitor(phase);
+    if (monitor != null) {
+      monitor.reportQueueDepth(depth);
+    }
+  }
+
+  /**
+   * Update the time the controller waited for more events, and the number of events handled in
+   * the pipeline run that followed.
+   *
+   * @param delay
+   * @param eventCount
+   */
+  public void updateClusterEventCoalescing(long delay, int eventCount) {
+    ClusterEventMonitor monitor =
+        getOrCreateClusterEventMonitor(ClusterEventMonitor.PhaseName.Coalescing.name());
+    if (monitor != null) {
+      monitor.reportDuration(delay);
+      monitor.reportCoalescedEvents(eventCount);
+    }
+  }
+
   private ClusterEventMonitor getOrCreateClusterEventMonitor(String phase) {
     try {
       if (!_clusterEventMbeanMap.containsKey(phase)) {
@@ -309,6 +342,54 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _clusterEventMbeanMap.get(phase);
   }
 
+  /**
+   * Update the number of properties read from ZK and skipped reading when refreshing the cluster
+   * data of a certain type.
+   *
+   * @param dataType
+   * @param fetched
+   * @param skipped
+   */
+  public void updateDataRefreshCounters(String dataType, long fetched, long skipped) {
+    updateDataRefreshCounters(dataType, fetched, skipped, 0);
+  }
+
+  /**
+   * Update the number of properties read from ZK and skipped reading, and the number of bytes
+   * read, when refreshing the cluster data of a certain type.
+   *
+   * @param dataType
+   * @param fetched
+   * @param skipped
+   * @param fetchedBytes
+   */
+  public void updateDataRefreshCounters(String dataType, long fetched, long skipped,
+      long fetchedBytes) {
+    ClusterDataRefreshMonitor monitor = getOrCreateDataRefreshMonitor(dataType);
+    if (monitor != null) {
+      monitor.reportRefresh(fetched, skipped, fetchedBytes);
+    }
+  }
+
+  private ClusterDataRefreshMonitor getOrCreateDataRefreshMonitor(String dataType) {
+    try {
+      if (!_dataRefreshMbeanMap.containsKey(dataType)) {
+        synchronized (this) {
+          if (!_dataRefreshMbeanMap.containsKey(dataType)) {
+            ClusterDataRefreshMonitor monitor = new ClusterDataRefreshMonitor(this, dataType);
+            monitor.register();
+            _dataRefreshMbeanMap.put(dataType, monitor);
+          }
+        }
+      }
+    } catch (JMException e) {
+      LOG.error("Failed to register ClusterDataRefreshMonitor for cluster " + _clusterName
+          + " and data type: " + dataType, e);
+    }
+
+    return _dataRefreshMbeanMap.get(dataType);
+  }
+
   /**
    * Update message count per instance and per resource
    * @param messages a list of messages
@@ -531,6 +612,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       unregisterPerInstanceResources(_perInstanceResourceMap.keySet());
       unregister(getObjectName(clusterBeanName()));
       unregisterEventMonitors(_clusterEventMbeanMap.values());
+      for (ClusterDataRefreshMonitor monitor : _dataRefreshMbeanMap.values()) {
+        monitor.unregister();
+      }
+      _dataRefreshMbeanMap.clear();
       unregisterWorkflows(_perTypeWorkflowMonitorMap.keySet());
       unregisterJobs(_perTypeJobMonitorMap.keySet());
 
@@ -0,0 +1,162 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitor of the compression done by a ZNRecord serializer. Serializers are configured per path
+ * with {@link org.apache.helix.manager.zk.ChainedPathZkSerializer}, so each monitor reports the
+ * compression of one path.
+ * <p>
+ * CPU time is the CPU time of the serializing thread when the JVM supports measuring it, and the
+ * elapsed time otherwise. Decompression is streamed into the parser, so its CPU time includes
+ * parsing the decompressed data.
+ */
+public class CompressionMonitor extends DynamicMBeanProvider {
+  public static final String MONITOR_KEY = "Key";
+  public static final String MONITOR_PATH = "PATH";
+  private static final String MBEAN_DESCRIPTION = "Helix ZNRecord Compression Monitor";
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final String _sensorName;
+  private final String _key;
+  private final String _path;
+
+  private SimpleDynamicMetric<Long> _compressionCounter;
+  private SimpleDynamicMetric<Long> _uncompressedBytesCounter;
+  private SimpleDynamicMetric<Long> _compressedBytesCounter;
+  private SimpleDynamicMetric<Long> _compressionCpuTimeCounter;
+  private SimpleDynamicMetric<Long> _decompressionCounter;
+  private SimpleDynamicMetric<Long> _decompressionCpuTimeCounter;
+
+  private HistogramDynamicMetric _compressionRatioGauge;
+  private HistogramDynamicMetric _compressionCpuTimeGauge;
+  private HistogramDynamicMetric _decompressionCpuTimeGauge;
+
+  /**
+   * @param monitorKey the key to distinguish the serializers, i.e. the cluster name
+   * @param path the path the serializer is configured for
+   */
+  public CompressionMonitor(String monitorKey, String path) {
+    _key = monitorKey;
+    _path = path;
+    _sensorName = String
+        .format("%s.%s.%s", MonitorDomainNames.HelixZkSerializer.name(), monitorKey, path);
+
+    _compressionCounter = new SimpleDynamicMetric("CompressionCounter", 0l);
+    _uncompressedBytesCounter = new SimpleDynamicMetric("UncompressedBytesCounter", 0l);
+    _compressedBytesCounter = new SimpleDynamicMetric("CompressedBytesCounter", 0l);
+    _compressionCpuTimeCounter = new SimpleDynamicMetric("CompressionCpuTimeCounter", 0l);
+    _decompressionCounter = new SimpleDynamicMetric("DecompressionCounter", 0l);
+    _decompressionCpuTimeCounter = new SimpleDynamicMetric("DecompressionCpuTimeCounter", 0l);
+
+    // The ratio is recorded in percent, as the histogram only takes long values.
+    _compressionRatioGauge = new HistogramDynamicMetric("CompressionRatioGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _compressionCpuTimeGauge = new HistogramDynamicMetric("CompressionCpuTimeGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _decompressionCpuTimeGauge = new HistogramDynamicMetric("DecompressionCpuTimeGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  private ObjectName getMBeanName() throws MalformedObjectNameException {
+    return new ObjectName(String
+        .format("%s:%s=%s,%s=%s", MonitorDomainNames.HelixZkSerializer.name(), MONITOR_KEY, _key,
+            MONITOR_PATH, ObjectName.quote(_path)));
+  }
+
+  /**
+   * @return the current CPU time of this thread in nanoseconds, to be passed to the record methods
+   */
+  public static long getCpuTime() {
+    if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return System.nanoTime();
+  }
+
+  /**
+   * Record the compression of a ZNRecord.
+   * @param uncompressedBytes
+   * @param compressedBytes
+   * @param startCpuTime the CPU time, from {@link #getCpuTime()}, when the compression started
+   */
+  public synchronized void recordCompression(int uncompressedBytes, int compressedBytes,
+      long startCpuTime) {
+    long cpuTimeMicros = (getCpuTime() - startCpuTime) / 1000;
+    _compressionCounter.updateValue(_compressionCounter.getValue() + 1);
+    _uncompressedBytesCounter.updateValue(_uncompressedBytesCounter.getValue() + uncompressedBytes);
+    _compressedBytesCounter.updateValue(_compressedBytesCounter.getValue() + compressedBytes);
+    _compressionCpuTimeCounter.updateValue(_compressionCpuTimeCounter.getValue() + cpuTimeMicros);
+    _compressionCpuTimeGauge.updateValue(cpuTimeMicros);
+    if (compressedBytes > 0) {
+      _compressionRatioGauge.updateValue(100L * uncompressedBytes / compressedBytes);
+    }
+  }
+
+  /**
+   * Record the decompression of a ZNRecord.
+   * @param startCpuTime the CPU time, from {@link #getCpuTime()}, when the decompression started
+   */
+  public synchronized void recordDecompression(long startCpuTime) {
+    long cpuTimeMicros = (getCpuTime() - startCpuTime) / 1000;
+    _decompressionCounter.updateValue(_decompressionCounter.getValue() + 1);
+    _decompressionCpuTimeCounter
+        .updateValue(_decompressionCpuTimeCounter.getValue() + cpuTimeMicros);
+    _decompressionCpuTimeGauge.updateValue(cpuTimeMicros);
+  }
+
+  @Override
+  public CompressionMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_compressionCounter);
+    attributeList.add(_uncompressedBytesCounter);
+    attributeList.add(_compressedBytesCounter);
+    attributeList.add(_compressionCpuTimeCounter);
+    attributeList.add(_decompressionCounter);
+    attributeList.add(_decompressionCpuTimeCounter);
+    attributeList.add(_compressionRatioGauge);
+    attributeList.add(_compressionCpuTimeGauge);
+    attributeList.add(_decompressionCpuTimeGauge);
+
+    doRegister(attributeList, MBEAN_DESCRIPTION, getMBeanName());
+    return this;
+  }
+}
@@ -41,6 +41,9 @@ public class MessageLatencyMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _totalMessageCount;
   private SimpleDynamicMetric<Long> _totalMessageLatency;
   private HistogramDynamicMetric _messageLatencyGauge;
+  private HistogramDynamicMetric _messageReadLatencyGauge;
+  private HistogramDynamicMetric _messageDispatchLatencyGauge;
+  private HistogramDynamicMetric _messageMarkReadLatencyGauge;
 
   public MessageLatencyMonitor(String domainName, String participantName) throws JMException {
     _domainName = domainName;
@@ -50,6 +53,15 @@ public class MessageLatencyMonitor extends DynamicMBeanProvider {
 
     _messageLatencyGauge = new HistogramDynamicMetric("MessagelatencyGauge", new Histogram(
         new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _messageReadLatencyGauge = new HistogramDynamicMetric("MessageReadLatencyGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _messageDispatchLatencyGauge = new HistogramDynamicMetric("MessageDispatchLatencyGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
+    _messageMarkReadLatencyGauge = new HistogramDynamicMetric("MessageMarkReadLatencyGauge",
+        new Histogram(
+            new SlidingTimeWindowArrayReservoir(DEFAULT_RESET_INTERVAL_MS, TimeUnit.MILLISECONDS)));
     _totalMessageLatency = new SimpleDynamicMetric("TotalMessageLatency", 0l);
     _totalMessageCount = new SimpleDynamicMetric("TotalMessageCount", 0l);
   }
@@ -68,12 +80,28 @@ public class MessageLatencyMonitor extends DynamicMBeanProvider {
     _messageLatencyGauge.updateValue(latency);
   }
 
+  /**
+   * Record the latencies of the stages of one message intake.
+   * @param readLatency time to read the new messages
+   * @param dispatchLatency time from the start of the intake until all the read messages are
+   *          scheduled
+   * @param markReadLatency time to mark the scheduled messages READ
+   */
+  public void updateIntakeLatency(long readLatency, long dispatchLatency, long markReadLatency) {
+    _messageReadLatencyGauge.updateValue(readLatency);
+    _messageDispatchLatencyGauge.updateValue(dispatchLatency);
+    _messageMarkReadLatencyGauge.updateValue(markReadLatency);
+  }
+
   @Override
   public MessageLatencyMonitor register() throws JMException {
     List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
     attributeList.add(_totalMessageCount);
     attributeList.add(_totalMessageLatency);
     attributeList.add(_messageLatencyGauge);
+    attributeList.add(_messageReadLatencyGauge);
+    attributeList.add(_messageDispatchLatencyGauge);
+    attributeList.add(_messageMarkReadLatencyGauge);
     doRegister(attributeList, MBEAN_DESCRIPTION, _domainName, ParticipantMessageMonitor.PARTICIPANT_KEY,
         _participantName, "MonitorType", MessageLatencyMonitor.class.getSimpleName());
 
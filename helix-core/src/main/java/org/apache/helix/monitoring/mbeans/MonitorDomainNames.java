@@ -25,6 +25,7 @@ package org.apache.helix.monitoring.mbeans;
 public enum MonitorDomainNames {
   ClusterStatus,
   HelixZkClient,
+  HelixZkSerializer,
   HelixThreadPoolExecutor,
   HelixCallback,
   RoutingTableProvider,
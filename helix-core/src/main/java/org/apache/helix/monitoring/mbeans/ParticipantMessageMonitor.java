@@ -1,5 +1,7 @@
 package org.apache.helix.monitoring.mbeans;
 
+import org.apache.helix.GroupCommit;
+
 public class ParticipantMessageMonitor implements ParticipantMessageMonitorMBean {
   public static final String PARTICIPANT_KEY = "ParticipantName";
   public static final String PARTICIPANT_STATUS_KEY = "ParticipantMessageStatus";
@@ -19,6 +21,7 @@ public class ParticipantMessageMonitor implements ParticipantMessageMonitorMBean
   private long _completedMessages = 0;
   private long _failedMessages = 0;
   private long _pendingMessages = 0;
+  private volatile GroupCommit _currentStateGroupCommit;
 
   public ParticipantMessageMonitor(String participantName) {
     _participantName = participantName;
@@ -28,6 +31,10 @@ public class ParticipantMessageMonitor implements ParticipantMessageMonitorMBean
     return String.format("%s=%s", PARTICIPANT_KEY, _participantName);
   }
 
+  public void setCurrentStateGroupCommit(GroupCommit currentStateGroupCommit) {
+    _currentStateGroupCommit = currentStateGroupCommit;
+  }
+
   public void incrementReceivedMessages(int count) {
     _receivedMessages += count;
   }
@@ -77,6 +84,24 @@ public class ParticipantMessageMonitor implements ParticipantMessageMonitorMBean
     return _pendingMessages;
   }
 
+  @Override
+  public long getPendingCurrentStateUpdates() {
+    GroupCommit groupCommit = _currentStateGroupCommit;
+    return groupCommit == null ? 0 : groupCommit.getPendingUpdateCount();
+  }
+
+  /**
+   * @return the average number of current state updates merged into one write
+   */
+  @Override
+  public double getCurrentStateUpdateMergeRatio() {
+    GroupCommit groupCommit = _currentStateGroupCommit;
+    if (groupCommit == null || groupCommit.getCommitCount() == 0) {
+      return 0;
+    }
+    return (double) groupCommit.getCommittedUpdateCount() / groupCommit.getCommitCount();
+  }
+
   @Override
   public String getSensorName() {
     return PARTICIPANT_STATUS_KEY;
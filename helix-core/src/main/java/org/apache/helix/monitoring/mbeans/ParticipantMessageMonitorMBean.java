@@ -9,4 +9,6 @@ public interface ParticipantMessageMonitorMBean extends SensorNameProvider {
   public long getCompletedMessages();
   public long getFailedMessages();
   public long getPendingMessages();
+  public long getPendingCurrentStateUpdates();
+  public double getCurrentStateUpdateMergeRatio();
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package org.apache.helix.monitoring.mbeans;
  * under the License.
  */
 
+import org.apache.helix.GroupCommit;
 import org.apache.helix.model.Message;
 import org.apache.helix.monitoring.StateTransitionContext;
 import org.apache.helix.monitoring.StateTransitionDataPoint;
@@ -91,6 +92,26 @@ public class ParticipantStatusMonitor {
     }
   }
 
+  /**
+   * Report the latencies of reading, dispatching and marking READ a batch of new messages.
+   */
+  public void reportMessageIntakeLatency(long readLatency, long dispatchLatency,
+      long markReadLatency) {
+    if (_messageLatencyMonitor != null) {  // is participant
+      _messageLatencyMonitor.updateIntakeLatency(readLatency, dispatchLatency, markReadLatency);
+    }
+  }
+
+  /**
+   * Report the queue depth and merge ratio of the current state updates committed by the given
+   * group committer.
+   */
+  public void monitorCurrentStateUpdates(GroupCommit currentStateGroupCommit) {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.setCurrentStateGroupCommit(currentStateGroupCommit);
+    }
+  }
+
   public void reportTransitionStat(StateTransitionContext cxt, StateTransitionDataPoint data) {
     if (_beanServer == null) {
       LOG.warn("bean server is null, skip reporting");
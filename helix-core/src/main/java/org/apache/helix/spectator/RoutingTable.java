@@ -39,6 +39,10 @@ import org.slf4j.LoggerFactory;
 /**
  * A class to consume ExternalViews of a cluster and provide {resource, partition, state} to
  * {instances} map function.
+ *
+ * The table is immutable once constructed. The partition assignments are compiled into an index
+ * where states and partitions are mapped to integer ids, and the instances of each
+ * {partition, state} pair are kept in pre-sorted unmodifiable lists, so lookups do not allocate.
  */
 class RoutingTable {
   private static final Logger logger = LoggerFactory.getLogger(RoutingTable.class);
@@ -47,6 +51,14 @@ class RoutingTable {
   private final Map<String, ResourceInfo> _resourceInfoMap;
   // mapping a resource group name to a resourceGroupInfo
   private final Map<String, ResourceGroupInfo> _resourceGroupInfoMap;
+  // interned state ids shared by all resources of this table
+  private final Map<String, Integer> _stateIdMap;
+  // mapping a resourceName to the ExternalView the ResourceInfo is built from
+  private final Map<String, ExternalView> _externalViewMap;
+  // mapping an instance name to its InstanceConfig
+  private final Map<String, InstanceConfig> _instanceConfigMap;
+  // resources whose routing information changed compared to the previous table
+  private final Set<String> _changedResources;
 
   private final Collection<LiveInstance> _liveInstances;
   private final Collection<InstanceConfig> _instanceConfigs;
@@ -60,62 +72,175 @@ class RoutingTable {
   public RoutingTable(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
     // TODO Aggregate currentState to an ExternalView in the RoutingTable, so there is no need to refresh according to the currentStateMap. - jjwang
-    this(Collections.<ExternalView>emptyList(), instanceConfigs, liveInstances);
-    refresh(currentStateMap);
+    this(null, Collections.<ExternalView>emptyList(), instanceConfigs, liveInstances,
+        currentStateMap);
   }
 
   public RoutingTable(Collection<ExternalView> externalViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
+    this(null, externalViews, instanceConfigs, liveInstances);
+  }
+
+  /**
+   * Build a routing table from the ExternalViews, reusing the routing information of the resources
+   * whose ExternalView is the same object as in the previous table. All resources are rebuilt if
+   * the instance configs changed.
+   * @param previousTable the table to reuse routing information from, could be null
+   * @param externalViews
+   * @param instanceConfigs
+   * @param liveInstances
+   */
+  public RoutingTable(RoutingTable previousTable, Collection<ExternalView> externalViews,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
+    this(previousTable, externalViews, instanceConfigs, liveInstances,
+        Collections.<String, Map<String, Map<String, CurrentState>>>emptyMap());
+  }
+
+  private RoutingTable(RoutingTable previousTable, Collection<ExternalView> externalViews,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
+      Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
     _resourceInfoMap = new HashMap<>();
     _resourceGroupInfoMap = new HashMap<>();
-    _liveInstances = new HashSet<>(liveInstances);
-    _instanceConfigs = new HashSet<>(instanceConfigs);
-    _externalViews = new HashSet<>(externalViews);
-    refresh(externalViews);
+    _externalViewMap = new HashMap<>();
+    _instanceConfigMap = new HashMap<>();
+    _liveInstances = Collections.unmodifiableCollection(new HashSet<>(liveInstances));
+    _instanceConfigs = Collections.unmodifiableCollection(new HashSet<>(instanceConfigs));
+    _externalViews = Collections.unmodifiableCollection(new HashSet<>(externalViews));
+    for (InstanceConfig config : instanceConfigs) {
+      _instanceConfigMap.put(config.getId(), config);
+    }
+    for (ExternalView extView : externalViews) {
+      _externalViewMap.put(extView.getId(), extView);
+    }
+
+    if (previousTable != null && currentStateMap.isEmpty() && isSameInstanceConfigs(
+        previousTable)) {
+      // state ids of the reused ResourceInfos must stay valid
+      _stateIdMap = new HashMap<>(previousTable._stateIdMap);
+      _changedResources = refresh(previousTable);
+    } else {
+      _stateIdMap = new HashMap<>();
+      refresh(externalViews);
+      refresh(currentStateMap);
+      _changedResources = new HashSet<>(_resourceInfoMap.keySet());
+      if (previousTable != null) {
+        _changedResources.addAll(previousTable._resourceInfoMap.keySet());
+      }
+    }
+    compile();
+  }
+
+  private boolean isSameInstanceConfigs(RoutingTable previousTable) {
+    if (_instanceConfigMap.size() != previousTable._instanceConfigMap.size()) {
+      return false;
+    }
+    for (Map.Entry<String, InstanceConfig> entry : _instanceConfigMap.entrySet()) {
+      if (previousTable._instanceConfigMap.get(entry.getKey()) != entry.getValue()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private void refresh(Collection<ExternalView> externalViewList) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
     if (externalViewList != null && !externalViewList.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
       for (ExternalView extView : externalViewList) {
-        String resourceName = extView.getId();
-        for (String partitionName : extView.getPartitionSet()) {
-          Map<String, String> stateMap = extView.getStateMap(partitionName);
-          for (String instanceName : stateMap.keySet()) {
-            String currentState = stateMap.get(instanceName);
-            if (instanceConfigMap.containsKey(instanceName)) {
-              InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-              if (extView.isGroupRoutingEnabled()) {
-                addEntry(resourceName, extView.getResourceGroupName(),
-                    extView.getInstanceGroupTag(), partitionName, currentState, instanceConfig);
-              } else {
-                addEntry(resourceName, partitionName, currentState, instanceConfig);
-              }
-            } else {
-              logger.warn(
-                  "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                      + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
-                  instanceName, partitionName, instanceName, stateMap.get(instanceName));
-            }
+        addExternalView(extView, true, true);
+      }
+    }
+  }
+
+  /**
+   * Rebuild only the resources whose ExternalView changed compared to the previous table, and the
+   * resource groups they belong to. The others are shared with the previous table.
+   * @return the names of the changed resources
+   */
+  private Set<String> refresh(RoutingTable previousTable) {
+    Set<String> changedResources = new HashSet<>();
+    Set<String> changedResourceGroups = new HashSet<>();
+    for (ExternalView extView : _externalViewMap.values()) {
+      ExternalView previousExtView = previousTable._externalViewMap.get(extView.getId());
+      if (previousExtView != extView) {
+        changedResources.add(extView.getId());
+        addResourceGroup(changedResourceGroups, previousExtView);
+        addResourceGroup(changedResourceGroups, extView);
+      }
+    }
+    for (ExternalView previousExtView : previousTable._externalViewMap.values()) {
+      if (!_externalViewMap.containsKey(previousExtView.getId())) {
+        changedResources.add(previousExtView.getId());
+        addResourceGroup(changedResourceGroups, previousExtView);
+      }
+    }
+    for (String resourceName : previousTable._resourceInfoMap.keySet()) {
+      if (!_externalViewMap.containsKey(resourceName)) {
+        changedResources.add(resourceName);
+      }
+    }
+
+    for (ExternalView extView : _externalViewMap.values()) {
+      String resourceName = extView.getId();
+      boolean isChanged = changedResources.contains(resourceName);
+      if (!isChanged && previousTable._resourceInfoMap.containsKey(resourceName)) {
+        _resourceInfoMap.put(resourceName, previousTable._resourceInfoMap.get(resourceName));
+      }
+      addExternalView(extView, isChanged, extView.isGroupRoutingEnabled() && changedResourceGroups
+          .contains(extView.getResourceGroupName()));
+    }
+    for (Map.Entry<String, ResourceGroupInfo> entry : previousTable._resourceGroupInfoMap
+        .entrySet()) {
+      if (!changedResourceGroups.contains(entry.getKey())) {
+        _resourceGroupInfoMap.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return changedResources;
+  }
+
+  private static void addResourceGroup(Set<String> resourceGroups, ExternalView extView) {
+    if (extView != null && extView.isGroupRoutingEnabled()) {
+      resourceGroups.add(extView.getResourceGroupName());
+    }
+  }
+
+  /**
+   * Add the entries of an ExternalView to the resource and/or to its resource group.
+   */
+  private void addExternalView(ExternalView extView, boolean addResource,
+      boolean addResourceGroup) {
+    if (!addResource && !addResourceGroup) {
+      return;
+    }
+    String resourceName = extView.getId();
+    boolean isGroupRoutingEnabled = extView.isGroupRoutingEnabled();
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        String currentState = stateMap.get(instanceName);
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+        if (instanceConfig != null) {
+          if (addResource) {
+            addEntry(resourceName, partitionName, currentState, instanceConfig);
+          }
+          if (isGroupRoutingEnabled && addResourceGroup) {
+            addEntry(extView.getResourceGroupName(), extView.getInstanceGroupTag(),
+                partitionName, currentState, instanceConfig);
           }
+        } else if (addResource) {
+          logger.warn(
+              "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
+                  + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
+              instanceName, partitionName, instanceName, stateMap.get(instanceName));
         }
       }
     }
   }
 
   private void refresh(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
     if (currentStateMap != null && !currentStateMap.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
       for (LiveInstance liveInstance : _liveInstances) {
         String instanceName = liveInstance.getInstanceName();
         String sessionId = liveInstance.getSessionId();
-        InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
         if (instanceConfig == null) {
           logger.warn(
               "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
@@ -145,34 +270,47 @@ class RoutingTable {
 
   private void addEntry(String resourceName, String partitionName, String state,
       InstanceConfig config) {
-    if (!_resourceInfoMap.containsKey(resourceName)) {
-      _resourceInfoMap.put(resourceName, new ResourceInfo());
-    }
     ResourceInfo resourceInfo = _resourceInfoMap.get(resourceName);
-    resourceInfo.addEntry(partitionName, state, config);
+    if (resourceInfo == null) {
+      resourceInfo = new ResourceInfo();
+      _resourceInfoMap.put(resourceName, resourceInfo);
+    }
+    resourceInfo.addEntry(partitionName, getOrCreateStateId(state), config);
   }
 
   /**
-   * add an entry with a resource with resourceGrouping enabled.
+   * add an entry to a resource group.
    */
-  private void addEntry(String resourceName, String resourceGroupName, String resourceTag,
-      String partitionName, String state, InstanceConfig config) {
-    addEntry(resourceName, partitionName, state, config);
-
-    if (!_resourceGroupInfoMap.containsKey(resourceGroupName)) {
-      _resourceGroupInfoMap.put(resourceGroupName, new ResourceGroupInfo());
-    }
-
+  private void addEntry(String resourceGroupName, String resourceTag, String partitionName,
+      String state, InstanceConfig config) {
     ResourceGroupInfo resourceGroupInfo = _resourceGroupInfoMap.get(resourceGroupName);
-    resourceGroupInfo.addEntry(resourceTag, partitionName, state, config);
+    if (resourceGroupInfo == null) {
+      resourceGroupInfo = new ResourceGroupInfo();
+      _resourceGroupInfoMap.put(resourceGroupName, resourceGroupInfo);
+    }
+    resourceGroupInfo.addEntry(resourceTag, partitionName, getOrCreateStateId(state), config);
   }
 
-  ResourceInfo get(String resourceName) {
-    return _resourceInfoMap.get(resourceName);
+  private int getOrCreateStateId(String state) {
+    Integer stateId = _stateIdMap.get(state);
+    if (stateId == null) {
+      stateId = _stateIdMap.size();
+      _stateIdMap.put(state, stateId);
+    }
+    return stateId;
   }
 
-  ResourceGroupInfo getResourceGroup(String resourceGroupName) {
-    return _resourceGroupInfoMap.get(resourceGroupName);
+  /**
+   * Compile the collected entries into the immutable lookup index.
+   */
+  private void compile() {
+    int stateCount = _stateIdMap.size();
+    for (ResourceInfo resourceInfo : _resourceInfoMap.values()) {
+      resourceInfo.compile(stateCount);
+    }
+    for (ResourceGroupInfo resourceGroupInfo : _resourceGroupInfoMap.values()) {
+      resourceGroupInfo.compile(stateCount);
+    }
   }
 
   /**
@@ -182,15 +320,12 @@ class RoutingTable {
    * @return empty list if there is no instance in a given state
    */
   public Set<InstanceConfig> getInstancesForResource(String resourceName, String state) {
-    Set<InstanceConfig> instanceSet = null;
-    ResourceInfo resourceInfo = get(resourceName);
-    if (resourceInfo != null) {
-      instanceSet = resourceInfo.getInstances(state);
-    }
-    if (instanceSet == null) {
-      instanceSet = Collections.emptySet();
+    ResourceInfo resourceInfo = _resourceInfoMap.get(resourceName);
+    Integer stateId = _stateIdMap.get(state);
+    if (resourceInfo == null || stateId == null) {
+      return Collections.emptySet();
     }
-    return instanceSet;
+    return resourceInfo.getInstances(stateId);
   }
 
   /**
@@ -202,15 +337,12 @@ class RoutingTable {
    * @return empty list if there is no instance in a given state
    */
   public Set<InstanceConfig> getInstancesForResourceGroup(String resourceGroupName, String state) {
-    Set<InstanceConfig> instanceSet = null;
-    ResourceGroupInfo resourceGroupInfo = getResourceGroup(resourceGroupName);
-    if (resourceGroupInfo != null) {
-      instanceSet = resourceGroupInfo.getInstances(state);
-    }
-    if (instanceSet == null) {
-      instanceSet = Collections.emptySet();
+    ResourceGroupInfo resourceGroupInfo = _resourceGroupInfoMap.get(resourceGroupName);
+    Integer stateId = _stateIdMap.get(state);
+    if (resourceGroupInfo == null || stateId == null) {
+      return Collections.emptySet();
     }
-    return instanceSet;
+    return resourceGroupInfo.getInstances(stateId);
   }
 
   /**
@@ -224,20 +356,17 @@ class RoutingTable {
    */
   public Set<InstanceConfig> getInstancesForResourceGroup(String resourceGroupName, String state,
       List<String> resourceTags) {
-    Set<InstanceConfig> instanceSet = null;
-    ResourceGroupInfo resourceGroupInfo = getResourceGroup(resourceGroupName);
-    if (resourceGroupInfo != null) {
-      instanceSet = new HashSet<>();
+    ResourceGroupInfo resourceGroupInfo = _resourceGroupInfoMap.get(resourceGroupName);
+    if (resourceGroupInfo == null) {
+      return Collections.emptySet();
+    }
+    Set<InstanceConfig> instanceSet = new HashSet<>();
+    Integer stateId = _stateIdMap.get(state);
+    if (stateId != null) {
       for (String tag : resourceTags) {
-        Set<InstanceConfig> instances = resourceGroupInfo.getInstances(state, tag);
-        if (instances != null) {
-          instanceSet.addAll(resourceGroupInfo.getInstances(state, tag));
-        }
+        instanceSet.addAll(resourceGroupInfo.getInstances(stateId, tag));
       }
     }
-    if (instanceSet == null) {
-      return Collections.emptySet();
-    }
     return instanceSet;
   }
 
@@ -251,18 +380,12 @@ class RoutingTable {
    */
   public List<InstanceConfig> getInstancesForResource(String resourceName, String partitionName,
       String state) {
-    List<InstanceConfig> instanceList = null;
-    ResourceInfo resourceInfo = get(resourceName);
-    if (resourceInfo != null) {
-      PartitionInfo keyInfo = resourceInfo.get(partitionName);
-      if (keyInfo != null) {
-        instanceList = keyInfo.get(state);
-      }
-    }
-    if (instanceList == null) {
-      instanceList = Collections.emptyList();
+    ResourceInfo resourceInfo = _resourceInfoMap.get(resourceName);
+    Integer stateId = _stateIdMap.get(state);
+    if (resourceInfo == null || stateId == null) {
+      return Collections.emptyList();
     }
-    return instanceList;
+    return resourceInfo.getInstances(partitionName, stateId);
   }
 
   /**
@@ -280,18 +403,12 @@ class RoutingTable {
    */
   public List<InstanceConfig> getInstancesForResourceGroup(String resourceGroupName,
       String partitionName, String state) {
-    List<InstanceConfig> instanceList = null;
-    ResourceGroupInfo resourceGroupInfo = getResourceGroup(resourceGroupName);
-    if (resourceGroupInfo != null) {
-      PartitionInfo keyInfo = resourceGroupInfo.get(partitionName);
-      if (keyInfo != null) {
-        instanceList = keyInfo.get(state);
-      }
-    }
-    if (instanceList == null) {
-      instanceList = Collections.emptyList();
+    ResourceGroupInfo resourceGroupInfo = _resourceGroupInfoMap.get(resourceGroupName);
+    Integer stateId = _stateIdMap.get(state);
+    if (resourceGroupInfo == null || stateId == null) {
+      return Collections.emptyList();
     }
-    return Collections.unmodifiableList(instanceList);
+    return resourceGroupInfo.getInstances(partitionName, stateId);
   }
 
   /**
@@ -299,7 +416,7 @@ class RoutingTable {
    * @return
    */
   protected Collection<LiveInstance> getLiveInstances() {
-    return Collections.unmodifiableCollection(_liveInstances);
+    return _liveInstances;
   }
 
   /**
@@ -307,7 +424,7 @@ class RoutingTable {
    * @return
    */
   protected Collection<InstanceConfig> getInstanceConfigs() {
-    return Collections.unmodifiableCollection(_instanceConfigs);
+    return _instanceConfigs;
   }
 
   /**
@@ -317,6 +434,14 @@ class RoutingTable {
     return Collections.unmodifiableCollection(_resourceInfoMap.keySet());
   }
 
+  /**
+   * Return names of the resources whose routing information changed compared to the previous
+   * table, including the removed ones. All resources are included if the table was fully rebuilt.
+   */
+  protected Set<String> getChangedResources() {
+    return Collections.unmodifiableSet(_changedResources);
+  }
+
   /**
    * returns the instances for {resource group,partition} pair contains any of the given tags
    * that are in a specific {state}.
@@ -333,21 +458,18 @@ class RoutingTable {
    */
   public List<InstanceConfig> getInstancesForResourceGroup(String resourceGroupName, String partitionName,
       String state, List<String> resourceTags) {
-    ResourceGroupInfo resourceGroupInfo = getResourceGroup(resourceGroupName);
-    List<InstanceConfig> instanceList = null;
-    if (resourceGroupInfo != null) {
-      instanceList = new ArrayList<>();
-      for (String tag : resourceTags) {
-        RoutingTable.PartitionInfo keyInfo = resourceGroupInfo.get(partitionName, tag);
-        if (keyInfo != null && keyInfo.containsState(state)) {
-          instanceList.addAll(keyInfo.get(state));
-        }
-      }
-    }
-    if (instanceList == null) {
+    ResourceGroupInfo resourceGroupInfo = _resourceGroupInfoMap.get(resourceGroupName);
+    Integer stateId = _stateIdMap.get(state);
+    if (resourceGroupInfo == null || stateId == null) {
       return Collections.emptyList();
     }
-
+    if (resourceTags.size() == 1) {
+      return resourceGroupInfo.getInstances(partitionName, stateId, resourceTags.get(0));
+    }
+    List<InstanceConfig> instanceList = new ArrayList<>();
+    for (String tag : resourceTags) {
+      instanceList.addAll(resourceGroupInfo.getInstances(partitionName, stateId, tag));
+    }
     return Collections.unmodifiableList(instanceList);
   }
 
@@ -356,123 +478,162 @@ class RoutingTable {
    * @return a collection of ExternalViews
    */
   protected Collection<ExternalView> getExternalViews() {
-    return Collections.unmodifiableCollection(_externalViews);
+    return _externalViews;
   }
 
   /**
    * Class to store instances, partitions and their states for each resource.
    */
-  class ResourceInfo {
-    // store PartitionInfo for each partition
-    Map<String, PartitionInfo> partitionInfoMap;
-    // stores the Set of Instances in a given state
-    Map<String, Set<InstanceConfig>> stateInfoMap;
+  static class ResourceInfo {
+    // mapping a partition name to its id in the compiled index
+    private final Map<String, Integer> _partitionIdMap;
+    // entries collected before compile: state id to instances, for each partition id
+    private List<Map<Integer, List<InstanceConfig>>> _partitionEntries;
+    // entries collected before compile: state id to instances
+    private Map<Integer, Set<InstanceConfig>> _stateEntries;
+    // compiled index: sorted instances by [partition id][state id], null if there is none
+    private List<InstanceConfig>[][] _partitionInstances;
+    // compiled index: sorted instances by [state id], null if there is none
+    private Set<InstanceConfig>[] _stateInstances;
 
     public ResourceInfo() {
-      partitionInfoMap = new HashMap<>();
-      stateInfoMap = new HashMap<>();
+      _partitionIdMap = new HashMap<>();
+      _partitionEntries = new ArrayList<>();
+      _stateEntries = new HashMap<>();
     }
 
-    public void addEntry(String stateUnitKey, String state, InstanceConfig config) {
-      if (!stateInfoMap.containsKey(state)) {
-        stateInfoMap.put(state, new TreeSet<>(INSTANCE_CONFIG_COMPARATOR));
+    void addEntry(String partitionName, int stateId, InstanceConfig config) {
+      Set<InstanceConfig> set = _stateEntries.get(stateId);
+      if (set == null) {
+        set = new TreeSet<>(INSTANCE_CONFIG_COMPARATOR);
+        _stateEntries.put(stateId, set);
       }
-      Set<InstanceConfig> set = stateInfoMap.get(state);
       set.add(config);
 
-      if (!partitionInfoMap.containsKey(stateUnitKey)) {
-        partitionInfoMap.put(stateUnitKey, new PartitionInfo());
+      Integer partitionId = _partitionIdMap.get(partitionName);
+      if (partitionId == null) {
+        partitionId = _partitionEntries.size();
+        _partitionIdMap.put(partitionName, partitionId);
+        _partitionEntries.add(new HashMap<Integer, List<InstanceConfig>>());
+      }
+      Map<Integer, List<InstanceConfig>> partitionEntry = _partitionEntries.get(partitionId);
+      List<InstanceConfig> list = partitionEntry.get(stateId);
+      if (list == null) {
+        list = new ArrayList<>();
+        partitionEntry.put(stateId, list);
       }
-      PartitionInfo stateUnitKeyInfo = partitionInfoMap.get(stateUnitKey);
-      stateUnitKeyInfo.addEntry(state, config);
+      list.add(config);
     }
 
-    public Set<InstanceConfig> getInstances(String state) {
-      return stateInfoMap.get(state);
+    @SuppressWarnings("unchecked")
+    void compile(int stateCount) {
+      if (_partitionEntries == null) {
+        // already compiled, shared with a previous table
+        return;
+      }
+      _partitionInstances = new List[_partitionEntries.size()][];
+      for (int partitionId = 0; partitionId < _partitionInstances.length; partitionId++) {
+        List<InstanceConfig>[] instances = new List[stateCount];
+        for (Map.Entry<Integer, List<InstanceConfig>> entry : _partitionEntries.get(partitionId)
+            .entrySet()) {
+          List<InstanceConfig> list = entry.getValue();
+          Collections.sort(list, INSTANCE_CONFIG_COMPARATOR);
+          instances[entry.getKey()] = Collections.unmodifiableList(list);
+        }
+        _partitionInstances[partitionId] = instances;
+      }
+      _stateInstances = new Set[stateCount];
+      for (Map.Entry<Integer, Set<InstanceConfig>> entry : _stateEntries.entrySet()) {
+        _stateInstances[entry.getKey()] = Collections.unmodifiableSet(entry.getValue());
+      }
+      _partitionEntries = null;
+      _stateEntries = null;
     }
 
-    PartitionInfo get(String stateUnitKey) {
-      return partitionInfoMap.get(stateUnitKey);
+    Set<InstanceConfig> getInstances(int stateId) {
+      // a ResourceInfo shared with a previous table does not know the states added after it
+      Set<InstanceConfig> instances =
+          stateId < _stateInstances.length ? _stateInstances[stateId] : null;
+      if (instances == null) {
+        return Collections.emptySet();
+      }
+      return instances;
+    }
+
+    List<InstanceConfig> getInstances(String partitionName, int stateId) {
+      Integer partitionId = _partitionIdMap.get(partitionName);
+      if (partitionId == null) {
+        return Collections.emptyList();
+      }
+      List<InstanceConfig>[] partitionInstances = _partitionInstances[partitionId];
+      List<InstanceConfig> instances =
+          stateId < partitionInstances.length ? partitionInstances[stateId] : null;
+      if (instances == null) {
+        return Collections.emptyList();
+      }
+      return instances;
     }
   }
 
   /**
    * Class to store instances, partitions and their states for each resource group.
    */
-  class ResourceGroupInfo {
+  static class ResourceGroupInfo {
     // aggregated partitions and instances info for all resources in the resource group.
-    ResourceInfo aggregatedResourceInfo;
+    private final ResourceInfo _aggregatedResourceInfo;
 
     // <ResourceTag, ResourceInfo> maps resource tag to the resource with the tag
     // in this resource group.
     // Each ResourceInfo saves only partitions and instances for that resource.
-    Map<String, ResourceInfo> tagToResourceMap;
+    private final Map<String, ResourceInfo> _tagToResourceMap;
 
     public ResourceGroupInfo() {
-      aggregatedResourceInfo = new ResourceInfo();
-      tagToResourceMap = new HashMap<>();
+      _aggregatedResourceInfo = new ResourceInfo();
+      _tagToResourceMap = new HashMap<>();
     }
 
-    public void addEntry(String resourceTag, String stateUnitKey, String state, InstanceConfig config) {
+    void addEntry(String resourceTag, String partitionName, int stateId, InstanceConfig config) {
       // add the new entry to the aggregated resource info
-      aggregatedResourceInfo.addEntry(stateUnitKey, state, config);
+      _aggregatedResourceInfo.addEntry(partitionName, stateId, config);
 
       // add the entry to the resourceInfo with given tag
-      if (!tagToResourceMap.containsKey(resourceTag)) {
-        tagToResourceMap.put(resourceTag, new ResourceInfo());
+      ResourceInfo resourceInfo = _tagToResourceMap.get(resourceTag);
+      if (resourceInfo == null) {
+        resourceInfo = new ResourceInfo();
+        _tagToResourceMap.put(resourceTag, resourceInfo);
       }
-      ResourceInfo resourceInfo = tagToResourceMap.get(resourceTag);
-      resourceInfo.addEntry(stateUnitKey, state, config);
-    }
-
-    public Set<InstanceConfig> getInstances(String state) {
-      return aggregatedResourceInfo.getInstances(state);
+      resourceInfo.addEntry(partitionName, stateId, config);
     }
 
-    public Set<InstanceConfig> getInstances(String state, String resourceTag) {
-      ResourceInfo resourceInfo = tagToResourceMap.get(resourceTag);
-      if (resourceInfo != null) {
-        return resourceInfo.getInstances(state);
+    void compile(int stateCount) {
+      _aggregatedResourceInfo.compile(stateCount);
+      for (ResourceInfo resourceInfo : _tagToResourceMap.values()) {
+        resourceInfo.compile(stateCount);
       }
-
-      return null;
     }
 
-    PartitionInfo get(String stateUnitKey) {
-      return aggregatedResourceInfo.get(stateUnitKey);
+    Set<InstanceConfig> getInstances(int stateId) {
+      return _aggregatedResourceInfo.getInstances(stateId);
     }
 
-    PartitionInfo get(String stateUnitKey, String resourceTag) {
-      ResourceInfo resourceInfo = tagToResourceMap.get(resourceTag);
+    Set<InstanceConfig> getInstances(int stateId, String resourceTag) {
+      ResourceInfo resourceInfo = _tagToResourceMap.get(resourceTag);
       if (resourceInfo == null) {
-        return null;
+        return Collections.emptySet();
       }
-
-      return resourceInfo.get(stateUnitKey);
+      return resourceInfo.getInstances(stateId);
     }
-  }
 
-  class PartitionInfo {
-    Map<String, List<InstanceConfig>> stateInfoMap;
-
-    public PartitionInfo() {
-      stateInfoMap = new HashMap<>();
+    List<InstanceConfig> getInstances(String partitionName, int stateId) {
+      return _aggregatedResourceInfo.getInstances(partitionName, stateId);
     }
 
-    public void addEntry(String state, InstanceConfig config) {
-      if (!stateInfoMap.containsKey(state)) {
-        stateInfoMap.put(state, new ArrayList<InstanceConfig>());
+    List<InstanceConfig> getInstances(String partitionName, int stateId, String resourceTag) {
+      ResourceInfo resourceInfo = _tagToResourceMap.get(resourceTag);
+      if (resourceInfo == null) {
+        return Collections.emptyList();
       }
-      List<InstanceConfig> list = stateInfoMap.get(state);
-      list.add(config);
-    }
-
-    List<InstanceConfig> get(String state) {
-      return stateInfoMap.get(state);
-    }
-
-    boolean containsState(String state) {
-      return stateInfoMap.containsKey(state);
+      return resourceInfo.getInstances(partitionName, stateId);
     }
   }
 
@@ -494,4 +655,4 @@ class RoutingTable {
           return config1.getId().compareTo(config2.getId());
         }
       };
-}
\ No newline at end of file
+}
@@ -538,7 +538,10 @@ public class RoutingTableProvider
   protected void refresh(Collection<ExternalView> externalViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
     long startTime = System.currentTimeMillis();
-    RoutingTable newRoutingTable = new RoutingTable(externalViews, instanceConfigs, liveInstances);
+    // Only the resources whose ExternalView changed are rebuilt, the others are shared with the
+    // current routing table.
+    RoutingTable newRoutingTable =
+        new RoutingTable(_routingTableRef.get(), externalViews, instanceConfigs, liveInstances);
     resetRoutingTableAndNotify(startTime, newRoutingTable);
   }
 
@@ -552,9 +555,9 @@ public class RoutingTableProvider
 
   private void resetRoutingTableAndNotify(long startTime, RoutingTable newRoutingTable) {
     _routingTableRef.set(newRoutingTable);
-    logger.info("Refresh the RoutingTable for cluster {}, takes {} ms.",
+    logger.info("Refresh the RoutingTable for cluster {}, {} resources changed, takes {} ms.",
         (_helixManager != null ? _helixManager.getClusterName() : null),
-        (System.currentTimeMillis() - startTime));
+        newRoutingTable.getChangedResources().size(), (System.currentTimeMillis() - startTime));
     notifyRoutingTableChange();
 
     // Update timestamp for last refresh
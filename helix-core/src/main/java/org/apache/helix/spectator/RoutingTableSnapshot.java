@@ -150,6 +150,16 @@ public class RoutingTableSnapshot {
     return _routingTable.getResources();
   }
 
+  /**
+   * Return names of the resources whose routing information changed since the previous snapshot,
+   * including the removed ones. All resources are included if the routing table was fully rebuilt.
+   *
+   * @return a set of resource names
+   */
+  public Set<String> getChangedResources() {
+    return _routingTable.getChangedResources();
+  }
+
   /**
    * Returns a Collection of latest snapshot of ExternalViews. Note that if the RoutingTable is
    * instantiated using CurrentStates, this Collection will be empty.
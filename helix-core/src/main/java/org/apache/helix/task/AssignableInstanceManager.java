@@ -32,6 +32,7 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.assigner.AssignableInstance;
 import org.apache.helix.task.assigner.TaskAssignResult;
+import org.apache.helix.task.assigner.ThreadCapacityIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +43,8 @@ public class AssignableInstanceManager {
   private Map<String, AssignableInstance> _assignableInstanceMap;
   // TaskID -> TaskAssignResult TODO: Hunter: Move this if not needed
   private Map<String, TaskAssignResult> _taskAssignResultMap;
+  // Buckets of the AssignableInstances by remaining threads, updated on every assign and release
+  private final ThreadCapacityIndex _capacityIndex = new ThreadCapacityIndex(true);
 
   /**
    * Basic constructor for AssignableInstanceManager to allow an empty instantiation.
@@ -65,6 +68,7 @@ public class AssignableInstanceManager {
     // Reset all cached information
     _assignableInstanceMap.clear();
     _taskAssignResultMap.clear();
+    _capacityIndex.clear();
 
     // Create all AssignableInstance objects based on what's in liveInstances
     for (Map.Entry<String, LiveInstance> liveInstanceEntry : liveInstances.entrySet()) {
@@ -80,6 +84,7 @@ public class AssignableInstanceManager {
       AssignableInstance assignableInstance =
           new AssignableInstance(clusterConfig, instanceConfig, liveInstance);
       _assignableInstanceMap.put(instanceConfig.getInstanceName(), assignableInstance);
+      _capacityIndex.addInstance(assignableInstance);
       LOG.info("AssignableInstance created for instance: {}", instanceName);
     }
 
@@ -179,6 +184,7 @@ public class AssignableInstanceManager {
         AssignableInstance assignableInstance =
             new AssignableInstance(clusterConfig, instanceConfig, liveInstance);
         _assignableInstanceMap.put(instanceName, assignableInstance);
+        _capacityIndex.addInstance(assignableInstance);
         LOG.info("AssignableInstance created for instance: {} during updateAssignableInstances",
             instanceName);
       }
@@ -203,6 +209,7 @@ public class AssignableInstanceManager {
         }
       }
       _assignableInstanceMap.remove(instanceToBeRemoved.getInstanceName());
+      _capacityIndex.removeInstance(instanceToBeRemoved);
       LOG.info(
           "Non-live AssignableInstance removed for instance: {} during updateAssignableInstances",
           instanceToBeRemoved.getInstanceName());
@@ -217,6 +224,15 @@ public class AssignableInstanceManager {
     return Collections.unmodifiableMap(_assignableInstanceMap);
   }
 
+  /**
+   * Returns the index of the AssignableInstances by remaining task threads. The index is kept up
+   * to date by the AssignableInstances on every assign and release.
+   * @return capacityIndex
+   */
+  public ThreadCapacityIndex getThreadCapacityIndex() {
+    return _capacityIndex;
+  }
+
   /**
    * Returns all AssignableInstances that support a given quota type.
    * @param quotaType
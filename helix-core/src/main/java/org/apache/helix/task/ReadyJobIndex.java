@@ -0,0 +1,101 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Index of the jobs of a workflow which may be scheduled: the jobs that are not started yet while
+ * all their parents are. The index is kept in the controller cache across pipeline runs, so that
+ * WorkflowRebalancer only examines these jobs instead of every job in the JobDag. It is advanced
+ * incrementally: a ready job leaves the index once it is started, which decrements the counts of
+ * unstarted parents of its children, and the children whose count reaches zero become ready.
+ * Since jobs only start after being ready, the started jobs are always found in the ready set.
+ * The index is built again if the JobDag or the WorkflowContext is replaced, e.g. when jobs are
+ * enqueued or deleted, or the workflow is recreated.
+ */
+public class ReadyJobIndex {
+  private final JobDag _jobDag;
+  private final long _workflowStartTime;
+  // job -> number of parents not started yet
+  private final Map<String, Integer> _unstartedParentCounts = new HashMap<>();
+  // jobs not started yet whose parents are all started
+  private final Set<String> _readyJobs = new TreeSet<>();
+
+  public ReadyJobIndex(JobDag jobDag, WorkflowContext workflowCtx) {
+    _jobDag = jobDag;
+    _workflowStartTime = workflowCtx.getStartTime();
+    for (String job : jobDag.getAllNodes()) {
+      int unstartedParentCount = 0;
+      for (String parent : jobDag.getDirectParents(job)) {
+        if (!TaskUtil.isJobStarted(parent, workflowCtx)) {
+          unstartedParentCount++;
+        }
+      }
+      _unstartedParentCounts.put(job, unstartedParentCount);
+      if (unstartedParentCount == 0 && !TaskUtil.isJobStarted(job, workflowCtx)) {
+        _readyJobs.add(job);
+      }
+    }
+  }
+
+  /**
+   * @return true if this index is built for the given JobDag and the same run of the workflow
+   */
+  public boolean isBuiltFrom(JobDag jobDag, WorkflowContext workflowCtx) {
+    return _jobDag == jobDag && _workflowStartTime == workflowCtx.getStartTime();
+  }
+
+  /**
+   * Remove the jobs started since the last call from the index, and add the jobs unblocked by
+   * them. Only the jobs which were ready, and the children of the started ones are examined.
+   * @param workflowCtx current context of the workflow
+   * @return the ready jobs, sorted by name
+   */
+  public TreeSet<String> getReadyJobs(WorkflowContext workflowCtx) {
+    Deque<String> startedJobs = new ArrayDeque<>();
+    for (String job : _readyJobs) {
+      if (TaskUtil.isJobStarted(job, workflowCtx)) {
+        startedJobs.add(job);
+      }
+    }
+    while (!startedJobs.isEmpty()) {
+      String job = startedJobs.poll();
+      _readyJobs.remove(job);
+      for (String child : _jobDag.getDirectChildren(job)) {
+        int unstartedParentCount = _unstartedParentCounts.get(child) - 1;
+        _unstartedParentCounts.put(child, unstartedParentCount);
+        if (unstartedParentCount == 0) {
+          if (TaskUtil.isJobStarted(child, workflowCtx)) {
+            startedJobs.add(child);
+          } else {
+            _readyJobs.add(child);
+          }
+        }
+      }
+    }
+    return new TreeSet<>(_readyJobs);
+  }
+}
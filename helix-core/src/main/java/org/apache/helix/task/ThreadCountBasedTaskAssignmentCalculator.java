@@ -31,6 +31,7 @@ import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.task.assigner.AssignableInstance;
 import org.apache.helix.task.assigner.TaskAssignResult;
 import org.apache.helix.task.assigner.TaskAssigner;
+import org.apache.helix.task.assigner.ThreadCountBasedTaskAssigner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,19 +87,23 @@ public class ThreadCountBasedTaskAssignmentCalculator extends TaskAssignmentCalc
       return new HashMap<>();
     }
 
-    // Get AssignableInstances
-    Iterable<AssignableInstance> assignableInstances =
-        _assignableInstanceManager.getAssignableInstanceMap().values();
-
     // Convert the filtered partitionSet (partition numbers) to TaskConfigs
     Iterable<TaskConfig> taskConfigs = getFilteredTaskConfigs(partitionSet, jobCfg, jobContext);
 
     // Get the quota type to assign tasks to
     String quotaType = getQuotaType(workflowCfg, jobCfg);
 
-    // Assign tasks to AssignableInstances
-    Map<String, TaskAssignResult> taskAssignResultMap =
-        _taskAssigner.assignTasks(assignableInstances, taskConfigs, quotaType);
+    // Assign tasks to AssignableInstances. ThreadCountBasedTaskAssigner picks them from the
+    // capacity index which is kept up to date across the jobs
+    Map<String, TaskAssignResult> taskAssignResultMap;
+    if (_taskAssigner instanceof ThreadCountBasedTaskAssigner) {
+      taskAssignResultMap = ((ThreadCountBasedTaskAssigner) _taskAssigner)
+          .assignTasks(_assignableInstanceManager.getThreadCapacityIndex(), taskConfigs, quotaType);
+    } else {
+      Iterable<AssignableInstance> assignableInstances =
+          _assignableInstanceManager.getAssignableInstanceMap().values();
+      taskAssignResultMap = _taskAssigner.assignTasks(assignableInstances, taskConfigs, quotaType);
+    }
 
     // TODO: Do this with Quota Manager is ready
     // Cache TaskAssignResultMap to prevent double-assign
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeSet;
 
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixDataAccessor;
@@ -196,10 +197,18 @@ public class WorkflowRebalancer extends TaskRebalancer {
       return;
     }
 
-    int inCompleteAllJobCount = TaskUtil.getInCompleteJobCount(workflowCfg, workflowCtx);
+    // Only the incomplete jobs of a queue limit the jobs to schedule
+    int inCompleteAllJobCount =
+        workflowCfg.isJobQueue() ? TaskUtil.getInCompleteJobCount(workflowCfg, workflowCtx) : 0;
     int scheduledJobs = 0;
     long timeToSchedule = Long.MAX_VALUE;
-    for (String job : workflowCfg.getJobDag().getAllNodes()) {
+    // Jobs with an unstarted parent are never ready, so only the jobs whose parents are all started
+    // are examined
+    TreeSet<String> readyJobs =
+        getReadyJobIndex(workflow, workflowCfg, workflowCtx, clusterDataCache)
+            .getReadyJobs(workflowCtx);
+    String job;
+    while ((job = readyJobs.pollFirst()) != null) {
       TaskState jobState = workflowCtx.getJobState(job);
       if (jobState != null && !jobState.equals(TaskState.NOT_STARTED)) {
         if (LOG.isDebugEnabled()) {
@@ -248,6 +257,14 @@ public class WorkflowRebalancer extends TaskRebalancer {
           workflowCtx.setJobState(job, TaskState.NOT_STARTED);
           scheduledJobs++;
         }
+      } else if (TaskUtil.isJobStarted(job, workflowCtx)) {
+        // The job has been marked as failed by a failed parent, so its children are examined in
+        // this run as well
+        for (String child : workflowCfg.getJobDag().getDirectChildren(job)) {
+          if (!TaskUtil.isJobStarted(child, workflowCtx)) {
+            readyJobs.add(child);
+          }
+        }
       }
     }
     long currentScheduledTime =
@@ -258,6 +275,20 @@ public class WorkflowRebalancer extends TaskRebalancer {
     }
   }
 
+  /**
+   * Returns the index of the ready jobs of the workflow kept in the cache, built again if the
+   * JobDag or the workflow run has changed since.
+   */
+  private ReadyJobIndex getReadyJobIndex(String workflow, WorkflowConfig workflowCfg,
+      WorkflowContext workflowCtx, ClusterDataCache clusterDataCache) {
+    ReadyJobIndex readyJobIndex = clusterDataCache.getReadyJobIndex(workflow);
+    if (readyJobIndex == null || !readyJobIndex.isBuiltFrom(workflowCfg.getJobDag(), workflowCtx)) {
+      readyJobIndex = new ReadyJobIndex(workflowCfg.getJobDag(), workflowCtx);
+      clusterDataCache.setReadyJobIndex(workflow, readyJobIndex);
+    }
+    return readyJobIndex;
+  }
+
   /**
    * Posts new job to cluster
    */
@@ -66,6 +66,11 @@ public class AssignableInstance {
    */
   private Map<String, Map<String, Integer>> _usedCapacity;
 
+  /**
+   * The index tracking the remaining capacity of this instance, if any
+   */
+  private ThreadCapacityIndex _capacityIndex;
+
   public AssignableInstance(ClusterConfig clusterConfig, InstanceConfig instanceConfig,
       LiveInstance liveInstance) {
     if (clusterConfig == null || instanceConfig == null || liveInstance == null) {
@@ -186,6 +191,7 @@ public class AssignableInstance {
           "Failed to update capacity for Assignableinstance {}, still using current capacity {}. Current usage: {}",
           _instanceConfig.getInstanceName(), _totalCapacity, _usedCapacity, e);
     }
+    updateCapacityIndex();
   }
 
   /**
@@ -370,6 +376,7 @@ public class AssignableInstance {
           "Task's requested resource type is not supported. TaskConfig: %s; UsedCapacity: %s; ResourceType: %s",
           result.getTaskConfig(), _usedCapacity, resourceType);
     }
+    updateCapacityIndex();
     logger.info("Assigned task {} to instance {}", result.getTaskConfig().getId(),
         _instanceConfig.getInstanceName());
   }
@@ -414,6 +421,7 @@ public class AssignableInstance {
     // If the resource type is not found, we just remove from currentAssignments since no adjustment
     // can be made
     _currentAssignments.remove(taskConfig.getId());
+    updateCapacityIndex();
     logger.info("Released task {} from instance {}", taskConfig.getId(),
         _instanceConfig.getInstanceName());
   }
@@ -442,6 +450,20 @@ public class AssignableInstance {
     return assignResult;
   }
 
+  /**
+   * Set the index to be updated on every capacity change of this instance. Called by
+   * ThreadCapacityIndex when it starts or stops tracking this instance.
+   */
+  void setCapacityIndex(ThreadCapacityIndex capacityIndex) {
+    _capacityIndex = capacityIndex;
+  }
+
+  private void updateCapacityIndex() {
+    if (_capacityIndex != null) {
+      _capacityIndex.updateInstance(this);
+    }
+  }
+
   /**
    * Returns a set of taskIDs
    */
@@ -0,0 +1,221 @@
+package org.apache.helix.task.assigner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.apache.helix.model.LiveInstance;
+
+/**
+ * ThreadCapacityIndex keeps AssignableInstances in buckets of their remaining task threads, one
+ * set of buckets per quota type, so that the instance with the most remaining threads is found
+ * without sorting all instances. The buckets of a quota type are built at the first lookup of the
+ * quota type, and kept up to date by updateInstance() after each change in the capacity of an
+ * instance. Instances in the same bucket are returned in the order they entered the bucket, which
+ * spreads out the tasks like the round robin over equally used instances.
+ */
+public class ThreadCapacityIndex {
+  private static final String RESOURCE_TYPE =
+      LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
+
+  private final boolean _trackInstances;
+  private final Map<String, AssignableInstance> _instances = new HashMap<>();
+  // quotaType -> buckets of the instances by remaining threads of the quota type
+  private final Map<String, CapacityBuckets> _bucketsMap = new HashMap<>();
+
+  /**
+   * Creates an index which is updated by the callers with updateInstance().
+   */
+  public ThreadCapacityIndex() {
+    this(false);
+  }
+
+  /**
+   * @param trackInstances if true, the AssignableInstances added to the index update it on every
+   *          assign, release or capacity change by themselves. An AssignableInstance can be tracked
+   *          by one index at a time.
+   */
+  public ThreadCapacityIndex(boolean trackInstances) {
+    _trackInstances = trackInstances;
+  }
+
+  /**
+   * @return true if the AssignableInstances of the index update it by themselves
+   */
+  public boolean isTrackingInstances() {
+    return _trackInstances;
+  }
+
+  /**
+   * Add an AssignableInstance to the index, or replace the one with the same instance name.
+   * @param instance
+   */
+  public synchronized void addInstance(AssignableInstance instance) {
+    AssignableInstance oldInstance = _instances.put(instance.getInstanceName(), instance);
+    if (_trackInstances) {
+      if (oldInstance != null && oldInstance != instance) {
+        oldInstance.setCapacityIndex(null);
+      }
+      instance.setCapacityIndex(this);
+    }
+    for (Map.Entry<String, CapacityBuckets> entry : _bucketsMap.entrySet()) {
+      if (oldInstance != null) {
+        entry.getValue().remove(oldInstance);
+      }
+      entry.getValue().put(instance, getRemainingThreads(instance, entry.getKey()));
+    }
+  }
+
+  /**
+   * Remove an AssignableInstance from the index.
+   * @param instance
+   */
+  public synchronized void removeInstance(AssignableInstance instance) {
+    if (_instances.get(instance.getInstanceName()) != instance) {
+      return;
+    }
+    _instances.remove(instance.getInstanceName());
+    if (_trackInstances) {
+      instance.setCapacityIndex(null);
+    }
+    for (CapacityBuckets buckets : _bucketsMap.values()) {
+      buckets.remove(instance);
+    }
+  }
+
+  /**
+   * Move the AssignableInstance to the buckets of its current remaining threads. This must be
+   * called after every change in the total or used capacity of the instance.
+   * @param instance
+   */
+  public synchronized void updateInstance(AssignableInstance instance) {
+    if (_instances.get(instance.getInstanceName()) != instance) {
+      return;
+    }
+    for (Map.Entry<String, CapacityBuckets> entry : _bucketsMap.entrySet()) {
+      entry.getValue().put(instance, getRemainingThreads(instance, entry.getKey()));
+    }
+  }
+
+  /**
+   * Remove all AssignableInstances from the index.
+   */
+  public synchronized void clear() {
+    if (_trackInstances) {
+      for (AssignableInstance instance : _instances.values()) {
+        instance.setCapacityIndex(null);
+      }
+    }
+    _instances.clear();
+    _bucketsMap.clear();
+  }
+
+  /**
+   * Returns the AssignableInstance with the most remaining threads for the given quota type.
+   * @param quotaType
+   * @return the AssignableInstance, or null if the index is empty
+   */
+  public synchronized AssignableInstance getMostAvailableInstance(String quotaType) {
+    CapacityBuckets buckets = _bucketsMap.get(quotaType);
+    if (buckets == null) {
+      buckets = new CapacityBuckets();
+      for (AssignableInstance instance : _instances.values()) {
+        buckets.put(instance, getRemainingThreads(instance, quotaType));
+      }
+      _bucketsMap.put(quotaType, buckets);
+    }
+    return buckets.first();
+  }
+
+  /**
+   * @return true if there is no AssignableInstance in the index
+   */
+  public synchronized boolean isEmpty() {
+    return _instances.isEmpty();
+  }
+
+  /**
+   * Returns all AssignableInstances in the index.
+   * @return a copy of the AssignableInstances
+   */
+  public synchronized Collection<AssignableInstance> getInstances() {
+    return new ArrayList<>(_instances.values());
+  }
+
+  /**
+   * Remaining threads of the quota type the same way tryAssign() sees them: quota types that the
+   * instance does not have are assigned as DEFAULT.
+   */
+  private static int getRemainingThreads(AssignableInstance instance, String quotaType) {
+    Map<String, Integer> totalCapacity = instance.getTotalCapacity().get(RESOURCE_TYPE);
+    Map<String, Integer> usedCapacity = instance.getUsedCapacity().get(RESOURCE_TYPE);
+    if (totalCapacity == null) {
+      return 0;
+    }
+    if (!totalCapacity.containsKey(quotaType)) {
+      quotaType = AssignableInstance.DEFAULT_QUOTA_TYPE;
+    }
+    Integer capacity = totalCapacity.get(quotaType);
+    Integer usage = usedCapacity == null ? null : usedCapacity.get(quotaType);
+    if (capacity == null) {
+      return 0;
+    }
+    return Math.max(0, capacity - (usage == null ? 0 : usage));
+  }
+
+  /**
+   * The instances of one quota type bucketed by remaining threads. The highest non-empty bucket
+   * is tracked lazily: it only moves down when looked up, and moves up when an instance is put
+   * in a higher bucket, so a lookup is O(1) amortized over the assignments.
+   */
+  private static class CapacityBuckets {
+    private final List<LinkedHashSet<AssignableInstance>> _buckets = new ArrayList<>();
+    private final Map<AssignableInstance, Integer> _instanceBucketMap = new HashMap<>();
+    private int _highestBucket = -1;
+
+    void put(AssignableInstance instance, int remainingThreads) {
+      remove(instance);
+      while (_buckets.size() <= remainingThreads) {
+        _buckets.add(new LinkedHashSet<AssignableInstance>());
+      }
+      _buckets.get(remainingThreads).add(instance);
+      _instanceBucketMap.put(instance, remainingThreads);
+      _highestBucket = Math.max(_highestBucket, remainingThreads);
+    }
+
+    void remove(AssignableInstance instance) {
+      Integer bucket = _instanceBucketMap.remove(instance);
+      if (bucket != null) {
+        _buckets.get(bucket).remove(instance);
+      }
+    }
+
+    AssignableInstance first() {
+      while (_highestBucket >= 0 && _buckets.get(_highestBucket).isEmpty()) {
+        _highestBucket--;
+      }
+      return _highestBucket < 0 ? null : _buckets.get(_highestBucket).iterator().next();
+    }
+  }
+}
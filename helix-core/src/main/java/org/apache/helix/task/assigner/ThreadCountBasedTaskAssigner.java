@@ -20,11 +20,8 @@ package org.apache.helix.task.assigner;
  */
 
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.PriorityQueue;
-import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.TaskConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +29,6 @@ import org.slf4j.LoggerFactory;
 public class ThreadCountBasedTaskAssigner implements TaskAssigner {
   private static final Logger logger = LoggerFactory.getLogger(ThreadCountBasedTaskAssigner.class);
 
-  private static final int SCHED_QUEUE_INIT_CAPACITY = 200;
   private static final String DEFAULT_QUOTA_TYPE = "DEFAULT";
 
   /**
@@ -63,11 +59,30 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
   @Override
   public Map<String, TaskAssignResult> assignTasks(Iterable<AssignableInstance> assignableInstances,
       Iterable<TaskConfig> tasks, String quotaType) {
+    ThreadCapacityIndex capacityIndex = new ThreadCapacityIndex();
+    if (assignableInstances != null) {
+      for (AssignableInstance assignableInstance : assignableInstances) {
+        capacityIndex.addInstance(assignableInstance);
+      }
+    }
+    return assignTasks(capacityIndex, tasks, quotaType);
+  }
+
+  /**
+   * Same as assignTasks() above, but picks the least used instances from the given index instead
+   * of sorting the instances for each call. Each task is assigned in O(1) amortized time.
+   * @param capacityIndex index of the AssignableInstances
+   * @param tasks TaskConfigs of the same quota type
+   * @param quotaType quota type of the tasks
+   * @return taskID -> TaskAssignmentResult mappings
+   */
+  public Map<String, TaskAssignResult> assignTasks(ThreadCapacityIndex capacityIndex,
+      Iterable<TaskConfig> tasks, String quotaType) {
     if (tasks == null || !tasks.iterator().hasNext()) {
       logger.warn("No task to assign!");
       return Collections.emptyMap();
     }
-    if (assignableInstances == null || !assignableInstances.iterator().hasNext()) {
+    if (capacityIndex == null || capacityIndex.isEmpty()) {
       logger.warn("No instance to assign!");
       return buildNoInstanceAssignment(tasks, quotaType);
     }
@@ -79,9 +94,6 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
 
     logger.info("Assigning tasks with quota type {}", quotaType);
 
-    // Build a sched queue
-    PriorityQueue<AssignableInstance> queue = buildSchedQueue(quotaType, assignableInstances);
-
     // Assign
     Map<String, TaskAssignResult> assignResults = new HashMap<>();
     TaskAssignResult lastFailure = null;
@@ -106,7 +118,7 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
       }
 
       // Try to assign the task to least used instance
-      AssignableInstance instance = queue.poll();
+      AssignableInstance instance = capacityIndex.getMostAvailableInstance(quotaType);
       TaskAssignResult result = instance.tryAssign(task, quotaType);
       assignResults.put(task.getId(), result);
 
@@ -118,25 +130,17 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
         // If the task is successfully accepted by the instance, assign it to the instance
         instance.assign(result);
 
-        // requeue the instance to rank again
-        queue.offer(instance);
+        // A tracking index has already been updated by assign(), others are moved to the bucket
+        // of the remaining capacity here
+        if (!capacityIndex.isTrackingInstances()) {
+          capacityIndex.updateInstance(instance);
+        }
       }
     }
     logger.info("Finished assigning tasks with quota type {}", quotaType);
     return assignResults;
   }
 
-  private PriorityQueue<AssignableInstance> buildSchedQueue(String quotaType,
-      Iterable<AssignableInstance> instances) {
-    AssignableInstanceComparator comparator = new AssignableInstanceComparator(quotaType);
-    PriorityQueue<AssignableInstance> queue =
-        new PriorityQueue<>(SCHED_QUEUE_INIT_CAPACITY, comparator);
-    for (AssignableInstance assignableInstance : instances) {
-      queue.offer(assignableInstance);
-    }
-    return queue;
-  }
-
   private Map<String, TaskAssignResult> buildNoInstanceAssignment(Iterable<TaskConfig> tasks,
       String quotaType) {
     Map<String, TaskAssignResult> result = new HashMap<>();
@@ -146,46 +150,4 @@ public class ThreadCountBasedTaskAssigner implements TaskAssigner {
     }
     return result;
   }
-
-  private class AssignableInstanceComparator implements Comparator<AssignableInstance> {
-
-    /**
-     * Resource type this comparator needs to compare
-     */
-    private final String RESOURCE_TYPE = LiveInstance.InstanceResourceType.TASK_EXEC_THREAD.name();
-
-    /**
-     * Resource quota type this comparator needs to compare
-     */
-    private final String _quotaType;
-
-    public AssignableInstanceComparator(String quotaType) {
-      _quotaType = quotaType;
-    }
-
-    /**
-     * Using this comparator, AssignableInstance will be sorted based on availability of
-     * quota given job type in the priority queue. Top of the queue will be the one with
-     * highest priority
-     * @return a negative integer, zero, or a positive integer as the
-     *         first argument is less than, equal to, or greater than the
-     *         second
-     */
-    @Override
-    public int compare(AssignableInstance o1, AssignableInstance o2) {
-      Integer o1RemainingCapacity = getRemainingUsage(o1.getTotalCapacity(), o1.getUsedCapacity());
-      Integer o2RemainingCapacity = getRemainingUsage(o2.getTotalCapacity(), o2.getUsedCapacity());
-      return o2RemainingCapacity - o1RemainingCapacity;
-    }
-
-    private Integer getRemainingUsage(Map<String, Map<String, Integer>> capacity,
-        Map<String, Map<String, Integer>> used) {
-      if (capacity.containsKey(RESOURCE_TYPE)
-          && capacity.get(RESOURCE_TYPE).containsKey(_quotaType)) {
-        return capacity.get(RESOURCE_TYPE).get(_quotaType)
-            - used.get(RESOURCE_TYPE).get(_quotaType);
-      }
-      return 0;
-    }
-  }
-}
\ No newline at end of file
+}
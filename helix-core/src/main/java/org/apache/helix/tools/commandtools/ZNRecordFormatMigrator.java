@@ -0,0 +1,236 @@
+package org.apache.helix.tools.commandtools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.I0Itec.zkclient.exception.ZkBadVersionException;
+import org.I0Itec.zkclient.exception.ZkNoNodeException;
+import org.I0Itec.zkclient.serialize.ZkSerializer;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.manager.zk.ByteArraySerializer;
+import org.apache.helix.manager.zk.ZNRecordBinarySerializer;
+import org.apache.helix.manager.zk.ZNRecordSerializer;
+import org.apache.helix.manager.zk.ZkClient;
+import org.apache.zookeeper.common.PathUtils;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tool for rewriting the ZNRecords under a zk path in JSON or binary format.
+ * Each znode is rewritten with a version check, so concurrent updates are never overwritten.
+ * Znodes that are not ZNRecords, already in the target format or ephemeral are skipped.
+ */
+public class ZNRecordFormatMigrator {
+  public enum Format {
+    json,
+    binary
+  }
+
+  private static Logger logger = LoggerFactory.getLogger(ZNRecordFormatMigrator.class);
+  private static final String zkSvr = "zkSvr";
+  private static final String path = "path";
+  private static final String format = "format";
+  private static final String dryRun = "dryRun";
+
+  private final ZkClient _client;
+  private final Format _format;
+  private final boolean _dryRun;
+  private final ZkSerializer _reader = new ZNRecordBinarySerializer();
+  private final ZkSerializer _writer;
+
+  private int _migratedCount = 0;
+  private int _skippedCount = 0;
+  private int _failedCount = 0;
+  private long _bytesBefore = 0;
+  private long _bytesAfter = 0;
+
+  /**
+   * @param client a zk client using {@link ByteArraySerializer}
+   * @param format the format to rewrite the ZNRecords in
+   * @param dryRun only report the size change without writing
+   */
+  public ZNRecordFormatMigrator(ZkClient client, Format format, boolean dryRun) {
+    _client = client;
+    _format = format;
+    _dryRun = dryRun;
+    _writer = format == Format.binary ? new ZNRecordBinarySerializer() : new ZNRecordSerializer();
+  }
+
+  /**
+   * Rewrite all ZNRecords under the root path, including the root.
+   * @param rootPath
+   */
+  public void migrate(String rootPath) {
+    // Strip off tailing "/"
+    if (!rootPath.equals("/") && rootPath.endsWith("/")) {
+      rootPath = rootPath.substring(0, rootPath.length() - 1);
+    }
+    PathUtils.validatePath(rootPath);
+
+    // BFS
+    List<String> queue = new LinkedList<>();
+    queue.add(rootPath);
+    while (!queue.isEmpty()) {
+      String nodePath = queue.remove(0);
+      migrateNode(nodePath);
+      try {
+        for (String child : _client.getChildren(nodePath)) {
+          queue.add(nodePath.equals("/") ? "/" + child : nodePath + "/" + child);
+        }
+      } catch (ZkNoNodeException e) {
+        logger.warn("Skip removed znode: " + nodePath);
+      }
+    }
+  }
+
+  private void migrateNode(String nodePath) {
+    Stat stat = new Stat();
+    byte[] bytes;
+    try {
+      bytes = _client.readData(nodePath, stat);
+    } catch (ZkNoNodeException e) {
+      return;
+    }
+    if (bytes == null || bytes.length == 0 || stat.getEphemeralOwner() != 0
+        || ZNRecordBinarySerializer.isBinaryFormat(bytes) == (_format == Format.binary)) {
+      _skippedCount++;
+      return;
+    }
+
+    Object record = _reader.deserialize(bytes);
+    if (!(record instanceof ZNRecord)) {
+      logger.info("Skip znode that is not a ZNRecord: " + nodePath);
+      _skippedCount++;
+      return;
+    }
+
+    byte[] newBytes = _writer.serialize(record);
+    if (!_dryRun) {
+      try {
+        _client.writeData(nodePath, newBytes, stat.getVersion());
+      } catch (ZkBadVersionException e) {
+        logger.warn("Skip znode updated during migration: " + nodePath);
+        _failedCount++;
+        return;
+      } catch (ZkNoNodeException e) {
+        return;
+      }
+    }
+    _migratedCount++;
+    _bytesBefore += bytes.length;
+    _bytesAfter += newBytes.length;
+  }
+
+  public int getMigratedCount() {
+    return _migratedCount;
+  }
+
+  public int getSkippedCount() {
+    return _skippedCount;
+  }
+
+  /**
+   * @return the number of znodes not migrated because they were updated concurrently
+   */
+  public int getFailedCount() {
+    return _failedCount;
+  }
+
+  @Override
+  public String toString() {
+    return (_dryRun ? "[dry run] " : "") + "Migrated " + _migratedCount + " znodes to " + _format
+        + " (" + _bytesBefore + " -> " + _bytesAfter + " bytes), skipped " + _skippedCount
+        + ", failed on concurrent update " + _failedCount;
+  }
+
+  @SuppressWarnings("static-access")
+  private static Options constructCmdLineOpt() {
+    Option zkServerOpt =
+        OptionBuilder.withLongOpt(zkSvr).hasArgs(1).isRequired(true)
+            .withArgName("ZookeeperServerAddress (e.g. localhost:2181)")
+            .withDescription("Provide zookeeper address").create();
+
+    Option pathOpt =
+        OptionBuilder.withLongOpt(path).hasArgs(1).isRequired(true)
+            .withArgName("root path (e.g. /MyCluster)")
+            .withDescription("Provide the root path of the znodes to migrate").create();
+
+    Option formatOpt =
+        OptionBuilder.withLongOpt(format).hasArgs(1).isRequired(true)
+            .withArgName("json|binary")
+            .withDescription("Provide the format to rewrite the ZNRecords in").create();
+
+    Option dryRunOpt =
+        OptionBuilder.withLongOpt(dryRun).hasArg(false).isRequired(false)
+            .withDescription("Only report the size change without writing").create();
+
+    Options options = new Options();
+    options.addOption(zkServerOpt);
+    options.addOption(pathOpt);
+    options.addOption(formatOpt);
+    options.addOption(dryRunOpt);
+    return options;
+  }
+
+  private static void printUsage(Options cliOptions) {
+    HelpFormatter helpFormatter = new HelpFormatter();
+    helpFormatter.setWidth(1000);
+    helpFormatter.printHelp("java " + ZNRecordFormatMigrator.class.getName(), cliOptions);
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineParser cliParser = new GnuParser();
+    Options cliOptions = constructCmdLineOpt();
+    CommandLine cmd = null;
+
+    try {
+      cmd = cliParser.parse(cliOptions, args);
+    } catch (ParseException pe) {
+      System.err.println("CommandLineClient: failed to parse command-line options: "
+          + pe.toString());
+      printUsage(cliOptions);
+      System.exit(1);
+    }
+
+    ZkClient client =
+        new ZkClient(cmd.getOptionValue(zkSvr), ZkClient.DEFAULT_SESSION_TIMEOUT,
+            ZkClient.DEFAULT_CONNECTION_TIMEOUT, new ByteArraySerializer());
+    try {
+      ZNRecordFormatMigrator migrator =
+          new ZNRecordFormatMigrator(client, Format.valueOf(cmd.getOptionValue(format)),
+              cmd.hasOption(dryRun));
+      migrator.migrate(cmd.getOptionValue(path));
+      System.out.println(migrator);
+    } finally {
+      client.close();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.apache.helix.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A codec to compress serialized ZNRecords.
+ * <p>
+ * The compressed bytes must start with a header that identifies the codec, so that readers can
+ * detect which codec to decompress them with. Codecs are registered in {@link CompressionCodecs},
+ * either explicitly or through {@link java.util.ServiceLoader}, in which case the implementation
+ * needs a public no-arg constructor.
+ */
+public interface CompressionCodec {
+  /**
+   * @return the unique name of the codec, used to select it in a ZNRecord or a serializer
+   */
+  String getName();
+
+  /**
+   * Check if the bytes are compressed by this codec.
+   * @param bytes
+   * @return true if the bytes start with the header of this codec
+   */
+  boolean isCompressed(byte[] bytes);
+
+  /**
+   * Compress the bytes, including the header of this codec.
+   * @param bytes
+   * @return the compressed bytes
+   * @throws IOException
+   */
+  byte[] compress(byte[] bytes) throws IOException;
+
+  /**
+   * Wrap the compressed bytes, including the header, into a stream of the decompressed bytes.
+   * The data is decompressed while the stream is read.
+   * @param in
+   * @return the stream of the decompressed bytes
+   * @throws IOException
+   */
+  InputStream decompress(InputStream in) throws IOException;
+}
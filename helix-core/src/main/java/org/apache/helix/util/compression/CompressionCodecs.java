@@ -0,0 +1,194 @@
+package org.apache.helix.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.zip.Deflater;
+import org.apache.helix.HelixException;
+import org.apache.helix.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the {@link CompressionCodec}s used to compress ZNRecords.
+ * <p>
+ * The built-in codecs are "gzip", "lz4" and "deflate-1" to "deflate-9". Other codecs are loaded
+ * with {@link ServiceLoader}, or registered with {@link #register(CompressionCodec)}. A ZNRecord
+ * selects its codec by name with the {@link #COMPRESSION_CODEC} simple field.
+ */
+public class CompressionCodecs {
+  private static final Logger LOG = LoggerFactory.getLogger(CompressionCodecs.class);
+
+  /**
+   * The simple field of a ZNRecord to select the codec it is compressed with.
+   */
+  public static final String COMPRESSION_CODEC = "compressionCodec";
+  /**
+   * The simple field of a ZNRecord to enable compression with the default codec.
+   */
+  public static final String ENABLE_COMPRESSION = "enableCompression";
+
+  public static final CompressionCodec GZIP = new GZipCompressionCodec();
+  public static final CompressionCodec LZ4 = new LZ4CompressionCodec();
+  public static final CompressionCodec DEFLATE_FAST = new DeflateCompressionCodec(
+      Deflater.BEST_SPEED);
+
+  // Replaced on registration, so readers never lock.
+  private static volatile Map<String, CompressionCodec> _codecs =
+      Collections.<String, CompressionCodec>emptyMap();
+
+  static {
+    register(GZIP);
+    register(LZ4);
+    register(DEFLATE_FAST);
+    for (int level = Deflater.BEST_SPEED + 1; level <= Deflater.BEST_COMPRESSION; level++) {
+      register(new DeflateCompressionCodec(level));
+    }
+    try {
+      Iterator<CompressionCodec> iter = ServiceLoader.load(CompressionCodec.class).iterator();
+      while (iter.hasNext()) {
+        register(iter.next());
+      }
+    } catch (ServiceConfigurationError e) {
+      LOG.error("Failed to load compression codecs", e);
+    }
+  }
+
+  private CompressionCodecs() {
+  }
+
+  /**
+   * Register a codec. A codec registered with the same name is replaced.
+   * @param codec
+   */
+  public static synchronized void register(CompressionCodec codec) {
+    Map<String, CompressionCodec> codecs = new LinkedHashMap<>(_codecs);
+    codecs.put(codec.getName(), codec);
+    _codecs = codecs;
+  }
+
+  /**
+   * @param name
+   * @return the codec registered with the name, or null if there is no such codec
+   */
+  public static CompressionCodec getCodec(String name) {
+    return _codecs.get(name);
+  }
+
+  /**
+   * Detect the codec the bytes are compressed with by their header.
+   * @param bytes
+   * @return the codec, or null if the bytes are not compressed by any registered codec
+   */
+  public static CompressionCodec detectCodec(byte[] bytes) {
+    for (CompressionCodec codec : _codecs.values()) {
+      if (codec.isCompressed(bytes)) {
+        return codec;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Select the codec to compress a serialized ZNRecord with. The codec named in the record takes
+   * precedence over the default codec of the serializer. Without a codec configured, records are
+   * compressed with GZIP only if compression is enabled in the record or they exceed
+   * {@link ZNRecord#SIZE_LIMIT}.
+   * @param record
+   * @param defaultCodec the codec configured for the serializer, may be null
+   * @param serializedLength the length of the uncompressed bytes
+   * @return the codec, or null if the record should not be compressed
+   */
+  public static CompressionCodec selectCodec(ZNRecord record, CompressionCodec defaultCodec,
+      int serializedLength) {
+    return selectCodec(record, defaultCodec, GZIP, serializedLength);
+  }
+
+  /**
+   * Same as {@link #selectCodec(ZNRecord, CompressionCodec, int)}, but without a codec configured,
+   * records that enable compression or exceed {@link ZNRecord#SIZE_LIMIT} are compressed with the
+   * given codec instead of GZIP.
+   * @param record
+   * @param defaultCodec the codec configured for the serializer, may be null
+   * @param enabledCodec the codec of the records that enable compression
+   * @param serializedLength the length of the uncompressed bytes
+   * @return the codec, or null if the record should not be compressed
+   */
+  public static CompressionCodec selectCodec(ZNRecord record, CompressionCodec defaultCodec,
+      CompressionCodec enabledCodec, int serializedLength) {
+    String codecName = record.getSimpleField(COMPRESSION_CODEC);
+    if (codecName != null) {
+      CompressionCodec codec = getCodec(codecName);
+      if (codec == null) {
+        throw new HelixException(
+            "Unknown compression codec " + codecName + ", ZNRecord.id: " + record.getId());
+      }
+      return codec;
+    }
+    if (defaultCodec != null) {
+      return defaultCodec;
+    }
+    if (record.getBooleanField(ENABLE_COMPRESSION, false) || serializedLength > ZNRecord.SIZE_LIMIT) {
+      return enabledCodec;
+    }
+    return null;
+  }
+
+  /**
+   * Return a stream of the bytes, decompressed by the codec detected from their header.
+   * @param bytes
+   * @return the decompressing stream, or a stream of the bytes if they are not compressed
+   * @throws IOException
+   */
+  public static InputStream decompress(byte[] bytes) throws IOException {
+    InputStream in = new ByteArrayInputStream(bytes);
+    CompressionCodec codec = detectCodec(bytes);
+    return codec == null ? in : codec.decompress(in);
+  }
+
+  static boolean startsWith(byte[] bytes, byte[] header) {
+    if (bytes == null || bytes.length < header.length) {
+      return false;
+    }
+    for (int i = 0; i < header.length; i++) {
+      if (bytes[i] != header[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static void skipHeader(InputStream in, int length) throws IOException {
+    for (int i = 0; i < length; i++) {
+      if (in.read() < 0) {
+        throw new EOFException("Unexpected end of compressed data");
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package org.apache.helix.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import org.apache.helix.util.GZipCompressionUtil;
+
+/**
+ * GZIP codec. This is the codec ZNRecords were always compressed with, and is identified by the
+ * GZIP magic number.
+ */
+public class GZipCompressionCodec implements CompressionCodec {
+  public static final String NAME = "gzip";
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public boolean isCompressed(byte[] bytes) {
+    return GZipCompressionUtil.isCompressed(bytes);
+  }
+
+  @Override
+  public byte[] compress(byte[] bytes) throws IOException {
+    return GZipCompressionUtil.compress(bytes);
+  }
+
+  @Override
+  public InputStream decompress(InputStream in) throws IOException {
+    return new GZIPInputStream(in);
+  }
+}
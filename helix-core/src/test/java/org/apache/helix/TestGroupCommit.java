@@ -19,9 +19,16 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.helix.mock.MockBaseDataAccessor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
 
 public class TestGroupCommit {
   // @Test
@@ -38,6 +45,67 @@ public class TestGroupCommit {
     System.out.println(accessor.get("test", null, 0).getSimpleFields().size());
   }
 
+  @Test
+  public void testCommitWindow() throws Exception {
+    BaseDataAccessor<ZNRecord> accessor = new MockBaseDataAccessor();
+    GroupCommit commit = new GroupCommit(200);
+    List<Boolean> results = commitConcurrently(accessor, commit, 20);
+
+    for (boolean result : results) {
+      Assert.assertTrue(result);
+    }
+    Assert.assertEquals(accessor.get("test", null, 0).getMapFields().size(), 20);
+    Assert.assertEquals(commit.getPendingUpdateCount(), 0);
+    Assert.assertEquals(commit.getCommittedUpdateCount(), 20);
+    // the updates arriving within the commit window are merged
+    Assert.assertTrue(commit.getCommitCount() < 20);
+  }
+
+  @Test
+  public void testFailedCommit() throws Exception {
+    BaseDataAccessor<ZNRecord> accessor = new MockBaseDataAccessor() {
+      @Override
+      public boolean set(String path, ZNRecord record, int options) {
+        return false;
+      }
+    };
+    GroupCommit commit = new GroupCommit(200);
+    List<Boolean> results = commitConcurrently(accessor, commit, 10);
+
+    // every merged update is told the write failed
+    for (boolean result : results) {
+      Assert.assertFalse(result);
+    }
+    Assert.assertEquals(commit.getPendingUpdateCount(), 0);
+  }
+
+  private List<Boolean> commitConcurrently(final BaseDataAccessor<ZNRecord> accessor,
+      final GroupCommit commit, int count) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(count);
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        final String partition = "partition_" + i;
+        futures.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            ZNRecord record = new ZNRecord("test");
+            record.setMapField(partition, new HashMap<String, String>());
+            record.getMapField(partition).put("CURRENT_STATE", "ONLINE");
+            return commit.commit(accessor, 0, "test", record);
+          }
+        }));
+      }
+      List<Boolean> results = new ArrayList<>();
+      for (Future<Boolean> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
 
 class MyClass implements Runnable {
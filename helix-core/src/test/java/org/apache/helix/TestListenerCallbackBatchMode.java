@@ -19,6 +19,7 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
@@ -219,6 +220,39 @@ public class TestListenerCallbackBatchMode extends ZkUnitTestBase {
     System.out.println("END " + methodName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test (dependsOnMethods = {"testNonBatchedListener", "testBatchedListener", "testMixedListener"})
+  public void testBatchedListenersShareDispatchThreads() throws Exception {
+    String methodName = TestHelper.getTestMethodName();
+    System.out.println("START " + methodName + " at " + new Date(System.currentTimeMillis()));
+
+    int numListeners = 10;
+    List<Listener> listeners = new ArrayList<>();
+    for (int i = 0; i < numListeners; i++) {
+      BatchedListener listener = new BatchedListener();
+      addListeners(listener);
+      listeners.add(listener);
+    }
+    updateConfigs();
+
+    // callbacks of all the batch-mode handlers are dispatched by a bounded set of shared threads
+    int dispatchThreadCount = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      Assert.assertFalse(thread.getName().startsWith("CallbackProcessor"), thread.getName());
+      if (thread.getName().startsWith("CallbackDispatcher-")) {
+        dispatchThreadCount++;
+      }
+    }
+    Assert.assertTrue(dispatchThreadCount > 0);
+    Assert.assertTrue(dispatchThreadCount <= Math.max(2, Runtime.getRuntime().availableProcessors()),
+        "dispatch threads: " + dispatchThreadCount);
+
+    for (Listener listener : listeners) {
+      removeListeners(listener);
+    }
+
+    System.out.println("END " + methodName + " at " + new Date(System.currentTimeMillis()));
+  }
+
   private void verifyNonbatchedListeners(final Listener listener) throws Exception {
     Boolean result = TestHelper.verify(new TestHelper.Verifier() {
       @Override public boolean verify() {
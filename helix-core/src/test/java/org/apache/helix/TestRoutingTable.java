@@ -172,6 +172,45 @@ public class TestRoutingTable {
     }
   }
 
+  @Test()
+  public void testCompiledLookups() {
+    RoutingTableProvider routingTable = new RoutingTableProvider();
+    ZNRecord record = new ZNRecord("TESTDB");
+
+    try {
+      add(record, "TESTDB_0", "localhost_8901", "MASTER");
+      add(record, "TESTDB_0", "localhost_8900", "MASTER");
+      add(record, "TESTDB_1", "localhost_8900", "SLAVE");
+      List<ExternalView> externalViewList = new ArrayList<>();
+      externalViewList.add(new ExternalView(record));
+      routingTable.onExternalViewChange(externalViewList, changeContext);
+
+      // instances are sorted, and the same list is returned for repeated lookups
+      List<InstanceConfig> instances = routingTable.getInstances("TESTDB", "TESTDB_0", "MASTER");
+      Assert.assertEquals(instances.size(), 2);
+      Assert.assertEquals(instances.get(0).getInstanceName(), "localhost_8900");
+      Assert.assertEquals(instances.get(1).getInstanceName(), "localhost_8901");
+      Assert.assertSame(routingTable.getInstances("TESTDB", "TESTDB_0", "MASTER"), instances);
+      try {
+        instances.clear();
+        Assert.fail("Instances returned by the routing table should not be modifiable");
+      } catch (UnsupportedOperationException e) {
+        // expected
+      }
+
+      // unknown resource, partition or state
+      Assert.assertTrue(routingTable.getInstances("TESTDB", "TESTDB_1", "MASTER").isEmpty());
+      Assert.assertTrue(routingTable.getInstances("TESTDB", "TESTDB_2", "MASTER").isEmpty());
+      Assert.assertTrue(routingTable.getInstances("TESTDB", "TESTDB_0", "OFFLINE").isEmpty());
+      Assert.assertTrue(routingTable.getInstances("TESTDB1", "TESTDB_0", "MASTER").isEmpty());
+      Assert.assertTrue(routingTable.getInstances("TESTDB", "OFFLINE").isEmpty());
+      Assert.assertEquals(routingTable.getInstances("TESTDB", "MASTER").size(), 2);
+      Assert.assertEquals(routingTable.getInstances("TESTDB", "SLAVE").size(), 1);
+    } finally {
+      routingTable.shutdown();
+    }
+  }
+
   @Test()
   public void testStateUnitGroupDeletion() throws InterruptedException {
     List<InstanceConfig> instances;
@@ -21,10 +21,13 @@ package org.apache.helix.controller.stages;
 
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.helix.model.BuiltInStateModelDefinitions;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState.RebalanceMode;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
+import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
@@ -69,4 +72,96 @@ public class TestBestPossibleStateCalcStage extends BaseStageTest {
     System.out.println("END TestBestPossibleStateCalcStage at "
         + new Date(System.currentTimeMillis()));
   }
+
+  @Test
+  public void testParallelCompute() {
+    String[] resources = getResourceNames(50);
+    int numPartition = 10;
+    setupIdealState(5, resources, numPartition, 3, RebalanceMode.SEMI_AUTO,
+        BuiltInStateModelDefinitions.MasterSlave.name());
+    setupLiveInstances(5);
+    setupStateModel();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      BestPossibleStateOutput serialOutput = computeBestPossibleStates(resources, numPartition, 1,
+          pool);
+      BestPossibleStateOutput parallelOutput =
+          computeBestPossibleStates(resources, numPartition, 4, pool);
+
+      Assert.assertEquals(parallelOutput.resourceSet(), serialOutput.resourceSet());
+      for (String resource : resources) {
+        Assert.assertEquals(parallelOutput.getPartitionStateMap(resource).getStateMap(),
+            serialOutput.getPartitionStateMap(resource).getStateMap());
+        Assert.assertEquals(parallelOutput.getPreferenceLists(resource),
+            serialOutput.getPreferenceLists(resource));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Prints the latency of BestPossibleStateCalcStage against the resource count and the
+   * parallelism. Enable to run it manually.
+   */
+  @Test(enabled = false)
+  public void benchmarkParallelCompute() {
+    int numPartition = 100;
+    int numInstance = 20;
+    int[] resourceCounts = new int[] { 100, 1000, 3000 };
+    int[] parallelisms = new int[] { 1, 2, 4, 8 };
+
+    setupLiveInstances(numInstance);
+    setupStateModel();
+    ForkJoinPool pool = new ForkJoinPool(parallelisms[parallelisms.length - 1]);
+    try {
+      for (int resourceCount : resourceCounts) {
+        String[] resources = getResourceNames(resourceCount);
+        setupIdealState(numInstance, resources, numPartition, 3, RebalanceMode.SEMI_AUTO,
+            BuiltInStateModelDefinitions.MasterSlave.name());
+        for (int parallelism : parallelisms) {
+          // warm up
+          computeBestPossibleStates(resources, numPartition, parallelism, pool);
+          long startTime = System.currentTimeMillis();
+          int runs = 5;
+          for (int i = 0; i < runs; i++) {
+            computeBestPossibleStates(resources, numPartition, parallelism, pool);
+          }
+          System.out.println(String.format("resources: %d, parallelism: %d, latency: %d ms",
+              resourceCount, parallelism, (System.currentTimeMillis() - startTime) / runs));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private String[] getResourceNames(int count) {
+    String[] resources = new String[count];
+    for (int i = 0; i < count; i++) {
+      resources[i] = "testResource_" + i;
+    }
+    return resources;
+  }
+
+  private BestPossibleStateOutput computeBestPossibleStates(String[] resources, int numPartition,
+      int parallelism, ForkJoinPool pool) {
+    ClusterConfig clusterConfig = new ClusterConfig(_clusterName);
+    clusterConfig.setBestPossibleCalcParallelism(parallelism);
+    setClusterConfig(clusterConfig);
+
+    ClusterDataCache cache = new ClusterDataCache(_clusterName);
+    cache.setRebalanceThreadPool(pool);
+    Map<String, Resource> resourceMap =
+        getResourceMap(resources, numPartition, BuiltInStateModelDefinitions.MasterSlave.name());
+    event.addAttribute(AttributeName.ClusterDataCache.name(), cache);
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), new CurrentStateOutput());
+
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    return event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+  }
 }
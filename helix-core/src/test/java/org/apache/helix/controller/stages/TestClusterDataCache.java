@@ -19,11 +19,17 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import org.apache.helix.HelixConstants;
 import org.apache.helix.TestHelper;
 import org.apache.helix.integration.task.TaskTestBase;
 import org.apache.helix.integration.task.WorkflowGenerator;
 import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.JobContext;
+import org.apache.helix.task.JobDag;
+import org.apache.helix.task.TaskState;
+import org.apache.helix.task.TaskUtil;
 import org.apache.helix.task.Workflow;
+import org.apache.helix.task.WorkflowContext;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -61,4 +67,90 @@ public class TestClusterDataCache extends TaskTestBase {
     Assert.assertEquals(cache.getWorkflowConfigMap().size(), 2);
     Assert.assertEquals(cache.getContexts().size(), 5);
   }
+
+  @Test(dependsOnMethods = "testResourceConfigRefresh")
+  public void testContextRefresh() throws InterruptedException {
+    _driver.pollForWorkflowState("TEST", TaskState.COMPLETED);
+    _driver.pollForWorkflowState("TEST1", TaskState.COMPLETED);
+    ClusterDataCache cache = new ClusterDataCache("CLUSTER_" + TestHelper.getTestClassName());
+    cache.setTaskCache(true);
+    cache.refresh(_manager.getHelixDataAccessor());
+    int contextCount = cache.getContexts().size();
+    Assert.assertEquals(cache.getLastContextFetchedCount(), contextCount);
+    Assert.assertEquals(cache.getLastContextSkippedCount(), 0);
+    Assert.assertTrue(cache.getLastContextFetchedBytes() > 0);
+
+    // Unchanged contexts are not read again
+    cache.requireFullRefresh();
+    cache.refresh(_manager.getHelixDataAccessor());
+    Assert.assertEquals(cache.getContexts().size(), contextCount);
+    Assert.assertEquals(cache.getLastContextFetchedCount(), 0);
+    Assert.assertEquals(cache.getLastContextSkippedCount(), contextCount);
+    Assert.assertEquals(cache.getLastContextFetchedBytes(), 0);
+
+    // Changes of the handed out contexts do not leak into the cached ones
+    WorkflowContext workflowContext = cache.getWorkflowContext("TEST");
+    String job = workflowContext.getJobStates().keySet().iterator().next();
+    workflowContext.setJobState(job, TaskState.FAILED);
+    Assert.assertEquals(cache.getWorkflowContext("TEST").getJobState(job), TaskState.COMPLETED);
+
+    // Unchanged contexts are not written back
+    workflowContext.setJobState(job, TaskState.COMPLETED);
+    cache.updateWorkflowContext("TEST", workflowContext, _manager.getHelixDataAccessor());
+    Assert.assertEquals(cache.persistTaskContexts(_manager.getHelixDataAccessor()), 0);
+
+    // Updated contexts are persisted in a batch, and only they are read again
+    workflowContext.setFinishTime(workflowContext.getFinishTime() + 1);
+    cache.updateWorkflowContext("TEST", workflowContext, _manager.getHelixDataAccessor());
+    Assert.assertEquals(cache.getWorkflowContext("TEST").getFinishTime(),
+        workflowContext.getFinishTime());
+    Assert.assertEquals(cache.persistTaskContexts(_manager.getHelixDataAccessor()), 1);
+    Assert.assertEquals(cache.persistTaskContexts(_manager.getHelixDataAccessor()), 0);
+    cache.requireFullRefresh();
+    cache.refresh(_manager.getHelixDataAccessor());
+    Assert.assertEquals(cache.getLastContextFetchedCount(), 1);
+    Assert.assertEquals(cache.getLastContextSkippedCount(), contextCount - 1);
+    Assert.assertTrue(cache.getLastContextFetchedBytes() > 0);
+    Assert.assertEquals(cache.getWorkflowContext("TEST").getFinishTime(),
+        workflowContext.getFinishTime());
+  }
+
+  @Test(dependsOnMethods = "testContextRefresh")
+  public void testJobStartTime() {
+    ClusterDataCache cache = new ClusterDataCache("CLUSTER_" + TestHelper.getTestClassName());
+    cache.setTaskCache(true);
+    cache.requireFullRefresh();
+    cache.refresh(_manager.getHelixDataAccessor());
+
+    String job = TaskUtil.getNamespacedJobName("TEST1", WorkflowGenerator.JOB_NAME_2);
+    JobContext jobContext = cache.getJobContext(job);
+    Assert.assertEquals(cache.getJobStartTime(job), Long.valueOf(jobContext.getStartTime()));
+    Assert.assertNull(cache.getJobStartTime("NOT_A_JOB"));
+
+    // The start time follows the updates of the cached context
+    jobContext.setStartTime(jobContext.getStartTime() + 1);
+    cache.updateJobContext(job, jobContext, _manager.getHelixDataAccessor());
+    Assert.assertEquals(cache.getJobStartTime(job), Long.valueOf(jobContext.getStartTime()));
+  }
+
+  @Test(dependsOnMethods = "testResourceConfigRefresh")
+  public void testJobDagReuse() {
+    ClusterDataCache cache = new ClusterDataCache("CLUSTER_" + TestHelper.getTestClassName());
+    cache.setTaskCache(true);
+    cache.refresh(_manager.getHelixDataAccessor());
+    JobDag jobDag = cache.getWorkflowConfig("TEST1").getJobDag();
+
+    // The JobDag of an unchanged workflow config is not parsed again
+    cache.refresh(_manager.getHelixDataAccessor());
+    Assert.assertSame(cache.getWorkflowConfig("TEST1").getJobDag(), jobDag);
+
+    // A reloaded config is parsed again
+    cache.notifyDataChange(HelixConstants.ChangeType.RESOURCE_CONFIG);
+    cache.notifyDataChange(HelixConstants.ChangeType.RESOURCE_CONFIG,
+        _manager.getHelixDataAccessor().keyBuilder().resourceConfig("TEST1").getPath());
+    cache.refresh(_manager.getHelixDataAccessor());
+    Assert.assertNotSame(cache.getWorkflowConfig("TEST1").getJobDag(), jobDag);
+    Assert.assertEquals(cache.getWorkflowConfig("TEST1").getJobDag().getAllNodes(),
+        jobDag.getAllNodes());
+  }
 }
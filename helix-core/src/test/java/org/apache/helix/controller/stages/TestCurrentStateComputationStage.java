@@ -19,13 +19,18 @@ package org.apache.helix.controller.stages;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.ZNRecord;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
+import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
@@ -109,4 +114,120 @@ public class TestCurrentStateComputationStage extends BaseStageTest {
 
   }
 
+  @Test
+  public void testParallelComputation() {
+    String[] resources = { "TestDB_0", "TestDB_1" };
+    int numPartition = 50;
+    List<String> instances = setupLiveInstances(250);
+    Map<String, Resource> resourceMap = getResourceMap(resources, numPartition, "MasterSlave");
+
+    Builder keyBuilder = accessor.keyBuilder();
+    for (int i = 0; i < instances.size(); i++) {
+      String instance = instances.get(i);
+      String sessionId = SESSION_PREFIX + i;
+      for (String resource : resources) {
+        CurrentState currentState = new CurrentState(resource);
+        // some instances still have current states of a previous session
+        currentState.setSessionId(i % 11 == 0 ? "session_dead" : sessionId);
+        currentState.setStateModelDefRef("MasterSlave");
+        currentState.setBucketSize(i % 2);
+        for (int j = 0; j < 3; j++) {
+          String partition = resource + "_" + (i + j * 7) % numPartition;
+          currentState.setState(partition, j == 0 ? "MASTER" : "SLAVE");
+          if (i % 3 == 0) {
+            currentState.setRequestedState(partition, "OFFLINE");
+            currentState.setInfo(partition, "info_" + i);
+            currentState.setEndTime(partition, i);
+          }
+        }
+        accessor.setProperty(keyBuilder.currentState(instance, sessionId, resource),
+            currentState);
+      }
+
+      Message message = new Message(i % 5 == 0 ? Message.MessageType.STATE_TRANSITION_CANCELLATION
+          : Message.MessageType.STATE_TRANSITION, "msg_" + i);
+      message.setFromState("SLAVE");
+      message.setToState("MASTER");
+      message.setResourceName(resources[i % 2]);
+      message.setTgtName(instance);
+      message.setTgtSessionId(sessionId);
+      if (i % 4 == 0) {
+        message.setBatchMessageMode(true);
+        message.addPartitionName(resources[i % 2] + "_" + i % numPartition);
+        message.addPartitionName(resources[i % 2] + "_0");
+      } else {
+        message.setPartitionName(resources[i % 2] + "_" + (i + 1) % numPartition);
+      }
+      accessor.setProperty(keyBuilder.message(instance, message.getId()), message);
+    }
+
+    ClusterConfig clusterConfig = new ClusterConfig(_clusterName);
+    clusterConfig.setCurrentStateCalcParallelism(3);
+    setClusterConfig(clusterConfig);
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      ClusterDataCache cache = new ClusterDataCache(_clusterName);
+      cache.setRebalanceThreadPool(pool);
+      event.addAttribute(AttributeName.ClusterDataCache.name(), cache);
+      event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+      event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+      runStage(event, new ReadClusterDataStage());
+      runStage(event, new CurrentStateComputationStage());
+      CurrentStateOutput parallelOutput = event.getAttribute(AttributeName.CURRENT_STATE.name());
+
+      // without a thread pool the same cache is computed serially
+      cache.setRebalanceThreadPool(null);
+      runStage(event, new CurrentStateComputationStage());
+      CurrentStateOutput serialOutput = event.getAttribute(AttributeName.CURRENT_STATE.name());
+
+      Assert.assertNotSame(parallelOutput, serialOutput);
+      Assert.assertFalse(serialOutput.getCurrentStateMap(resources[0]).isEmpty());
+      for (Resource resource : resourceMap.values()) {
+        assertSameOutput(parallelOutput, serialOutput, resource, instances);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void assertSameOutput(CurrentStateOutput actual, CurrentStateOutput expected,
+      Resource resource, List<String> instances) {
+    String resourceName = resource.getResourceName();
+    Assert.assertEquals(actual.getResourceStateModelDef(resourceName),
+        expected.getResourceStateModelDef(resourceName));
+    Assert.assertEquals(actual.getBucketSize(resourceName), expected.getBucketSize(resourceName));
+    Assert.assertEquals(actual.getCurrentStateSources(resourceName),
+        expected.getCurrentStateSources(resourceName));
+    Assert.assertEquals(actual.getPendingMessageMap(resourceName),
+        expected.getPendingMessageMap(resourceName));
+    Assert.assertEquals(actual.getCurrentStateMappedPartitions(resourceName),
+        expected.getCurrentStateMappedPartitions(resourceName));
+    // the iteration order is part of the output, rebalancers depend on it
+    Assert.assertEquals(toStateList(actual.getCurrentStateMap(resourceName)),
+        toStateList(expected.getCurrentStateMap(resourceName)));
+
+    for (Partition partition : resource.getPartitions()) {
+      for (String instance : instances) {
+        Assert.assertEquals(actual.getRequestedState(resourceName, partition, instance),
+            expected.getRequestedState(resourceName, partition, instance));
+        Assert.assertEquals(actual.getInfo(resourceName, partition, instance),
+            expected.getInfo(resourceName, partition, instance));
+        Assert.assertEquals(actual.getEndTime(resourceName, partition, instance),
+            expected.getEndTime(resourceName, partition, instance));
+        Assert.assertEquals(actual.getCancellationState(resourceName, partition, instance),
+            expected.getCancellationState(resourceName, partition, instance));
+      }
+    }
+  }
+
+  private List<String> toStateList(Map<Partition, Map<String, String>> currentStateMap) {
+    List<String> states = new ArrayList<>();
+    for (Map.Entry<Partition, Map<String, String>> partitionEntry : currentStateMap.entrySet()) {
+      for (Map.Entry<String, String> entry : partitionEntry.getValue().entrySet()) {
+        states.add(partitionEntry.getKey() + ":" + entry.getKey() + "=" + entry.getValue());
+      }
+    }
+    return states;
+  }
 }
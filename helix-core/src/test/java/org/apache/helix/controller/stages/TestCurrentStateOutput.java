@@ -0,0 +1,91 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Partition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCurrentStateOutput {
+  private static final String RESOURCE = "TestDB";
+
+  @Test
+  public void testReplicaStates() {
+    CurrentStateOutput output = new CurrentStateOutput();
+    Partition p0 = new Partition(RESOURCE + "_0");
+    Partition p1 = new Partition(RESOURCE + "_1");
+    output.setCurrentState(RESOURCE, p0, "localhost_0", "MASTER");
+    output.setCurrentState(RESOURCE, p0, "localhost_1", "SLAVE");
+    output.setCurrentState(RESOURCE, p1, "localhost_1", "MASTER");
+    output.setCurrentState(RESOURCE, p1, "localhost_1", "OFFLINE");
+    output.setEndTime(RESOURCE, p0, "localhost_0", 100L);
+    output.setRequestedState(RESOURCE, p0, "localhost_1", "MASTER");
+    output.setInfo(RESOURCE, p1, "localhost_1", "info");
+
+    Assert.assertEquals(output.getCurrentState(RESOURCE, p0, "localhost_0"), "MASTER");
+    Assert.assertEquals(output.getCurrentState(RESOURCE, p1, "localhost_1"), "OFFLINE");
+    Assert.assertNull(output.getCurrentState(RESOURCE, p1, "localhost_0"));
+    Assert.assertNull(output.getCurrentState("NoDB", p0, "localhost_0"));
+    Assert.assertEquals(output.getEndTime(RESOURCE, p0, "localhost_0"), Long.valueOf(100L));
+    Assert.assertEquals(output.getEndTime(RESOURCE, p0, "localhost_1"), Long.valueOf(-1L));
+    Assert.assertEquals(output.getRequestedState(RESOURCE, p0, "localhost_1"), "MASTER");
+    Assert.assertNull(output.getRequestedState(RESOURCE, p0, "localhost_0"));
+    Assert.assertEquals(output.getInfo(RESOURCE, p1, "localhost_1"), "info");
+    Assert.assertNull(output.getInfo(RESOURCE, p0, "localhost_1"));
+
+    // the views compare equal to plain maps
+    Map<String, String> expectedP0 = new HashMap<>();
+    expectedP0.put("localhost_0", "MASTER");
+    expectedP0.put("localhost_1", "SLAVE");
+    Map<String, String> expectedP1 = new HashMap<>();
+    expectedP1.put("localhost_1", "OFFLINE");
+    Map<Partition, Map<String, String>> expected = new HashMap<>();
+    expected.put(p0, expectedP0);
+    expected.put(p1, expectedP1);
+    Assert.assertEquals(output.getCurrentStateMap(RESOURCE, p0), expectedP0);
+    Assert.assertEquals(expectedP0, output.getCurrentStateMap(RESOURCE, p0));
+    Assert.assertEquals(output.getCurrentStateMap(RESOURCE), expected);
+    Assert.assertEquals(expected, output.getCurrentStateMap(RESOURCE));
+    Assert.assertTrue(output.getCurrentStateMap(RESOURCE, new Partition("NoPartition")).isEmpty());
+    Assert.assertTrue(output.getCurrentStateMap("NoDB").isEmpty());
+
+    Map<String, Integer> slaveCounts = output.getPartitionCountWithCurrentState(null, "SLAVE");
+    Assert.assertEquals(slaveCounts.get("localhost_0"), Integer.valueOf(0));
+    Assert.assertEquals(slaveCounts.get("localhost_1"), Integer.valueOf(1));
+
+    // removing from a partition view removes the current state only
+    output.getCurrentStateMap(RESOURCE, p1).remove("localhost_1");
+    Assert.assertNull(output.getCurrentState(RESOURCE, p1, "localhost_1"));
+    Assert.assertEquals(output.getInfo(RESOURCE, p1, "localhost_1"), "info");
+    Assert.assertFalse(output.getCurrentStateMap(RESOURCE).containsKey(p1));
+    Assert.assertEquals(output.getCurrentStateMap(RESOURCE).size(), 1);
+    Assert.assertEquals(output.getCurrentStateMappedPartitions(RESOURCE).size(), 1);
+
+    // partitions with pending messages only are mapped too
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg");
+    message.setToState("SLAVE");
+    output.setPendingState(RESOURCE, p1, "localhost_0", message);
+    Assert.assertEquals(output.getCurrentStateMappedPartitions(RESOURCE).size(), 2);
+    Assert.assertEquals(output.getPendingStateMap(RESOURCE, p1).get("localhost_0"), "SLAVE");
+  }
+}
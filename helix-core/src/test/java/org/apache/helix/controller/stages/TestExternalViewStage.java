@@ -1,6 +1,7 @@
 package org.apache.helix.controller.stages;
 
 import java.util.List;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.TestHelper;
@@ -9,7 +10,10 @@ import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.controller.pipeline.Pipeline;
 import org.apache.helix.manager.zk.ZKHelixDataAccessor;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.zookeeper.data.Stat;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -62,4 +66,108 @@ public class TestExternalViewStage extends ZkUnitTestBase {
     }
   }
 
+
+  @Test
+  public void testBucketizedExternalViewDelta() throws Exception {
+    String clusterName = "CLUSTER_" + TestHelper.getTestMethodName();
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    HelixManager manager = new DummyClusterManager(clusterName, accessor);
+
+    IdealState idealState = setupIdealState(clusterName, new int[] {
+        0, 1
+    }, new String[] {
+        "TestDB"
+    }, 4, 2).get(0);
+    idealState.setBucketSize(2);
+    accessor.setProperty(accessor.keyBuilder().idealStates("TestDB"), idealState);
+    setupLiveInstances(clusterName, new int[] {
+        0, 1
+    });
+    setupStateModel(clusterName);
+    setCurrentState(accessor, 0, "MASTER");
+    setCurrentState(accessor, 1, "SLAVE");
+
+    ClusterEvent event = new ClusterEvent(ClusterEventType.Unknown);
+    ClusterDataCache cache = new ClusterDataCache(clusterName);
+    event.addAttribute(AttributeName.helixmanager.name(), manager);
+    event.addAttribute(AttributeName.ClusterDataCache.name(), cache);
+    ExternalViewComputeStage externalViewComputeStage = new ExternalViewComputeStage();
+    runExternalViewStage(event, externalViewComputeStage);
+
+    String evPath = accessor.keyBuilder().externalView("TestDB").getPath();
+    String bucket0 = evPath + "/TestDB_p0-p1";
+    String bucket1 = evPath + "/TestDB_p2-p3";
+    ExternalView ev = accessor.getProperty(accessor.keyBuilder().externalView("TestDB"));
+    Assert.assertEquals(ev.getPartitionSet().size(), 4);
+    Assert.assertEquals(ev.getStateMap("TestDB_3").get("localhost_1"), "SLAVE");
+    int parentVersion = baseAccessor.getStat(evPath, 0).getVersion();
+    int bucket0Version = baseAccessor.getStat(bucket0, 0).getVersion();
+    int bucket1Version = baseAccessor.getStat(bucket1, 0).getVersion();
+
+    // no change, nothing is written
+    runExternalViewStage(event, externalViewComputeStage);
+    Assert.assertEquals(baseAccessor.getStat(evPath, 0).getVersion(), parentVersion);
+    Assert.assertEquals(baseAccessor.getStat(bucket0, 0).getVersion(), bucket0Version);
+    Assert.assertEquals(baseAccessor.getStat(bucket1, 0).getVersion(), bucket1Version);
+
+    // only the bucket of the changed partition is written
+    CurrentState currentState = accessor.getProperty(
+        accessor.keyBuilder().currentState("localhost_1", "session_1", "TestDB"));
+    currentState.setState("TestDB_3", "OFFLINE");
+    accessor.setProperty(accessor.keyBuilder().currentState("localhost_1", "session_1", "TestDB"),
+        currentState);
+    runExternalViewStage(event, externalViewComputeStage);
+    Assert.assertEquals(baseAccessor.getStat(evPath, 0).getVersion(), parentVersion + 1);
+    Assert.assertEquals(baseAccessor.getStat(bucket0, 0).getVersion(), bucket0Version);
+    Stat stat = baseAccessor.getStat(bucket1, 0);
+    Assert.assertEquals(stat.getVersion(), bucket1Version + 1);
+    ev = accessor.getProperty(accessor.keyBuilder().externalView("TestDB"));
+    Assert.assertEquals(ev.getPartitionSet().size(), 4);
+    Assert.assertEquals(ev.getStateMap("TestDB_3").get("localhost_1"), "OFFLINE");
+    Assert.assertEquals(ev.getStateMap("TestDB_2").get("localhost_1"), "SLAVE");
+    parentVersion = baseAccessor.getStat(evPath, 0).getVersion();
+    bucket1Version = stat.getVersion();
+
+    // a partition in a new bucket gets its first current state, the bucket is created
+    String bucket2 = evPath + "/TestDB_p4-p5";
+    currentState = accessor.getProperty(
+        accessor.keyBuilder().currentState("localhost_0", "session_0", "TestDB"));
+    currentState.setState("TestDB_4", "MASTER");
+    accessor.setProperty(accessor.keyBuilder().currentState("localhost_0", "session_0", "TestDB"),
+        currentState);
+    runExternalViewStage(event, externalViewComputeStage);
+    Assert.assertEquals(baseAccessor.getStat(evPath, 0).getVersion(), parentVersion + 1);
+    Assert.assertEquals(baseAccessor.getStat(bucket0, 0).getVersion(), bucket0Version);
+    Assert.assertEquals(baseAccessor.getStat(bucket1, 0).getVersion(), bucket1Version);
+    Assert.assertEquals(baseAccessor.getStat(bucket2, 0).getVersion(), 0);
+    ev = accessor.getProperty(accessor.keyBuilder().externalView("TestDB"));
+    Assert.assertEquals(ev.getPartitionSet().size(), 5);
+    Assert.assertEquals(ev.getStateMap("TestDB_4").get("localhost_0"), "MASTER");
+    Assert.assertEquals(cache.getExternalViews().get("TestDB").getRecord(), ev.getRecord());
+  }
+
+  private void runExternalViewStage(ClusterEvent event, ExternalViewComputeStage stage)
+      throws Exception {
+    Pipeline dataRefresh = new Pipeline();
+    dataRefresh.addStage(new ReadClusterDataStage());
+    runPipeline(event, dataRefresh);
+    runStage(event, new ResourceComputationStage());
+    runStage(event, new CurrentStateComputationStage());
+    runStage(event, stage);
+  }
+
+  private void setCurrentState(HelixDataAccessor accessor, int node, String state) {
+    String instance = "localhost_" + node;
+    String sessionId = "session_" + node;
+    CurrentState currentState = new CurrentState("TestDB");
+    currentState.setSessionId(sessionId);
+    currentState.setStateModelDefRef("MasterSlave");
+    for (int p = 0; p < 4; p++) {
+      currentState.setState("TestDB_" + p, state);
+    }
+    accessor.setProperty(accessor.keyBuilder().currentState(instance, sessionId, "TestDB"),
+        currentState);
+  }
 }
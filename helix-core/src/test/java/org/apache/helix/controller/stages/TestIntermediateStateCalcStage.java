@@ -25,9 +25,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.helix.HelixConstants;
 import org.apache.helix.api.config.StateTransitionThrottleConfig;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -253,6 +255,101 @@ public class TestIntermediateStateCalcStage extends BaseStageTest {
     }
   }
 
+  @Test
+  public void testThrottleWithPendingMessages() {
+    String[] resources = new String[] { "resource_0", "resource_1" };
+    int nPartition = 4;
+    int nInstance = 3;
+
+    setupIdealState(nInstance, resources, nPartition, 1, IdealState.RebalanceMode.FULL_AUTO,
+        "OnlineOffline");
+    setupStateModel();
+    setupLiveInstances(nInstance);
+    // each instance allows one recovery transition at a time
+    _clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
+    _clusterConfig.setStateTransitionThrottleConfigs(Collections.singletonList(
+        new StateTransitionThrottleConfig(
+            StateTransitionThrottleConfig.RebalanceType.RECOVERY_BALANCE,
+            StateTransitionThrottleConfig.ThrottleScope.INSTANCE, 1)));
+    setClusterConfig(_clusterConfig);
+    event.addAttribute(AttributeName.RESOURCES.name(),
+        getResourceMap(resources, nPartition, "OnlineOffline"));
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(),
+        getResourceMap(resources, nPartition, "OnlineOffline"));
+
+    BestPossibleStateOutput bestPossibleStateOutput = new BestPossibleStateOutput();
+    CurrentStateOutput currentStateOutput = new CurrentStateOutput();
+    IntermediateStateOutput expectedResult = new IntermediateStateOutput();
+    for (String resource : resources) {
+      Map<String, List<String>> partitionMap = new HashMap<>();
+      for (int p = 0; p < nPartition; p++) {
+        Partition partition = new Partition(resource + "_" + p);
+        String instanceName = HOSTNAME_PREFIX + p % nInstance;
+        partitionMap.put(partition.getPartitionName(), Collections.singletonList(instanceName));
+        bestPossibleStateOutput.setState(resource, partition, instanceName, "ONLINE");
+        if (resource.endsWith("1") || p == 0) {
+          // At BestPossibleState, a pending message is not charged to the instance
+          currentStateOutput.setCurrentState(resource, partition, instanceName, "ONLINE");
+          currentStateOutput.setPendingState(resource, partition, instanceName,
+              createPendingMessage(resource, partition, instanceName, "ONLINE", "OFFLINE"));
+          expectedResult.setState(resource, partition, instanceName, "ONLINE");
+        } else if (p == 1) {
+          // Recovery with a pending message, which is charged and throttles the partition
+          currentStateOutput.setCurrentState(resource, partition, instanceName, "OFFLINE");
+          currentStateOutput.setPendingState(resource, partition, instanceName,
+              createPendingMessage(resource, partition, instanceName, "OFFLINE", "ONLINE"));
+          expectedResult.setState(resource, partition, instanceName, "OFFLINE");
+        } else {
+          // Recovery without pending messages, not throttled since the other partitions on the
+          // instance are not charged and the other instances are charged separately
+          currentStateOutput.setCurrentState(resource, partition, instanceName, "OFFLINE");
+          expectedResult.setState(resource, partition, instanceName, "ONLINE");
+        }
+      }
+      bestPossibleStateOutput.setPreferenceLists(resource, partitionMap);
+    }
+
+    event.addAttribute(AttributeName.BEST_POSSIBLE_STATE.name(), bestPossibleStateOutput);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), currentStateOutput);
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new IntermediateStateCalcStage());
+
+    IntermediateStateOutput output = event.getAttribute(AttributeName.INTERMEDIATE_STATE.name());
+    for (String resource : resources) {
+      Assert.assertEquals(output.getPartitionStateMap(resource).getStateMap(),
+          expectedResult.getPartitionStateMap(resource).getStateMap());
+    }
+
+    // Without reaching the limit, every partition is brought to its BestPossibleState
+    _clusterConfig.setStateTransitionThrottleConfigs(Collections.singletonList(
+        new StateTransitionThrottleConfig(
+            StateTransitionThrottleConfig.RebalanceType.RECOVERY_BALANCE,
+            StateTransitionThrottleConfig.ThrottleScope.INSTANCE, Integer.MAX_VALUE)));
+    setClusterConfig(_clusterConfig);
+    ClusterDataCache cache = event.getAttribute(AttributeName.ClusterDataCache.name());
+    cache.notifyDataChange(HelixConstants.ChangeType.CLUSTER_CONFIG);
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new IntermediateStateCalcStage());
+
+    output = event.getAttribute(AttributeName.INTERMEDIATE_STATE.name());
+    for (String resource : resources) {
+      Assert.assertEquals(output.getPartitionStateMap(resource).getStateMap(),
+          bestPossibleStateOutput.getPartitionStateMap(resource).getStateMap());
+    }
+  }
+
+  private Message createPendingMessage(String resource, Partition partition, String instanceName,
+      String fromState, String toState) {
+    Message message = new Message(Message.MessageType.STATE_TRANSITION,
+        partition.getPartitionName() + "_" + instanceName);
+    message.setResourceName(resource);
+    message.setPartitionName(partition.getPartitionName());
+    message.setTgtName(instanceName);
+    message.setFromState(fromState);
+    message.setToState(toState);
+    return message;
+  }
+
   private void preSetup(StateTransitionThrottleConfig.RebalanceType rebalanceType,
       Set<String> resourceSet, int numOfLiveInstances, int numOfReplicas) {
     setupIdealState(numOfLiveInstances, resourceSet.toArray(new String[resourceSet.size()]),
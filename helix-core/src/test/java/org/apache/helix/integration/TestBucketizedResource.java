@@ -121,7 +121,7 @@ public class TestBucketizedResource extends ZkTestBase {
   }
 
   @Test
-  public void testBounceDisableAndDrop() {
+  public void testBounceDisableAndDrop() throws Exception {
     String className = TestHelper.getTestClassName();
     String methodName = TestHelper.getTestMethodName();
     String clusterName = className + "_" + methodName;
@@ -176,9 +176,15 @@ public class TestBucketizedResource extends ZkTestBase {
     Assert.assertTrue(_clusterVerifier.verifyByPolling());
 
     // make sure external-view is cleaned up
-    path = keyBuilder.externalView(dbName).getPath();
-    boolean result = _baseAccessor.exists(path, 0);
-    Assert.assertFalse(result);
+    // the verifier ignores OFFLINE and DROPPED replicas, so it may pass before the controller
+    // removes the external-view of the dropped resource
+    final String evPath = keyBuilder.externalView(dbName).getPath();
+    boolean result = TestHelper.verify(new TestHelper.Verifier() {
+      @Override public boolean verify() throws Exception {
+        return !_baseAccessor.exists(evPath, 0);
+      }
+    }, 20000);
+    Assert.assertTrue(result);
 
     // clean up
     controller.syncStop();
@@ -19,7 +19,9 @@ package org.apache.helix.integration.controller;
  * under the License.
  */
 
+import java.util.Map;
 import org.apache.helix.HelixConstants;
+import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyType;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
@@ -27,6 +29,10 @@ import org.apache.helix.controller.stages.ClusterDataCache;
 import org.apache.helix.integration.common.ZkStandAloneCMTestBase;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor;
 import org.apache.helix.mock.MockZkHelixDataAccessor;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.StateModelDefinition;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -47,14 +53,20 @@ public class TestClusterDataCacheSelectiveUpdate extends ZkStandAloneCMTestBase
     Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), NODE_NR + 1);
 
     accessor.clearReadCounters();
+    Map<String, LiveInstance> liveInstanceMap = cache.getLiveInstances();
+    Map<String, InstanceConfig> instanceConfigMap = cache.getInstanceConfigMap();
 
     // refresh again should read nothing
     cache.refresh(accessor);
     Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.LIVEINSTANCES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
-    // cluster config always get reloaded
-    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.STATEMODELDEFS), 0);
+    // unchanged data should not be copied
+    Assert.assertSame(cache.getLiveInstances(), liveInstanceMap);
+    Assert.assertSame(cache.getInstanceConfigMap(), instanceConfigMap);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.MAINTENANCE), 0);
 
     accessor.clearReadCounters();
     // refresh again should read nothing as ideal state is same
@@ -63,15 +75,105 @@ public class TestClusterDataCacheSelectiveUpdate extends ZkStandAloneCMTestBase
     Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.LIVEINSTANCES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
-    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
 
     accessor.clearReadCounters();
+    // refresh again should read nothing as live instances are same
     cache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
     cache.refresh(accessor);
     Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), 0);
-    Assert.assertEquals(accessor.getReadCount(PropertyType.LIVEINSTANCES), NODE_NR);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.LIVEINSTANCES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
+    Assert.assertEquals(cache.getLastRefreshFetchedCounts()
+        .get(HelixConstants.ChangeType.LIVE_INSTANCE).intValue(), 0);
+    Assert.assertEquals(cache.getLastRefreshSkippedCounts()
+        .get(HelixConstants.ChangeType.LIVE_INSTANCE).intValue(), NODE_NR);
+    Assert.assertSame(cache.getLiveInstances(), liveInstanceMap);
+  }
+
+  @Test(dependsOnMethods = {"testUpdateOnNotification"})
+  public void testUpdateOnChangedPath() throws Exception {
+    MockZkHelixDataAccessor accessor =
+        new MockZkHelixDataAccessor(CLUSTER_NAME, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+
+    ClusterDataCache cache =
+        new ClusterDataCache("CLUSTER_" + TestHelper.getTestClassName());
+    cache.refresh(accessor);
+    accessor.clearReadCounters();
+
+    // only the changed instance config should be read
+    String instanceName = PARTICIPANT_PREFIX + "_" + START_PORT;
+    cache.notifyDataChange(HelixConstants.ChangeType.INSTANCE_CONFIG,
+        accessor.keyBuilder().instanceConfig(instanceName).getPath());
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(cache.getLastRefreshFetchedCounts()
+        .get(HelixConstants.ChangeType.INSTANCE_CONFIG).intValue(), 1);
+    Assert.assertEquals(cache.getLastRefreshSkippedCounts()
+        .get(HelixConstants.ChangeType.INSTANCE_CONFIG).intValue(), NODE_NR - 1);
+
+    // an updated instance config is read even without the changed path
+    accessor.clearReadCounters();
+    InstanceConfig instanceConfig =
+        accessor.getProperty(accessor.keyBuilder().instanceConfig(instanceName));
+    accessor.setProperty(accessor.keyBuilder().instanceConfig(instanceName), instanceConfig);
+    accessor.clearReadCounters();
+    cache.notifyDataChange(HelixConstants.ChangeType.INSTANCE_CONFIG);
+    cache.refresh(accessor);
     Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(cache.getInstanceConfigMap().get(instanceName).getRecord().getVersion(),
+        instanceConfig.getRecord().getVersion() + 1);
+  }
+
+  @Test(dependsOnMethods = {"testUpdateOnNotification"})
+  public void testUpdateClusterLevelData() throws Exception {
+    MockZkHelixDataAccessor accessor =
+        new MockZkHelixDataAccessor(CLUSTER_NAME, new ZkBaseDataAccessor<ZNRecord>(_gZkClient));
+
+    ClusterDataCache cache =
+        new ClusterDataCache("CLUSTER_" + TestHelper.getTestClassName());
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.STATEMODELDEFS),
+        cache.getStateModelDefMap().size());
+    Assert.assertEquals(accessor.getReadCount(PropertyType.MAINTENANCE), 1);
+
+    // cluster config is read only when it is notified as changed
+    accessor.clearReadCounters();
+    cache.notifyDataChange(HelixConstants.ChangeType.CLUSTER_CONFIG);
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.MAINTENANCE), 0);
+
+    // a cluster config update missed by the watch is read once its version changed
+    PropertyKey clusterConfigKey = accessor.keyBuilder().clusterConfig();
+    ClusterConfig clusterConfig = accessor.getProperty(clusterConfigKey);
+    accessor.setProperty(clusterConfigKey, clusterConfig);
+    accessor.clearReadCounters();
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(cache.getClusterConfig().getRecord().getVersion(),
+        clusterConfig.getRecord().getVersion() + 1);
+    accessor.clearReadCounters();
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
+
+    // maintenance signal is read on controller change
+    accessor.clearReadCounters();
+    cache.notifyDataChange(HelixConstants.ChangeType.CONTROLLER);
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.MAINTENANCE), 1);
+
+    // an updated state model definition is read without any notification
+    PropertyKey stateModelDefKey = accessor.keyBuilder().stateModelDef(STATE_MODEL);
+    StateModelDefinition stateModelDef = accessor.getProperty(stateModelDefKey);
+    accessor.setProperty(stateModelDefKey, stateModelDef);
+    accessor.clearReadCounters();
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.STATEMODELDEFS), 1);
+    Assert.assertEquals(cache.getStateModelDef(STATE_MODEL).getRecord().getVersion(),
+        stateModelDef.getRecord().getVersion() + 1);
   }
 
   @Test(dependsOnMethods = {"testUpdateOnNotification"})
@@ -95,7 +197,7 @@ public class TestClusterDataCacheSelectiveUpdate extends ZkStandAloneCMTestBase
     Assert.assertEquals(accessor.getReadCount(PropertyType.IDEALSTATES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.LIVEINSTANCES), 0);
     Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
-    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 1);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CONFIGS), 0);
 
     // add a new resource
     _gSetupTool.addResourceToCluster(CLUSTER_NAME, "TestDB_1", _PARTITIONS, STATE_MODEL);
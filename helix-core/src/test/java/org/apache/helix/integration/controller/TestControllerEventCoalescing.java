@@ -0,0 +1,59 @@
+package org.apache.helix.integration.controller;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.helix.ConfigAccessor;
+import org.apache.helix.integration.task.TaskTestBase;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestControllerEventCoalescing extends TaskTestBase {
+
+  @Test
+  public void testEventCoalescing() throws Exception {
+    ConfigAccessor configAccessor = new ConfigAccessor(_gZkClient);
+    ClusterConfig clusterConfig = configAccessor.getClusterConfig(CLUSTER_NAME);
+    clusterConfig.setEventCoalescingDelay(200, 1000);
+    configAccessor.setClusterConfig(CLUSTER_NAME, clusterConfig);
+    Assert.assertTrue(_clusterVerifier.verifyByPolling());
+
+    // restarting participants causes a burst of live instance, message and current state changes
+    for (int i = 0; i < 2; i++) {
+      stopParticipant(i);
+    }
+    for (int i = 0; i < 2; i++) {
+      startParticipant(i);
+    }
+    Assert.assertTrue(_clusterVerifier.verifyByPolling());
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(String
+        .format("ClusterStatus:cluster=%s,eventName=ClusterEvent,phaseName=%s", CLUSTER_NAME,
+            ClusterEventMonitor.PhaseName.Coalescing.name()));
+    Assert.assertTrue((Long) server.getAttribute(name, "EventCounter") > 0);
+    Assert.assertTrue((Long) server.getAttribute(name, "MaxSingleDurationGauge") >= 200);
+    Assert.assertTrue((Long) server.getAttribute(name, "CoalescedEventsGauge.Max") > 1);
+  }
+}
@@ -19,6 +19,10 @@ package org.apache.helix.integration.controller;
  * under the License.
  */
 
+import java.util.Collections;
+import java.util.Map;
+import org.apache.helix.ConfigAccessor;
+import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.TestHelper;
 import org.apache.helix.controller.stages.AttributeName;
@@ -29,7 +33,10 @@ import org.apache.helix.controller.stages.ClusterEventType;
 import org.apache.helix.controller.stages.CurrentStateComputationStage;
 import org.apache.helix.controller.stages.ResourceComputationStage;
 import org.apache.helix.integration.common.ZkStandAloneCMTestBase;
+import org.apache.helix.integration.manager.MockParticipantManager;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.model.ResourceConfig;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -59,36 +66,66 @@ public class TestSkipBestPossibleCalculation extends ZkStandAloneCMTestBase {
     runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
+    // Notifications without any change of the cluster data keep the cached mappings.
     cache.notifyDataChange(HelixConstants.ChangeType.INSTANCE_CONFIG);
+    cache.notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
+    cache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
+    cache.notifyDataChange(HelixConstants.ChangeType.RESOURCE_CONFIG);
     cache.refresh(_manager.getHelixDataAccessor());
-    Assert.assertEquals(cache.getCachedResourceAssignments().size(), 0);
-    runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
-    cache.notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
+    cache.requireFullRefresh();
     cache.refresh(_manager.getHelixDataAccessor());
-    Assert.assertEquals(cache.getCachedResourceAssignments().size(), 0);
-    runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
-    cache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
+    cache.notifyDataChange(HelixConstants.ChangeType.CURRENT_STATE);
     cache.refresh(_manager.getHelixDataAccessor());
-    Assert.assertEquals(cache.getCachedResourceAssignments().size(), 0);
-    runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
-    cache.requireFullRefresh();
+    // Disabling a partition only drops the cached mapping of its resource.
+    HelixAdmin admin = _gSetupTool.getClusterManagementTool();
+    String instanceName = PARTICIPANT_PREFIX + "_" + START_PORT;
+    admin.enablePartition(false, CLUSTER_NAME, instanceName, "TestDB_0",
+        Collections.singletonList("TestDB_0_0"));
+    cache.notifyDataChange(HelixConstants.ChangeType.INSTANCE_CONFIG);
     cache.refresh(_manager.getHelixDataAccessor());
-    Assert.assertEquals(cache.getCachedResourceAssignments().size(), 0);
+    Map<String, ResourceAssignment> cachedAssignments = cache.getCachedResourceAssignments();
+    Assert.assertEquals(cachedAssignments.size(), numResource - 1);
+    Assert.assertFalse(cachedAssignments.containsKey("TestDB_0"));
     runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
-    cache.notifyDataChange(HelixConstants.ChangeType.CURRENT_STATE);
+    // So does changing an ideal state, even if only its version changes.
+    IdealState idealState = admin.getResourceIdealState(CLUSTER_NAME, "TestDB_1");
+    admin.setResourceIdealState(CLUSTER_NAME, "TestDB_1", idealState);
+    cache.notifyDataChange(HelixConstants.ChangeType.IDEAL_STATE);
     cache.refresh(_manager.getHelixDataAccessor());
+    cachedAssignments = cache.getCachedResourceAssignments();
+    Assert.assertEquals(cachedAssignments.size(), numResource - 1);
+    Assert.assertFalse(cachedAssignments.containsKey("TestDB_1"));
+    runStage(_manager, event, new BestPossibleStateCalcStage());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
 
+    // And adding a resource config.
+    ConfigAccessor configAccessor = new ConfigAccessor(_gZkClient);
+    configAccessor.setResourceConfig(CLUSTER_NAME, "TestDB_2", new ResourceConfig("TestDB_2"));
     cache.notifyDataChange(HelixConstants.ChangeType.RESOURCE_CONFIG);
     cache.refresh(_manager.getHelixDataAccessor());
+    cachedAssignments = cache.getCachedResourceAssignments();
+    Assert.assertEquals(cachedAssignments.size(), numResource - 1);
+    Assert.assertFalse(cachedAssignments.containsKey("TestDB_2"));
+    runStage(_manager, event, new BestPossibleStateCalcStage());
+    Assert.assertEquals(cache.getCachedResourceAssignments().size(), numResource);
+
+    // A change of the live instances affects all resources.
+    _participants[0].syncStop();
+    cache.notifyDataChange(HelixConstants.ChangeType.LIVE_INSTANCE);
+    cache.refresh(_manager.getHelixDataAccessor());
     Assert.assertEquals(cache.getCachedResourceAssignments().size(), 0);
+
+    _participants[0] = new MockParticipantManager(ZK_ADDR, CLUSTER_NAME, instanceName);
+    _participants[0].syncStart();
+    admin.enablePartition(true, CLUSTER_NAME, instanceName, "TestDB_0",
+        Collections.singletonList("TestDB_0_0"));
   }
 }
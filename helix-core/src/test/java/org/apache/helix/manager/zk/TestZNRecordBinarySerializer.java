@@ -0,0 +1,259 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.I0Itec.zkclient.serialize.ZkSerializer;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.model.Message;
+import org.apache.helix.util.compression.CompressionCodecs;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordBinarySerializer {
+  @Test
+  public void basicTest() {
+    ZNRecord record = new ZNRecord("testId");
+    record.setMapField("k1", ImmutableMap.of("a", "b", "c", "d"));
+    record.setMapField("k2", ImmutableMap.of("e", "f", "g", "h"));
+    record.setListField("k3", ImmutableList.of("a", "b", "c", "d"));
+    record.setListField("k4", ImmutableList.of("d", "e", "f", "g"));
+    record.setSimpleField("k5", "b");
+    record.setSimpleField("k6", "é中");
+    record.setRawPayload(new byte[] { 1, 2, 3 });
+
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    byte[] bytes = serializer.serialize(record);
+    Assert.assertTrue(ZNRecordBinarySerializer.isBinaryFormat(bytes));
+    ZNRecord result = (ZNRecord) serializer.deserialize(bytes);
+    Assert.assertEquals(result, record);
+    Assert.assertEquals(result.getId(), record.getId());
+    Assert.assertEquals(result.getRawPayload(), record.getRawPayload());
+
+    ZNRecord empty = new ZNRecord("empty");
+    result = (ZNRecord) serializer.deserialize(serializer.serialize(empty));
+    Assert.assertEquals(result, empty);
+    Assert.assertNull(result.getRawPayload());
+  }
+
+  @Test
+  public void testCompression() {
+    ZNRecord record = createIdealStateRecord(1000, 3, 100);
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    int uncompressedSize = serializer.serialize(record).length;
+
+    record.setSimpleField("enableCompression", "true");
+    byte[] bytes = serializer.serialize(record);
+    Assert.assertTrue(ZNRecordBinarySerializer.isBinaryFormat(bytes));
+    Assert.assertTrue(bytes.length < uncompressedSize);
+    Assert.assertEquals(serializer.deserialize(bytes), record);
+    Assert.assertTrue(CompressionCodecs.DEFLATE_FAST.isCompressed(getBody(bytes)));
+
+    // the codec selected by the record, or configured for the serializer, is used instead
+    record.setSimpleField(CompressionCodecs.COMPRESSION_CODEC, CompressionCodecs.LZ4.getName());
+    bytes = serializer.serialize(record);
+    Assert.assertTrue(CompressionCodecs.LZ4.isCompressed(getBody(bytes)));
+    Assert.assertEquals(serializer.deserialize(bytes), record);
+
+    record.getSimpleFields().remove(CompressionCodecs.COMPRESSION_CODEC);
+    record.getSimpleFields().remove("enableCompression");
+    serializer = new ZNRecordBinarySerializer(CompressionCodecs.GZIP, null);
+    bytes = serializer.serialize(record);
+    Assert.assertTrue(CompressionCodecs.GZIP.isCompressed(getBody(bytes)));
+    Assert.assertEquals(new ZNRecordBinarySerializer().deserialize(bytes), record);
+  }
+
+  private static byte[] getBody(byte[] bytes) {
+    // skip the magic header, format version and flags
+    return Arrays.copyOfRange(bytes, 6, bytes.length);
+  }
+
+  @Test
+  public void testMixedFormat() {
+    ZNRecord record = createIdealStateRecord(100, 3, 10);
+    ZNRecordBinarySerializer binarySerializer = new ZNRecordBinarySerializer();
+    ZNRecordSerializer jsonSerializer = new ZNRecordSerializer();
+    ZNRecordStreamingSerializer streamingSerializer = new ZNRecordStreamingSerializer();
+
+    // JSON serializers read the binary format
+    byte[] binaryBytes = binarySerializer.serialize(record);
+    Assert.assertEquals(jsonSerializer.deserialize(binaryBytes), record);
+    Assert.assertEquals(streamingSerializer.deserialize(binaryBytes), record);
+
+    // binary serializer reads JSON, including compressed JSON
+    byte[] jsonBytes = jsonSerializer.serialize(record);
+    Assert.assertFalse(ZNRecordBinarySerializer.isBinaryFormat(jsonBytes));
+    Assert.assertEquals(binarySerializer.deserialize(jsonBytes), record);
+    record.setSimpleField("enableCompression", "true");
+    Assert.assertEquals(binarySerializer.deserialize(jsonSerializer.serialize(record)), record);
+
+    // the binary format is more compact than JSON
+    Assert.assertTrue(binaryBytes.length < jsonBytes.length);
+  }
+
+  @Test
+  public void testMessageRecord() {
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, Message.generateMsgId());
+    Assert.assertEquals(message.getMsgId().length(), 22);
+    Assert.assertFalse(Message.generateMsgId().equals(message.getMsgId()));
+    message.setSrcName("controller_0");
+    message.setTgtName("localhost_12918");
+    message.setPartitionName("TestDB_0");
+    message.setResourceName("TestDB");
+    message.setFromState("OFFLINE");
+    message.setToState("SLAVE");
+    message.setStateModelDef("MasterSlave");
+    message.setStateModelFactoryName("DEFAULT");
+
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    byte[] bytes = serializer.serialize(message.getRecord());
+    Assert.assertEquals(serializer.deserialize(bytes), message.getRecord());
+    // field names and states come from the preset dictionary
+    Assert.assertTrue(bytes.length < 120, "message size: " + bytes.length);
+  }
+
+  @Test
+  public void testListFieldBound() {
+    ZNRecord record = new ZNRecord("testId");
+    record.setListField("list", new ArrayList<>(ImmutableList.of("a", "b", "c", "d")));
+    record.setSimpleField(ZNRecord.LIST_FIELD_BOUND, "2");
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    ZNRecord result = (ZNRecord) serializer.deserialize(serializer.serialize(record));
+    Assert.assertEquals(result.getListField("list"), ImmutableList.of("a", "b"));
+  }
+
+  @Test
+  public void testCorruptedData() {
+    ZNRecordBinarySerializer serializer = new ZNRecordBinarySerializer();
+    byte[] bytes = serializer.serialize(createIdealStateRecord(10, 3, 5));
+    byte[] truncated = new byte[bytes.length / 2];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+    Assert.assertNull(serializer.deserialize(truncated));
+  }
+
+  /**
+   * Compare the size and latency of the serializers over IdealState, CurrentState and
+   * ExternalView shaped records.
+   */
+  @Test(enabled = false)
+  public void benchmarkSerializers() {
+    Map<String, ZNRecord> records = new LinkedHashMap<>();
+    records.put("IdealState(10k partitions)", createIdealStateRecord(10000, 3, 200));
+    records.put("ExternalView(10k partitions)", createExternalViewRecord(10000, 3, 200));
+    records.put("CurrentState(2k partitions)", createCurrentStateRecord(2000));
+
+    Map<String, ZkSerializer> serializers = new LinkedHashMap<>();
+    serializers.put("json", new ZNRecordSerializer());
+    serializers.put("streaming", new ZNRecordStreamingSerializer());
+    serializers.put("binary", new ZNRecordBinarySerializer());
+
+    int iterations = 50;
+    for (Map.Entry<String, ZNRecord> recordEntry : records.entrySet()) {
+      for (boolean compressed : new boolean[] { false, true }) {
+        ZNRecord record = new ZNRecord(recordEntry.getValue());
+        record.setSimpleField("enableCompression", String.valueOf(compressed));
+        for (Map.Entry<String, ZkSerializer> serializerEntry : serializers.entrySet()) {
+          ZkSerializer serializer = serializerEntry.getValue();
+          byte[] bytes;
+          try {
+            bytes = serializer.serialize(record);
+          } catch (Exception e) {
+            System.out.println(String.format("%-30s %-10s compressed=%-5s too large",
+                recordEntry.getKey(), serializerEntry.getKey(), compressed));
+            continue;
+          }
+          // warm up
+          for (int i = 0; i < iterations; i++) {
+            serializer.deserialize(serializer.serialize(record));
+          }
+          long serializeNs = 0;
+          long deserializeNs = 0;
+          for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            bytes = serializer.serialize(record);
+            serializeNs += System.nanoTime() - start;
+            start = System.nanoTime();
+            serializer.deserialize(bytes);
+            deserializeNs += System.nanoTime() - start;
+          }
+          System.out.println(String.format(
+              "%-30s %-10s compressed=%-5s size=%8d serialize=%7.2fms deserialize=%7.2fms",
+              recordEntry.getKey(), serializerEntry.getKey(), compressed, bytes.length,
+              serializeNs / 1e6 / iterations, deserializeNs / 1e6 / iterations));
+        }
+      }
+    }
+  }
+
+  private static ZNRecord createIdealStateRecord(int numPartitions, int replicas, int numNodes) {
+    ZNRecord record = new ZNRecord("TestDB");
+    record.setSimpleField("IDEAL_STATE_MODE", "AUTO_REBALANCE");
+    record.setSimpleField("NUM_PARTITIONS", String.valueOf(numPartitions));
+    record.setSimpleField("REPLICAS", String.valueOf(replicas));
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    for (int p = 0; p < numPartitions; p++) {
+      String partition = "TestDB_" + p;
+      List<String> preferenceList = new ArrayList<>();
+      for (int r = 0; r < replicas; r++) {
+        preferenceList.add("localhost_" + (12918 + (p + r) % numNodes));
+      }
+      record.setListField(partition, preferenceList);
+      record.setMapField(partition, new TreeMap<String, String>());
+    }
+    return record;
+  }
+
+  private static ZNRecord createExternalViewRecord(int numPartitions, int replicas,
+      int numNodes) {
+    ZNRecord record = new ZNRecord("TestDB");
+    record.setSimpleField("BUCKET_SIZE", "0");
+    for (int p = 0; p < numPartitions; p++) {
+      Map<String, String> stateMap = new TreeMap<>();
+      for (int r = 0; r < replicas; r++) {
+        stateMap.put("localhost_" + (12918 + (p + r) % numNodes), r == 0 ? "MASTER" : "SLAVE");
+      }
+      record.setMapField("TestDB_" + p, stateMap);
+    }
+    return record;
+  }
+
+  private static ZNRecord createCurrentStateRecord(int numPartitions) {
+    ZNRecord record = new ZNRecord("TestDB");
+    record.setSimpleField("SESSION_ID", "15f8d0a9a0d0002");
+    record.setSimpleField("STATE_MODEL_DEF", "MasterSlave");
+    record.setSimpleField("STATE_MODEL_FACTORY_NAME", "DEFAULT");
+    for (int p = 0; p < numPartitions; p++) {
+      Map<String, String> partitionState = new TreeMap<>();
+      partitionState.put("CURRENT_STATE", p % 3 == 0 ? "MASTER" : "SLAVE");
+      partitionState.put("INFO", "");
+      partitionState.put("START_TIME", String.valueOf(1500000000000L + p));
+      partitionState.put("END_TIME", String.valueOf(1500000000100L + p));
+      record.setMapField("TestDB_" + p, partitionState);
+    }
+    return record;
+  }
+}
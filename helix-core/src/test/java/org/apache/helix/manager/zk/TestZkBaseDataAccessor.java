@@ -20,11 +20,13 @@ package org.apache.helix.manager.zk;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import org.I0Itec.zkclient.DataUpdater;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.DataWriteOp;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZNRecord;
@@ -32,6 +34,7 @@ import org.apache.helix.ZNRecordUpdater;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.AccessResult;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
+import org.apache.helix.mock.MockBaseDataAccessor;
 import org.apache.zookeeper.data.Stat;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -259,6 +262,121 @@ public class TestZkBaseDataAccessor extends ZkUnitTestBase {
     System.out.println("END " + testName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testMulti() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String testName = className + "_" + methodName;
+
+    System.out.println("START " + testName + " at " + new Date(System.currentTimeMillis()));
+
+    String parentPath = String.format("/%s/%s", _rootPath, "parent");
+    ZkBaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<ZNRecord>(_gZkClient);
+    Assert.assertTrue(accessor.create(parentPath, new ZNRecord("parent"), AccessOption.PERSISTENT));
+
+    // all operations succeed in one transaction
+    List<DataWriteOp<ZNRecord>> ops = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      String msgId = "msg_" + i;
+      ops.add(DataWriteOp.create(parentPath + "/" + msgId, new ZNRecord(msgId)));
+    }
+    ops.add(DataWriteOp.set(parentPath, new ZNRecord("parent_1")));
+    boolean[] success = accessor.multi(ops, AccessOption.PERSISTENT);
+    for (int i = 0; i < ops.size(); i++) {
+      Assert.assertTrue(success[i], "Should succeed in " + ops.get(i));
+    }
+    for (int i = 0; i < 10; i++) {
+      ZNRecord record = _gZkClient.readData(parentPath + "/msg_" + i);
+      Assert.assertEquals(record.getId(), "msg_" + i);
+    }
+    Assert.assertEquals(((ZNRecord) _gZkClient.readData(parentPath)).getId(), "parent_1");
+
+    // the transaction fails on the missing node to set, which is not created
+    ops = new ArrayList<>();
+    ops.add(DataWriteOp.create(parentPath + "/msg_10", new ZNRecord("msg_10")));
+    ops.add(DataWriteOp.set(parentPath + "/missing", new ZNRecord("missing")));
+    success = accessor.multi(ops, AccessOption.PERSISTENT);
+    Assert.assertFalse(success[0]);
+    Assert.assertFalse(success[1]);
+    Assert.assertFalse(_gZkClient.exists(parentPath + "/msg_10"));
+    Assert.assertFalse(_gZkClient.exists(parentPath + "/missing"));
+
+    // the transaction fails on the existing node, none of the operations are applied
+    ops = new ArrayList<>();
+    ops.add(DataWriteOp.set(parentPath + "/msg_1", new ZNRecord("msg_1_1")));
+    ops.add(DataWriteOp.create(parentPath + "/msg_0", new ZNRecord("msg_0_1")));
+    ops.add(DataWriteOp.<ZNRecord>remove(parentPath + "/msg_2"));
+    success = accessor.multi(ops, AccessOption.PERSISTENT);
+    for (int i = 0; i < ops.size(); i++) {
+      Assert.assertFalse(success[i], "Should fail in " + ops.get(i));
+    }
+    Assert.assertEquals(((ZNRecord) _gZkClient.readData(parentPath + "/msg_0")).getId(), "msg_0");
+    Assert.assertEquals(((ZNRecord) _gZkClient.readData(parentPath + "/msg_1")).getId(), "msg_1");
+    Assert.assertTrue(_gZkClient.exists(parentPath + "/msg_2"));
+
+    // an operation too large for a transaction is applied on its own, with the same semantics:
+    // set fails on the missing node
+    ZNRecord largeRecord = new ZNRecord("large");
+    for (int i = 0; i < 100; i++) {
+      largeRecord.setSimpleField("field_" + i, new String(new char[8 * 1024]).replace('\0', 'a'));
+    }
+    ops = new ArrayList<>();
+    ops.add(DataWriteOp.set(parentPath + "/new/large", largeRecord));
+    ops.add(DataWriteOp.set(parentPath + "/msg_0", largeRecord));
+    ops.add(DataWriteOp.<ZNRecord>remove(parentPath + "/msg_2"));
+    success = accessor.multi(ops, AccessOption.PERSISTENT);
+    Assert.assertFalse(success[0]);
+    Assert.assertTrue(success[1]);
+    Assert.assertTrue(success[2]);
+    Assert.assertFalse(_gZkClient.exists(parentPath + "/new"));
+    Assert.assertEquals(((ZNRecord) _gZkClient.readData(parentPath + "/msg_0")).getId(), "large");
+    Assert.assertFalse(_gZkClient.exists(parentPath + "/msg_2"));
+
+    System.out.println("END " + testName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testMultiSetOnAllAccessors() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String testName = className + "_" + methodName;
+
+    System.out.println("START " + testName + " at " + new Date(System.currentTimeMillis()));
+
+    String basePath = String.format("/%s/%s", _rootPath, "base");
+    String cachedPath = String.format("/%s/%s", _rootPath, "cached");
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<ZNRecord>(_gZkClient);
+    ZkCacheBaseDataAccessor<ZNRecord> cacheAccessor = new ZkCacheBaseDataAccessor<ZNRecord>(
+        baseAccessor, Collections.singletonList(cachedPath));
+    MockBaseDataAccessor mockAccessor = new MockBaseDataAccessor();
+
+    // ZooKeeper transactions, writes to cached paths and writes through other accessors all fail
+    // to set a missing node
+    verifyMultiSet(new ZKHelixDataAccessor(testName, baseAccessor), basePath);
+    verifyMultiSet(new ZKHelixDataAccessor(testName, cacheAccessor), cachedPath);
+    verifyMultiSet(new ZKHelixDataAccessor(testName, mockAccessor), basePath);
+
+    System.out.println("END " + testName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  private void verifyMultiSet(ZKHelixDataAccessor accessor, String parentPath) {
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    Assert.assertTrue(
+        baseAccessor.create(parentPath + "/node", new ZNRecord("node"), AccessOption.PERSISTENT));
+
+    List<DataWriteOp<ZNRecord>> ops = new ArrayList<>();
+    ops.add(DataWriteOp.set(parentPath + "/missing", new ZNRecord("missing")));
+    boolean[] success = accessor.multi(ops);
+    Assert.assertFalse(success[0]);
+    Assert.assertFalse(baseAccessor.exists(parentPath + "/missing", 0));
+
+    ops = new ArrayList<>();
+    ops.add(DataWriteOp.set(parentPath + "/node", new ZNRecord("node_1")));
+    success = accessor.multi(ops);
+    Assert.assertTrue(success[0]);
+    Assert.assertEquals(baseAccessor.get(parentPath + "/node", null, 0).getId(), "node_1");
+  }
+
   @Test
   public void testSyncGet() {
     String className = TestHelper.getTestClassName();
@@ -794,4 +794,51 @@ public class TestHelixTaskExecutor {
     // After all messages are processed, _knownMessageIds should be empty.
     Assert.assertTrue(executor._knownMessageIds.isEmpty());
   }
+
+  @Test
+  public void testMessagesMarkedReadAfterDispatch() throws InterruptedException {
+    HelixTaskExecutor executor = new HelixTaskExecutor();
+    HelixManager manager = new MockClusterManager();
+    String instanceName = manager.getInstanceName();
+
+    TestStateTransitionHandlerFactory fastFactory =
+        new TestStateTransitionHandlerFactory("FastMessage");
+    TestStateTransitionHandlerFactory slowFactory =
+        new TestStateTransitionHandlerFactory("SlowMessage", 2000);
+    executor.registerMessageHandlerFactory(fastFactory.getMessageType(), fastFactory);
+    executor.registerMessageHandlerFactory(slowFactory.getMessageType(), slowFactory);
+
+    HelixDataAccessor accessor = manager.getHelixDataAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    List<String> fastMessageIds = new ArrayList<>();
+    List<String> slowMessageIds = new ArrayList<>();
+    int nMsgs = 5;
+    for (int i = 0; i < nMsgs * 2; i++) {
+      String msgType = i < nMsgs ? fastFactory.getMessageType() : slowFactory.getMessageType();
+      Message msg = new Message(msgType, UUID.randomUUID().toString());
+      msg.setTgtSessionId(manager.getSessionId());
+      msg.setTgtName(instanceName);
+      msg.setSrcName("127.101.1.23_2234");
+      accessor.setProperty(keyBuilder.message(instanceName, msg.getId()), msg);
+      (i < nMsgs ? fastMessageIds : slowMessageIds).add(msg.getId());
+    }
+
+    NotificationContext changeContext = new NotificationContext(manager);
+    changeContext.setChangeType(HelixConstants.ChangeType.MESSAGE);
+    executor.onMessage(instanceName, Collections.EMPTY_LIST, changeContext);
+
+    // the slow messages are still being handled and have been marked READ
+    for (String msgId : slowMessageIds) {
+      Message msg = accessor.getProperty(keyBuilder.message(instanceName, msgId));
+      Assert.assertNotNull(msg);
+      Assert.assertEquals(msg.getMsgState(), MessageState.READ);
+    }
+
+    // marking messages READ must not recreate the messages already handled and removed
+    Thread.sleep(3000);
+    Assert.assertEquals(fastFactory._processedMsgIds.size(), nMsgs);
+    Assert.assertEquals(slowFactory._processedMsgIds.size(), nMsgs);
+    Assert.assertTrue(accessor.getChildNames(keyBuilder.messages(instanceName)).isEmpty());
+  }
 }
@@ -118,6 +118,17 @@ public class TestClusterEventStatusMonitor {
       Assert.assertTrue(Math.abs(stddev - 158.0) < 0.2);
     }
 
+    monitor.updateClusterEventQueueDepth(ClusterEventMonitor.PhaseName.InQueue.name(), 3);
+    for (ObjectInstance mbean : mbeans) {
+      Long queueDepth = (Long) _server.getAttribute(mbean.getObjectName(), "QueueDepthGauge");
+      if (ClusterEventMonitor.PhaseName.InQueue.name()
+          .equals(mbean.getObjectName().getKeyProperty("phaseName"))) {
+        Assert.assertEquals(queueDepth, Long.valueOf(3));
+      } else {
+        Assert.assertEquals(queueDepth, Long.valueOf(0));
+      }
+    }
+
     System.out.println("\nWaiting for time window to expire\n");
     Thread.sleep(TEST_SLIDING_WINDOW_MS);
 
@@ -20,18 +20,24 @@ package org.apache.helix.monitoring;
  */
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
 import javax.management.MBeanServerConnection;
 import javax.management.MBeanServerNotification;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
 import org.apache.helix.monitoring.mbeans.ClusterMBeanObserver;
+import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
+import org.apache.helix.monitoring.mbeans.MessageLatencyMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -142,4 +148,23 @@ public class TestParticipantMonitor {
     monitorListener.disconnect();
     System.out.println("END TestParticipantMonitor");
   }
+
+  @Test()
+  public void testReportMessageIntakeLatency() throws Exception {
+    String instanceName = "localhost_intake";
+    ParticipantStatusMonitor monitor = new ParticipantStatusMonitor(true, instanceName);
+    monitor.reportMessageIntakeLatency(10, 30, 50);
+    monitor.reportMessageIntakeLatency(20, 40, 60);
+
+    ObjectName name = MBeanRegistrar.buildObjectName(
+        MonitorDomainNames.CLMParticipantReport.name(), ParticipantMessageMonitor.PARTICIPANT_KEY,
+        instanceName, "MonitorType", MessageLatencyMonitor.class.getSimpleName());
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    AssertJUnit.assertEquals(20L, beanServer.getAttribute(name, "MessageReadLatencyGauge.Max"));
+    AssertJUnit.assertEquals(40L, beanServer.getAttribute(name, "MessageDispatchLatencyGauge.Max"));
+    AssertJUnit.assertEquals(60L, beanServer.getAttribute(name, "MessageMarkReadLatencyGauge.Max"));
+
+    monitor.shutDown();
+    AssertJUnit.assertFalse(beanServer.isRegistered(name));
+  }
 }
@@ -86,6 +86,8 @@ public class TestHelixCallbackMonitor {
     Assert.assertEquals((long) _beanServer.getAttribute(name, "Counter"), 1);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "LatencyCounter"), 1000L);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "LatencyGauge.Max"), 1000L);
+    monitor.updateCallbackQueueLatency(200L);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "QueueLatencyGauge.Max"), 200L);
     monitor.unregister();
   }
 }
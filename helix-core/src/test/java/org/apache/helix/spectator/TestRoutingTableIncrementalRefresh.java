@@ -0,0 +1,119 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.ExternalView.ExternalViewProperty;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableIncrementalRefresh {
+  private static final List<LiveInstance> NO_LIVE_INSTANCES = Collections.emptyList();
+
+  @Test
+  public void testIncrementalRefresh() {
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      instanceConfigs.add(new InstanceConfig("localhost_" + i));
+    }
+    ExternalView db0 = createExternalView("TestDB0", null, "MASTER");
+    ExternalView db1 = createExternalView("TestDB1", null, "MASTER");
+    ExternalView groupDb0 = createExternalView("TestGroupDB0", "TestGroup", "MASTER");
+    ExternalView groupDb1 = createExternalView("TestGroupDB1", "TestGroup", "MASTER");
+
+    RoutingTable routingTable = new RoutingTable(null, Arrays.asList(db0, db1, groupDb0, groupDb1),
+        instanceConfigs, NO_LIVE_INSTANCES);
+    Assert.assertEquals(routingTable.getChangedResources(),
+        new HashSet<>(Arrays.asList("TestDB0", "TestDB1", "TestGroupDB0", "TestGroupDB1")));
+
+    // nothing changed
+    RoutingTable newRoutingTable =
+        new RoutingTable(routingTable, Arrays.asList(db0, db1, groupDb0, groupDb1),
+            instanceConfigs, NO_LIVE_INSTANCES);
+    Assert.assertTrue(newRoutingTable.getChangedResources().isEmpty());
+    Assert.assertSame(newRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"),
+        routingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"));
+    Assert.assertSame(
+        newRoutingTable.getInstancesForResourceGroup("TestGroup", "TestGroup_0", "MASTER"),
+        routingTable.getInstancesForResourceGroup("TestGroup", "TestGroup_0", "MASTER"));
+
+    // one resource changed to a new state, and one resource in the group is removed
+    routingTable = newRoutingTable;
+    ExternalView newDb1 = createExternalView("TestDB1", null, "LEADER");
+    newRoutingTable = new RoutingTable(routingTable, Arrays.asList(db0, newDb1, groupDb0),
+        instanceConfigs, NO_LIVE_INSTANCES);
+    Assert.assertEquals(newRoutingTable.getChangedResources(),
+        new HashSet<>(Arrays.asList("TestDB1", "TestGroupDB1")));
+    Assert.assertSame(newRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"),
+        routingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"));
+    Assert.assertTrue(
+        newRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "LEADER").isEmpty());
+    Assert.assertTrue(
+        newRoutingTable.getInstancesForResource("TestDB1", "TestDB1_0", "MASTER").isEmpty());
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResource("TestDB1", "TestDB1_0", "LEADER").size(), 1);
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResourceGroup("TestGroup", "TestGroup_0", "MASTER").size(),
+        1);
+    Assert.assertEquals(new HashSet<>(newRoutingTable.getResources()),
+        new HashSet<>(Arrays.asList("TestDB0", "TestDB1", "TestGroupDB0")));
+
+    // instance configs changed, all resources are rebuilt
+    routingTable = newRoutingTable;
+    List<InstanceConfig> newInstanceConfigs = new ArrayList<>(instanceConfigs);
+    newInstanceConfigs.set(0, new InstanceConfig("localhost_0"));
+    newRoutingTable = new RoutingTable(routingTable, Arrays.asList(db0, newDb1, groupDb0),
+        newInstanceConfigs, NO_LIVE_INSTANCES);
+    Assert.assertEquals(newRoutingTable.getChangedResources(),
+        new HashSet<>(Arrays.asList("TestDB0", "TestDB1", "TestGroupDB0")));
+    Assert.assertNotSame(
+        newRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"),
+        routingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER"));
+    Assert.assertSame(
+        newRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER").get(0),
+        newInstanceConfigs.get(0));
+  }
+
+  private ExternalView createExternalView(String resourceName, String resourceGroupName,
+      String state) {
+    ExternalView externalView = new ExternalView(resourceName);
+    String partitionPrefix = resourceName;
+    if (resourceGroupName != null) {
+      externalView.getRecord()
+          .setBooleanField(ExternalViewProperty.GROUP_ROUTING_ENABLED.name(), true);
+      externalView.getRecord()
+          .setSimpleField(ExternalViewProperty.RESOURCE_GROUP_NAME.name(), resourceGroupName);
+      externalView.getRecord()
+          .setSimpleField(ExternalViewProperty.INSTANCE_GROUP_TAG.name(), resourceName);
+      partitionPrefix = resourceGroupName;
+    }
+    for (int p = 0; p < 3; p++) {
+      externalView.setState(partitionPrefix + "_" + p, "localhost_" + p, state);
+    }
+    return externalView;
+  }
+}
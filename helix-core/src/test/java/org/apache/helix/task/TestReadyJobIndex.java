@@ -0,0 +1,91 @@
+package org.apache.helix.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import org.apache.helix.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestReadyJobIndex {
+
+  @Test
+  public void testReadyJobs() {
+    // A -> B -> D, A -> C -> D, E
+    JobDag jobDag = new JobDag();
+    jobDag.addParentToChild("A", "B");
+    jobDag.addParentToChild("A", "C");
+    jobDag.addParentToChild("B", "D");
+    jobDag.addParentToChild("C", "D");
+    jobDag.addNode("E");
+    WorkflowContext workflowCtx = new WorkflowContext(new ZNRecord("Workflow"));
+    workflowCtx.setStartTime(1000L);
+
+    ReadyJobIndex readyJobIndex = new ReadyJobIndex(jobDag, workflowCtx);
+    Assert.assertTrue(readyJobIndex.isBuiltFrom(jobDag, workflowCtx));
+    Assert.assertEquals(readyJobIndex.getReadyJobs(workflowCtx),
+        new TreeSet<>(Arrays.asList("A", "E")));
+
+    // Scheduled jobs stay ready until they start
+    workflowCtx.setJobState("A", TaskState.NOT_STARTED);
+    workflowCtx.setJobState("E", TaskState.IN_PROGRESS);
+    Assert.assertEquals(readyJobIndex.getReadyJobs(workflowCtx),
+        new TreeSet<>(Collections.singletonList("A")));
+
+    workflowCtx.setJobState("A", TaskState.IN_PROGRESS);
+    Assert.assertEquals(readyJobIndex.getReadyJobs(workflowCtx),
+        new TreeSet<>(Arrays.asList("B", "C")));
+
+    // D is ready only when both parents are started
+    workflowCtx.setJobState("B", TaskState.COMPLETED);
+    Assert.assertEquals(readyJobIndex.getReadyJobs(workflowCtx),
+        new TreeSet<>(Collections.singletonList("C")));
+    workflowCtx.setJobState("C", TaskState.FAILED);
+    Assert.assertEquals(readyJobIndex.getReadyJobs(workflowCtx),
+        new TreeSet<>(Collections.singletonList("D")));
+
+    workflowCtx.setJobState("D", TaskState.FAILED);
+    Assert.assertTrue(readyJobIndex.getReadyJobs(workflowCtx).isEmpty());
+
+    // A rebuilt index has the same ready jobs
+    Assert.assertEquals(new ReadyJobIndex(jobDag, workflowCtx).getReadyJobs(workflowCtx),
+        readyJobIndex.getReadyJobs(workflowCtx));
+  }
+
+  @Test
+  public void testRebuild() {
+    JobDag jobDag = new JobDag();
+    jobDag.addParentToChild("A", "B");
+    WorkflowContext workflowCtx = new WorkflowContext(new ZNRecord("Workflow"));
+    workflowCtx.setStartTime(1000L);
+    ReadyJobIndex readyJobIndex = new ReadyJobIndex(jobDag, workflowCtx);
+
+    // A new DAG, e.g. after enqueuing a job, or a new run of the workflow needs a new index
+    JobDag newJobDag = new JobDag();
+    newJobDag.addParentToChild("A", "B");
+    newJobDag.addParentToChild("B", "C");
+    Assert.assertFalse(readyJobIndex.isBuiltFrom(newJobDag, workflowCtx));
+    WorkflowContext newWorkflowCtx = new WorkflowContext(new ZNRecord("Workflow"));
+    newWorkflowCtx.setStartTime(2000L);
+    Assert.assertFalse(readyJobIndex.isBuiltFrom(jobDag, newWorkflowCtx));
+  }
+}
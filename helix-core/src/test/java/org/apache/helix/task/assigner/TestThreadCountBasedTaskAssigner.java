@@ -124,6 +124,90 @@ public class TestThreadCountBasedTaskAssigner extends AssignerTestBase {
     assertAssignmentResults(results.values(), true);
   }
 
+  @Test
+  public void testAssignmentWithTrackedCapacityIndex() {
+    ThreadCountBasedTaskAssigner assigner = new ThreadCountBasedTaskAssigner();
+    // 10 * Type1 quota per instance
+    List<AssignableInstance> instances = createAssignableInstances(2, 20);
+    ThreadCapacityIndex capacityIndex = new ThreadCapacityIndex(true);
+    for (AssignableInstance instance : instances) {
+      capacityIndex.addInstance(instance);
+    }
+    AssignableInstance instance0 = instances.get(0);
+
+    Map<String, TaskAssignResult> results =
+        assigner.assignTasks(capacityIndex, createTaskConfigs(8), testQuotaTypes[0]);
+    assertAssignmentResults(results.values(), true);
+    Assert.assertEquals(instance0.getCurrentAssignments().size(), 4);
+
+    // Released threads are picked up by the index without a rebuild
+    int released = 0;
+    for (TaskAssignResult result : results.values()) {
+      if (released < 2 && result.getInstanceName().equals(instance0.getInstanceName())) {
+        instance0.release(result.getTaskConfig(), testQuotaTypes[0]);
+        released++;
+      }
+    }
+    results = assigner.assignTasks(capacityIndex, createTaskConfigs(3), testQuotaTypes[0]);
+    assertAssignmentResults(results.values(), true);
+    Assert.assertTrue(instance0.getCurrentAssignments().size() >= 4);
+    Assert.assertEquals(instance0.getCurrentAssignments().size()
+        + instances.get(1).getCurrentAssignments().size(), 9);
+
+    // Removed instances are not assigned any more
+    capacityIndex.removeInstance(instance0);
+    results = assigner.assignTasks(capacityIndex, createTaskConfigs(2), testQuotaTypes[0]);
+    Assert.assertEquals(results.size(), 2);
+    assertAssignmentResults(results.values(), true);
+    for (TaskAssignResult result : results.values()) {
+      Assert.assertEquals(result.getInstanceName(), instances.get(1).getInstanceName());
+    }
+  }
+
+  @Test(enabled = false, description = "Not enabling profiling tests")
+  public void testCapacityIndexProfiling() {
+    for (int instanceCount : new int[] {10, 100, 1000}) {
+      for (int taskCount : new int[] {1000, 10000, 100000}) {
+        System.out.println(String.format("testing %s instances, %s tasks", instanceCount,
+            taskCount));
+        profileCapacityIndex(1000, instanceCount, taskCount);
+      }
+    }
+  }
+
+  private void profileCapacityIndex(int assignBatchSize, int instanceCount, int taskCount) {
+    int trail = 10;
+    long totalTime = 0;
+    for (int i = 0; i < trail; i++) {
+      ThreadCountBasedTaskAssigner assigner = new ThreadCountBasedTaskAssigner();
+
+      // Enough Type1 quota for all tasks
+      List<AssignableInstance> instances =
+          createAssignableInstances(instanceCount, 2 * taskCount / instanceCount + 2);
+      ThreadCapacityIndex capacityIndex = new ThreadCapacityIndex(true);
+      for (AssignableInstance instance : instances) {
+        capacityIndex.addInstance(instance);
+      }
+      List<TaskConfig> tasks = createTaskConfigs(taskCount);
+      List<Map<String, TaskAssignResult>> allResults = new ArrayList<>();
+
+      // Assign
+      long start = System.currentTimeMillis();
+      for (int j = 0; j < taskCount / assignBatchSize; j++) {
+        allResults.add(assigner.assignTasks(capacityIndex,
+            tasks.subList(j * assignBatchSize, (j + 1) * assignBatchSize), testQuotaTypes[0]));
+      }
+      long duration = System.currentTimeMillis() - start;
+      totalTime += duration;
+
+      // Validate
+      for (Map<String, TaskAssignResult> results : allResults) {
+        assertAssignmentResults(results.values(), true);
+      }
+    }
+    System.out.println("Average time: " + totalTime / trail + "ms");
+  }
+
   @Test(enabled = false, description = "Not enabling profiling tests")
   public void testAssignerProfiling() {
     int instanceCount = 1000;
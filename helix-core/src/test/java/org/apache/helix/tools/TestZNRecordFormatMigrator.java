@@ -0,0 +1,102 @@
+package org.apache.helix.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.Date;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ByteArraySerializer;
+import org.apache.helix.manager.zk.ZNRecordBinarySerializer;
+import org.apache.helix.manager.zk.ZkClient;
+import org.apache.helix.tools.commandtools.ZNRecordFormatMigrator;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordFormatMigrator extends ZkUnitTestBase {
+
+  @Test
+  public void test() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+    String rootPath = "/" + clusterName;
+    for (int i = 0; i < 5; i++) {
+      String path = String.format("%s/%d", rootPath, i);
+      _gZkClient.createPersistent(path, true);
+      ZNRecord record = new ZNRecord(String.valueOf(i));
+      record.setMapField("partition_" + i, Collections.singletonMap("localhost", "ONLINE"));
+      _gZkClient.writeData(path, record);
+    }
+
+    ZkClient rawClient = new ZkClient(ZK_ADDR, ZkClient.DEFAULT_SESSION_TIMEOUT,
+        ZkClient.DEFAULT_CONNECTION_TIMEOUT, new ByteArraySerializer());
+    try {
+      // dry run doesn't write
+      ZNRecordFormatMigrator migrator = new ZNRecordFormatMigrator(rawClient,
+          ZNRecordFormatMigrator.Format.binary, true);
+      migrator.migrate(rootPath);
+      Assert.assertEquals(migrator.getMigratedCount(), 5);
+      verifyFormat(rawClient, rootPath, false);
+
+      ZNRecordFormatMigrator.main(new String[] {
+          "--zkSvr", ZK_ADDR, "--path", rootPath, "--format", "binary"
+      });
+      verifyFormat(rawClient, rootPath, true);
+      verifyRecords(rootPath);
+
+      // nothing left to migrate
+      migrator = new ZNRecordFormatMigrator(rawClient, ZNRecordFormatMigrator.Format.binary,
+          false);
+      migrator.migrate(rootPath);
+      Assert.assertEquals(migrator.getMigratedCount(), 0);
+
+      // roll back
+      migrator = new ZNRecordFormatMigrator(rawClient, ZNRecordFormatMigrator.Format.json, false);
+      migrator.migrate(rootPath);
+      Assert.assertEquals(migrator.getMigratedCount(), 5);
+      verifyFormat(rawClient, rootPath, false);
+      verifyRecords(rootPath);
+    } finally {
+      rawClient.close();
+    }
+
+    _gZkClient.deleteRecursively(rootPath);
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  private void verifyFormat(ZkClient rawClient, String rootPath, boolean binary) {
+    for (int i = 0; i < 5; i++) {
+      byte[] bytes = rawClient.readData(String.format("%s/%d", rootPath, i));
+      Assert.assertEquals(ZNRecordBinarySerializer.isBinaryFormat(bytes), binary);
+    }
+  }
+
+  private void verifyRecords(String rootPath) {
+    for (int i = 0; i < 5; i++) {
+      ZNRecord record = _gZkClient.readData(String.format("%s/%d", rootPath, i));
+      Assert.assertEquals(record.getId(), String.valueOf(i));
+      Assert.assertEquals(record.getMapField("partition_" + i).get("localhost"), "ONLINE");
+    }
+  }
+}
@@ -0,0 +1,216 @@
+package org.apache.helix.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.apache.helix.HelixException;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.manager.zk.ChainedPathZkSerializer;
+import org.apache.helix.manager.zk.ZNRecordSerializer;
+import org.apache.helix.manager.zk.ZNRecordStreamingSerializer;
+import org.apache.helix.monitoring.mbeans.CompressionMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.util.GZipCompressionUtil;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestCompressionCodecs {
+  private static final String[] CODEC_NAMES = {
+      GZipCompressionCodec.NAME, LZ4CompressionCodec.NAME, "deflate-1", "deflate-6", "deflate-9"
+  };
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Random random = new Random(0);
+    byte[] incompressible = new byte[200 * 1024];
+    random.nextBytes(incompressible);
+    byte[] repetitive = new byte[300 * 1024];
+    for (int i = 0; i < repetitive.length; i++) {
+      repetitive[i] = (byte) ("localhost_" + random.nextInt(20)).charAt(i % 10);
+    }
+    byte[][] inputs = {
+        new byte[0], "a".getBytes(), "abcdefghijklmnop".getBytes(), new byte[1000],
+        incompressible, repetitive, createRecordBytes(5000)
+    };
+
+    for (String codecName : CODEC_NAMES) {
+      CompressionCodec codec = CompressionCodecs.getCodec(codecName);
+      Assert.assertNotNull(codec, codecName);
+      for (byte[] input : inputs) {
+        byte[] compressed = codec.compress(input);
+        Assert.assertTrue(codec.isCompressed(compressed), codecName);
+        Assert.assertEquals(CompressionCodecs.detectCodec(compressed).getClass(),
+            codec.getClass());
+        Assert.assertEquals(readAll(CompressionCodecs.decompress(compressed)), input,
+            codecName + " failed on input of length " + input.length);
+      }
+      Assert.assertFalse(codec.isCompressed(createRecordBytes(10)));
+    }
+    Assert.assertNull(CompressionCodecs.detectCodec(createRecordBytes(10)));
+  }
+
+  @Test
+  public void testCompressionRatio() throws IOException {
+    byte[] input = createRecordBytes(5000);
+    int lz4Length = CompressionCodecs.LZ4.compress(input).length;
+    Assert.assertTrue(lz4Length < input.length / 2);
+    Assert.assertTrue(
+        CompressionCodecs.getCodec("deflate-9").compress(input).length <= lz4Length);
+  }
+
+  @Test
+  public void testCorruptedData() throws IOException {
+    byte[] compressed = CompressionCodecs.LZ4.compress(createRecordBytes(1000));
+    byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+    try {
+      readAll(CompressionCodecs.decompress(truncated));
+      Assert.fail("Truncated data should not be decompressed");
+    } catch (IOException e) {
+      // expected
+    }
+
+    byte[] corrupted = Arrays.copyOf(compressed, compressed.length);
+    for (int i = 12; i < corrupted.length; i += 7) {
+      corrupted[i] = (byte) 0xFF;
+    }
+    try {
+      readAll(CompressionCodecs.decompress(corrupted));
+      Assert.fail("Corrupted data should not be decompressed");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSerializerCodecSelection() {
+    ZNRecord record = createRecord(1000);
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    ZNRecordStreamingSerializer streamingSerializer = new ZNRecordStreamingSerializer();
+
+    // not compressed by default
+    byte[] bytes = serializer.serialize(record);
+    Assert.assertNull(CompressionCodecs.detectCodec(bytes));
+
+    // GZIP if enabled without a codec, which older readers understand
+    record.setSimpleField(CompressionCodecs.ENABLE_COMPRESSION, "true");
+    bytes = serializer.serialize(record);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(bytes));
+    Assert.assertEquals(streamingSerializer.deserialize(bytes), record);
+
+    // the codec selected in the record
+    for (String codecName : CODEC_NAMES) {
+      record.setSimpleField(CompressionCodecs.COMPRESSION_CODEC, codecName);
+      bytes = serializer.serialize(record);
+      Assert.assertTrue(CompressionCodecs.getCodec(codecName).isCompressed(bytes));
+      Assert.assertEquals(serializer.deserialize(bytes), record);
+      Assert.assertEquals(streamingSerializer.deserialize(bytes), record);
+
+      bytes = streamingSerializer.serialize(record);
+      Assert.assertTrue(CompressionCodecs.getCodec(codecName).isCompressed(bytes));
+      Assert.assertEquals(serializer.deserialize(bytes), record);
+    }
+
+    record.setSimpleField(CompressionCodecs.COMPRESSION_CODEC, "unknown");
+    try {
+      serializer.serialize(record);
+      Assert.fail("Should fail on unknown codec");
+    } catch (HelixException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPathBasedCodec() throws Exception {
+    String clusterName = "TestCompressionCluster";
+    String evPath = "/" + clusterName + "/EXTERNALVIEW";
+    CompressionMonitor monitor = new CompressionMonitor(clusterName, evPath).register();
+    try {
+      ChainedPathZkSerializer serializer =
+          ChainedPathZkSerializer.builder(new ZNRecordStreamingSerializer())
+              .serialize(evPath,
+                  new ZNRecordStreamingSerializer(CompressionCodecs.LZ4, monitor))
+              .build();
+
+      ZNRecord record = createRecord(1000);
+      byte[] bytes = serializer.serialize(record, "/" + clusterName + "/IDEALSTATES/TestDB");
+      Assert.assertNull(CompressionCodecs.detectCodec(bytes));
+      int uncompressedLength = bytes.length;
+
+      bytes = serializer.serialize(record, evPath + "/TestDB");
+      Assert.assertTrue(CompressionCodecs.LZ4.isCompressed(bytes));
+      Assert.assertEquals(serializer.deserialize(bytes, evPath + "/TestDB"), record);
+      // any path reads any codec
+      Assert.assertEquals(serializer.deserialize(bytes, "/" + clusterName + "/IDEALSTATES/TestDB"),
+          record);
+
+      MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(String.format("%s:%s=%s,%s=%s",
+          MonitorDomainNames.HelixZkSerializer.name(), CompressionMonitor.MONITOR_KEY,
+          clusterName, CompressionMonitor.MONITOR_PATH, ObjectName.quote(evPath)));
+      Assert.assertEquals((long) beanServer.getAttribute(name, "CompressionCounter"), 1);
+      Assert.assertEquals((long) beanServer.getAttribute(name, "DecompressionCounter"), 1);
+      Assert.assertEquals((long) beanServer.getAttribute(name, "UncompressedBytesCounter"),
+          uncompressedLength);
+      Assert.assertEquals((long) beanServer.getAttribute(name, "CompressedBytesCounter"),
+          bytes.length);
+      Assert.assertEquals((long) beanServer.getAttribute(name, "CompressionRatioGauge.Max"),
+          100L * uncompressedLength / bytes.length);
+    } finally {
+      monitor.unregister();
+    }
+  }
+
+  private static ZNRecord createRecord(int numPartitions) {
+    ZNRecord record = new ZNRecord("TestDB");
+    Random random = new Random(0);
+    for (int p = 0; p < numPartitions; p++) {
+      Map<String, String> map = new HashMap<>();
+      for (int r = 0; r < 3; r++) {
+        map.put("localhost_" + (12918 + random.nextInt(100)), r == 0 ? "MASTER" : "SLAVE");
+      }
+      record.setMapField("TestDB_" + p, map);
+    }
+    return record;
+  }
+
+  private static byte[] createRecordBytes(int numPartitions) {
+    return new ZNRecordSerializer().serialize(createRecord(numPartitions));
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int length;
+    while ((length = in.read(buffer)) != -1) {
+      baos.write(buffer, 0, length);
+    }
+    in.close();
+    return baos.toByteArray();
+  }
+}